@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import kr.ac.postech.lispconfig.rest.MapRecordJsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of bulk local-db request bodies of the REST API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BulkParseBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int records;
+
+    @Param({"1", "4"})
+    public int locators;
+
+    private final MapRecordJsonParser parser = new MapRecordJsonParser(new JsonFactory());
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = MapRecordFixtures.bulkJson(records, locators);
+    }
+
+    @Benchmark
+    public List<MapRecordJsonParser.Entry> parseBulkRequest() throws IOException {
+        return parser.parse(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Single-instance store used in place of the distributed store, so that
+ * provisioning benchmarks do not depend on a running cluster.
+ */
+final class InMemoryLispConfigStore implements LispConfigStore {
+
+    private final Map<DeviceId, List<String>> resolvers = Maps.newHashMap();
+    private final Map<DeviceId, NavigableMap<IpPrefix, LispMapRecord>> eids =
+            Maps.newHashMap();
+    private final Set<DeviceId> etrDevices = Sets.newHashSet();
+
+    @Override
+    public synchronized boolean addMapResolver(DeviceId deviceId, String address) {
+        List<String> list = resolvers.computeIfAbsent(deviceId, k -> Lists.newArrayList());
+        if (list.contains(address)) {
+            return false;
+        }
+        return list.add(address);
+    }
+
+    @Override
+    public synchronized boolean removeMapResolver(DeviceId deviceId, String address) {
+        return resolvers.computeIfAbsent(deviceId, k -> Lists.newArrayList())
+                .remove(address);
+    }
+
+    @Override
+    public synchronized List<String> getMapResolvers(DeviceId deviceId) {
+        List<String> list = resolvers.get(deviceId);
+        return list == null ? ImmutableList.of() : ImmutableList.copyOf(list);
+    }
+
+    @Override
+    public synchronized MapRecordDiff mergeLocalEid(DeviceId deviceId, LispMapRecord record) {
+        etrDevices.add(deviceId);
+        IpPrefix prefix = MapRecords.eidPrefix(record);
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.computeIfAbsent(
+                deviceId, k -> new TreeMap<>(MapRecords.PREFIX_ORDER));
+        LispMapRecord old = records.get(prefix);
+        MapRecordDiff diff = MapRecords.diff(old, MapRecords.merge(old, record));
+        if (!diff.isEmpty()) {
+            records.put(prefix, diff.record());
+        }
+        return diff;
+    }
+
+    @Override
+    public synchronized boolean removeLocalEid(DeviceId deviceId, IpPrefix prefix) {
+        etrDevices.add(deviceId);
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        return records != null && records.remove(prefix) != null;
+    }
+
+    @Override
+    public synchronized LispMapRecord getLocalEid(DeviceId deviceId, IpPrefix prefix) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        return records == null ? null : records.get(prefix);
+    }
+
+    @Override
+    public synchronized LispMapRecord getMatchingLocalEid(DeviceId deviceId,
+                                                         IpAddress address) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        if (records == null) {
+            return null;
+        }
+        int length = address.isIp4() ? Ip4Address.BIT_LENGTH : Ip6Address.BIT_LENGTH;
+        for (; length >= 0; length--) {
+            LispMapRecord record = records.get(IpPrefix.valueOf(address, length));
+            if (record != null) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<LispMapRecord> getCoveringLocalEids(DeviceId deviceId,
+                                                                 IpPrefix prefix) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        if (records == null) {
+            return ImmutableList.of();
+        }
+        List<LispMapRecord> covering = Lists.newArrayList();
+        for (int length = 0; length <= prefix.prefixLength(); length++) {
+            LispMapRecord record = records.get(IpPrefix.valueOf(prefix.address(), length));
+            if (record != null) {
+                covering.add(record);
+            }
+        }
+        return covering;
+    }
+
+    @Override
+    public synchronized List<LispMapRecord> getCoveredLocalEids(DeviceId deviceId,
+                                                                IpPrefix prefix) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        if (records == null) {
+            return ImmutableList.of();
+        }
+        // prefixes held by the given one follow it in prefix order
+        List<LispMapRecord> covered = Lists.newArrayList();
+        for (Map.Entry<IpPrefix, LispMapRecord> e : records.tailMap(prefix, true).entrySet()) {
+            if (!prefix.contains(e.getKey())) {
+                break;
+            }
+            covered.add(e.getValue());
+        }
+        return covered;
+    }
+
+    @Override
+    public synchronized List<LispMapRecord> getLocalEids(DeviceId deviceId) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        return records == null ? ImmutableList.of() : ImmutableList.copyOf(records.values());
+    }
+
+    @Override
+    public synchronized List<LispMapRecord> getLocalEids(DeviceId deviceId,
+                                                         IpPrefix after, int limit) {
+        NavigableMap<IpPrefix, LispMapRecord> records = eids.get(deviceId);
+        if (records == null) {
+            return ImmutableList.of();
+        }
+        return (after == null ? records : records.tailMap(after, false))
+                .values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized boolean isItrManaged(DeviceId deviceId) {
+        return resolvers.containsKey(deviceId);
+    }
+
+    @Override
+    public synchronized boolean isEtrManaged(DeviceId deviceId) {
+        return etrDevices.contains(deviceId);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merge of the locators of an incoming record into the stored record of
+ * the same EID prefix, and the diff of the result, as done when a local
+ * EID is added. Half of the incoming locators are already stored.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LocatorMergeBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int locators;
+
+    private LispMapRecord stored;
+    private LispMapRecord update;
+
+    @Setup
+    public void setUp() {
+        stored = MapRecordFixtures.record(0, locators);
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(stored.getEidPrefixAfi());
+        builder.withMaskLength(stored.getMaskLength());
+        builder.withRecordTtl(stored.getRecordTtl());
+        builder.withLocators(MapRecordFixtures.locators(locators / 2, locators));
+        update = builder.build();
+    }
+
+    @Benchmark
+    public LispMapRecord mergeRecord() {
+        return MapRecords.merge(stored, update);
+    }
+
+    @Benchmark
+    public MapRecordDiff mergeAndDiffRecord() {
+        return MapRecords.diff(stored, MapRecords.merge(stored, update));
+    }
+
+    @Benchmark
+    public MapRecordDiff diffUnchangedRecord() {
+        return MapRecords.diff(stored, MapRecords.merge(stored, stored));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Lists;
+import org.onlab.packet.Ip4Address;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Deterministic test data shared by the benchmarks, so that results of
+ * different commits are measured on the same input.
+ */
+final class MapRecordFixtures {
+
+    private static final int EID_BASE = Ip4Address.valueOf("10.0.0.0").toInt();
+    private static final int RLOC_BASE = Ip4Address.valueOf("192.168.0.1").toInt();
+
+    private MapRecordFixtures() {
+    }
+
+    /**
+     * Returns the i-th /32 EID record with the given number of locators.
+     *
+     * @param i index of the record
+     * @param locators number of locators
+     * @return the map record
+     */
+    static LispMapRecord record(int i, int locators) {
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(new LispIpv4Address(Ip4Address.valueOf(EID_BASE + i)));
+        builder.withMaskLength((byte) 32);
+        builder.withRecordTtl(1);
+        builder.withLocators(locators(0, locators));
+        return builder.build();
+    }
+
+    /**
+     * Returns count records with consecutive EIDs.
+     *
+     * @param count number of records
+     * @param locators number of locators of each record
+     * @return the map records
+     */
+    static List<LispMapRecord> records(int count, int locators) {
+        List<LispMapRecord> records = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            records.add(record(i, locators));
+        }
+        return records;
+    }
+
+    /**
+     * Returns count locators with consecutive RLOCs, starting at the
+     * given offset.
+     *
+     * @param offset index of the first RLOC
+     * @param count number of locators
+     * @return the locators
+     */
+    static List<LispLocator> locators(int offset, int count) {
+        List<LispLocator> locators = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            DefaultLispLocator.DefaultLocatorBuilder builder =
+                    new DefaultLispLocator.DefaultLocatorBuilder();
+            builder.withLocatorAfi(new LispIpv4Address(
+                    Ip4Address.valueOf(RLOC_BASE + offset + i)));
+            builder.withPriority((byte) 1);
+            builder.withWeight((byte) 100);
+            locators.add(builder.build());
+        }
+        return locators;
+    }
+
+    /**
+     * Returns count map resolver addresses.
+     *
+     * @param count number of addresses
+     * @return the addresses
+     */
+    static List<String> resolvers(int count) {
+        List<String> resolvers = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            resolvers.add(Ip4Address.valueOf(RLOC_BASE + i).toString());
+        }
+        return resolvers;
+    }
+
+    /**
+     * Returns a bulk local-db request body in the format accepted by the
+     * REST API.
+     *
+     * @param count number of records
+     * @param locators number of locators of each record
+     * @return the UTF-8 encoded JSON document
+     */
+    static byte[] bulkJson(int count, int locators) {
+        StringBuilder json = new StringBuilder("{\"records\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"eid\":\"").append(Ip4Address.valueOf(EID_BASE + i))
+                    .append("\",\"eid_mask\":32,\"ttl\":1,\"locators\":[");
+            for (int j = 0; j < locators; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"rloc\":\"").append(Ip4Address.valueOf(RLOC_BASE + j))
+                        .append("\",\"priority\":1,\"weight\":100}");
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
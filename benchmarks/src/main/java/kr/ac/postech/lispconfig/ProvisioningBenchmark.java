@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.onlab.metrics.MetricsManager;
+import org.onosproject.cfg.ComponentConfigService;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.mastership.MastershipService;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.component.ComponentContext;
+
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end provisioning calls of LispConfigManager against a stubbed
+ * NETCONF session: state update, batching, payload generation and the
+ * RPC itself, without network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProvisioningBenchmark {
+
+    private static final DeviceId DEVICE = DeviceId.deviceId("netconf:10.0.0.1:830");
+
+    @Param({"10", "1000"})
+    public int stored;
+
+    @Param({"true", "false"})
+    public boolean useEditConfig;
+
+    private LispConfigManager manager;
+    private List<String> resolvers;
+    private List<LispMapRecord> records;
+    private LispMapRecord update;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubNetconf netconf = new StubNetconf();
+
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put("useEditConfig", String.valueOf(useEditConfig));
+        properties.put("batchWindowMs", "0");
+        properties.put("configCacheTtlMs", "0");
+        properties.put("reconcileIntervalSec", "0");
+        properties.put("maxRequestsPerSec", "0");
+        ComponentContext context = StubNetconf.proxy(ComponentContext.class,
+                (method, args) -> method.getName().equals("getProperties") ? properties : null);
+
+        manager = new LispConfigManager();
+        manager.netconfController = netconf.controller();
+        manager.metricsService = new MetricsManager();
+        manager.store = new InMemoryLispConfigStore();
+        manager.deviceService = StubNetconf.proxy(DeviceService.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getDevices":
+                    return Collections.emptyList();
+                case "isAvailable":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+        manager.mastershipService = StubNetconf.proxy(MastershipService.class,
+                                                      (method, args) -> null);
+        manager.componentConfigService =
+                StubNetconf.proxy(ComponentConfigService.class, (method, args) -> null);
+        manager.activate(context);
+
+        resolvers = MapRecordFixtures.resolvers(stored + 1);
+        resolvers.subList(0, stored).forEach(r -> manager.addItrMapResolver(DEVICE, r));
+
+        records = MapRecordFixtures.records(stored + 1, 2);
+        records.subList(0, stored).forEach(r -> manager.addEtrEidDataBase(DEVICE, r));
+        update = records.get(stored);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.deactivate();
+    }
+
+    @Benchmark
+    public boolean addAndRemoveMapResolver() {
+        String address = resolvers.get(stored);
+        return manager.addItrMapResolver(DEVICE, address)
+                & manager.removeItrMapResolver(DEVICE, address);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveLocalEid() {
+        return manager.addEtrEidDataBase(DEVICE, update)
+                & manager.removeEtrEidDataBase(DEVICE, update);
+    }
+
+    @Benchmark
+    public boolean resyncDevice() {
+        return manager.resyncDevice(DEVICE);
+    }
+}
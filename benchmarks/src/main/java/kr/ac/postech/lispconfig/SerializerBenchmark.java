@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter.Operation;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of lispsimple payloads: a single local EID, the whole
+ * local EID database and the map resolver list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int records;
+
+    @Param({"1", "4"})
+    public int locators;
+
+    private LispMapRecord record;
+    private List<LispMapRecord> database;
+    private List<String> resolvers;
+
+    @Setup
+    public void setUp() {
+        record = MapRecordFixtures.record(0, locators);
+        database = MapRecordFixtures.records(records, locators);
+        resolvers = MapRecordFixtures.resolvers(records);
+    }
+
+    @Benchmark
+    public String serializeMapRecord() {
+        return LispSimpleXmlWriter.reusable()
+                .localEid(record, Operation.NONE)
+                .toString();
+    }
+
+    @Benchmark
+    public String serializeDatabase() {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginEtrConfig();
+        database.forEach(r -> writer.localEid(r, Operation.NONE));
+        return writer.endEtrConfig().toString();
+    }
+
+    @Benchmark
+    public String serializeResolvers() {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginItrConfig();
+        resolvers.forEach(address -> writer.mapResolver(address, Operation.NONE));
+        return writer.endItrConfig().toString();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.onosproject.net.DeviceId;
+import org.onosproject.netconf.NetconfController;
+import org.onosproject.netconf.NetconfDevice;
+import org.onosproject.netconf.NetconfSession;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the NETCONF controller. Every device has an
+ * active session which accepts all edits without network I/O, so that
+ * benchmarks measure only the work done by the application.
+ */
+final class StubNetconf {
+
+    private static final String EMPTY_CONFIG = "<data/>";
+
+    private final AtomicLong rpcs = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final NetconfSession session = proxy(NetconfSession.class, this::session);
+    private final NetconfDevice device = proxy(NetconfDevice.class, this::device);
+    private final NetconfController controller =
+            proxy(NetconfController.class, this::controller);
+
+    /**
+     * Returns the stubbed controller.
+     *
+     * @return the NETCONF controller
+     */
+    NetconfController controller() {
+        return controller;
+    }
+
+    /**
+     * Returns the number of RPCs sent to the stubbed session.
+     *
+     * @return number of RPCs
+     */
+    long rpcs() {
+        return rpcs.get();
+    }
+
+    /**
+     * Returns the number of payload characters sent to the stubbed session.
+     *
+     * @return number of characters
+     */
+    long bytes() {
+        return bytes.get();
+    }
+
+    private Object controller(Method method, Object[] args) {
+        if (method.getName().equals("getNetconfDevice") && args.length == 1
+                && args[0] instanceof DeviceId) {
+            return device;
+        }
+        return null;
+    }
+
+    private Object device(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "isActive":
+                return true;
+            case "getSession":
+                return session;
+            default:
+                return null;
+        }
+    }
+
+    private Object session(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getConfig":
+                rpcs.incrementAndGet();
+                return EMPTY_CONFIG;
+            case "copyConfig":
+            case "editConfig":
+                rpcs.incrementAndGet();
+                bytes.addAndGet(((String) args[args.length - 1]).length());
+                return true;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Handler of a stubbed method; primitive results left null are
+     * replaced by their default value.
+     */
+    interface Handler {
+        Object invoke(Method method, Object[] args);
+    }
+
+    /**
+     * Creates a proxy of an interface whose methods are answered by the
+     * given handler.
+     *
+     * @param type the interface
+     * @param handler the method handler
+     * @param <T> type of the interface
+     * @return the proxy
+     */
+    static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(
+                type.getClassLoader(), new Class<?>[]{type},
+                (p, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return objectMethod(p, method, args);
+                    }
+                    Object result = handler.invoke(method, args == null ? new Object[0] : args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+                });
+        return type.cast(proxy);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getName();
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        }
+        return null;
+    }
+}
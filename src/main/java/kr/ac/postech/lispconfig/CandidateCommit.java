@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import org.onosproject.netconf.NetconfException;
+import org.onosproject.netconf.NetconfSession;
+import org.slf4j.Logger;
+
+import java.util.regex.Pattern;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Applies a set of changes through the candidate datastore: the candidate
+ * is locked, the changes are staged and validated, and committed at once.
+ * Every reply is checked for an rpc-error; a failed step leaves the
+ * running configuration untouched since the candidate is discarded.
+ *
+ * After the commit the pushed entries are read back from the running
+ * configuration. With confirmed-commit, the commit is only confirmed once
+ * that check passes and is cancelled otherwise, and the device rolls back
+ * on its own when no confirmation arrives within the timeout, so a commit
+ * cutting this controller off the device does not stick.
+ */
+final class CandidateCommit {
+
+    private static final Logger log = getLogger(CandidateCommit.class);
+
+    private static final String RPC_OPEN =
+            "<rpc xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\">";
+    private static final String RPC_CLOSE = "</rpc>";
+    private static final String CANDIDATE_TARGET =
+            "<target><candidate/></target>";
+
+    private static final Pattern RPC_ERROR = Pattern.compile("<(\\w+:)?rpc-error[\\s/>]");
+    private static final Pattern OK = Pattern.compile("<(\\w+:)?ok\\s*(/>|>\\s*</(\\w+:)?ok>)");
+
+    private CandidateCommit() {
+    }
+
+    /**
+     * Stages changes in the candidate datastore.
+     */
+    interface Stage {
+        boolean apply(NetconfSession session) throws NetconfException;
+    }
+
+    /**
+     * Checks the running configuration after a commit.
+     */
+    interface Check {
+        boolean passed(NetconfSession session) throws NetconfException;
+    }
+
+    /**
+     * Stages the changes in the candidate datastore and commits them.
+     *
+     * @param session session of the device
+     * @param capabilities datastore capabilities of the device
+     * @param confirmTimeoutSec confirm timeout of the commit in seconds;
+     *                          0 commits without confirmation
+     * @param stage writes the changes into the candidate
+     * @param check reads the committed changes back
+     * @return true when the changes were committed and read back
+     * @throws NetconfException when the session fails
+     */
+    static boolean apply(NetconfSession session,
+                         DatastoreCapabilities capabilities,
+                         int confirmTimeoutSec, Stage stage, Check check)
+            throws NetconfException {
+        if (!rpc(session, "<lock>" + CANDIDATE_TARGET + "</lock>")) {
+            return false;
+        }
+        boolean confirming = false;
+        boolean committed = false;
+        try {
+            if (!stage.apply(session)) {
+                return false;
+            }
+            if (capabilities.validate() &&
+                    !rpc(session, "<validate><source><candidate/></source></validate>")) {
+                return false;
+            }
+            if (capabilities.confirmedCommit() && confirmTimeoutSec > 0) {
+                if (!rpc(session, "<commit><confirmed/><confirm-timeout>" +
+                        confirmTimeoutSec + "</confirm-timeout></commit>")) {
+                    return false;
+                }
+                confirming = true;
+                if (!check.passed(session) || !rpc(session, "<commit/>")) {
+                    return false;
+                }
+                committed = true;
+                return true;
+            }
+            if (!rpc(session, "<commit/>")) {
+                return false;
+            }
+            committed = true;
+            return check.passed(session);
+        } finally {
+            if (!committed) {
+                if (confirming) {
+                    cancel(session, confirmTimeoutSec);
+                }
+                discard(session);
+            }
+            unlock(session);
+        }
+    }
+
+    /**
+     * Returns whether a reply reports success: it holds an ok element and
+     * no rpc-error.
+     *
+     * @param reply rpc-reply of the device
+     * @return true when the RPC succeeded
+     */
+    static boolean isOk(String reply) {
+        return reply != null && !RPC_ERROR.matcher(reply).find() &&
+                OK.matcher(reply).find();
+    }
+
+    private static void cancel(NetconfSession session, int confirmTimeoutSec) {
+        try {
+            if (rpc(session, "<cancel-commit/>")) {
+                return;
+            }
+        } catch (NetconfException e) {
+            log.debug("Failed to cancel the commit", e);
+        }
+        log.warn("Could not cancel an unconfirmed commit; the device rolls " +
+                         "it back within {} seconds", confirmTimeoutSec);
+    }
+
+    private static void discard(NetconfSession session) {
+        try {
+            if (!rpc(session, "<discard-changes/>")) {
+                log.warn("Failed to discard the candidate");
+            }
+        } catch (NetconfException e) {
+            log.warn("Failed to discard the candidate", e);
+        }
+    }
+
+    private static void unlock(NetconfSession session) {
+        try {
+            if (!rpc(session, "<unlock>" + CANDIDATE_TARGET + "</unlock>")) {
+                log.warn("Failed to unlock the candidate");
+            }
+        } catch (NetconfException e) {
+            log.warn("Failed to unlock the candidate", e);
+        }
+    }
+
+    /**
+     * Sends an RPC, logging the reply of a failed one.
+     *
+     * @return true when the device answered ok
+     */
+    private static boolean rpc(NetconfSession session, String body)
+            throws NetconfException {
+        String reply = session.requestSync(RPC_OPEN + body + RPC_CLOSE);
+        if (isOk(reply)) {
+            return true;
+        }
+        log.warn("Device refused {}: {}", body, reply);
+        return false;
+    }
+}
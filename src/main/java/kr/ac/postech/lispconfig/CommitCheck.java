@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entries a push is expected to leave in the running configuration of a
+ * device. Read back after a commit, they tell whether the device applied
+ * the push as intended.
+ *
+ * Only the pushed entries are compared, unless a whole list was replaced,
+ * in which case entries the push did not carry must be gone as well.
+ */
+final class CommitCheck {
+
+    // pushed map resolvers, mapped to whether they are to be configured
+    private final Map<String, Boolean> resolvers = Maps.newHashMap();
+    // pushed local EIDs by id; null for deleted ones
+    private final Map<String, LispMapRecord> eids = Maps.newHashMap();
+    // names of the pushed locators of EIDs pushed in part
+    private final Map<String, Set<String>> locators = Maps.newHashMap();
+    private boolean itr;
+    private boolean etr;
+    private boolean wholeItr;
+    private boolean wholeEtr;
+
+    /**
+     * Expects a map resolver to be configured or not.
+     *
+     * @param address map resolver address
+     * @param configured whether the address is to be configured
+     */
+    void resolver(String address, boolean configured) {
+        itr = true;
+        resolvers.put(address, configured);
+    }
+
+    /**
+     * Expects the map resolver list to hold only the given addresses.
+     *
+     * @param addresses map resolver addresses
+     */
+    void allResolvers(List<String> addresses) {
+        itr = true;
+        wholeItr = true;
+        addresses.forEach(a -> resolvers.put(a, true));
+    }
+
+    /**
+     * Expects a local EID to be configured as given, or not at all.
+     *
+     * @param id id of the local EID
+     * @param record the record, or null when the EID is to be deleted
+     * @param names names of the only locators pushed, or null when the
+     *              record was pushed as a whole
+     */
+    void eid(String id, LispMapRecord record, Set<String> names) {
+        etr = true;
+        eids.put(id, record);
+        if (record != null && names != null) {
+            locators.put(id, names);
+        }
+    }
+
+    /**
+     * Expects the local EID database to hold only the given records.
+     *
+     * @param records local EID records
+     */
+    void allEids(List<LispMapRecord> records) {
+        etr = true;
+        wholeEtr = true;
+        records.forEach(r -> eids.put(MapRecords.eidPrefix(r).toString(), r));
+    }
+
+    /**
+     * Returns whether map resolvers are to be read back.
+     *
+     * @return true when the ITR configuration is checked
+     */
+    boolean checksItr() {
+        return itr;
+    }
+
+    /**
+     * Returns whether local EIDs are to be read back.
+     *
+     * @return true when the ETR configuration is checked
+     */
+    boolean checksEtr() {
+        return etr;
+    }
+
+    /**
+     * Compares the expected entries with the running configuration.
+     *
+     * @param itrConfig ITR configuration read back, or null when not checked
+     * @param etrConfig ETR configuration read back, or null when not checked
+     * @return true when the device holds the pushed entries
+     * @throws XMLStreamException when a configuration cannot be parsed
+     */
+    boolean matches(String itrConfig, String etrConfig) throws XMLStreamException {
+        if (itr && (itrConfig == null ||
+                !resolversMatch(LispSimpleXmlReader.mapResolvers(itrConfig)))) {
+            return false;
+        }
+        return !etr || etrConfig != null &&
+                eidsMatch(LispSimpleXmlReader.localEids(etrConfig));
+    }
+
+    private boolean resolversMatch(List<String> running) {
+        Set<String> configured = Sets.newHashSet(running);
+        for (Map.Entry<String, Boolean> e : resolvers.entrySet()) {
+            if (configured.remove(e.getKey()) != e.getValue()) {
+                return false;
+            }
+        }
+        return !wholeItr || configured.isEmpty();
+    }
+
+    private boolean eidsMatch(List<LispMapRecord> running) {
+        Map<String, LispMapRecord> configured = Maps.newHashMap();
+        running.forEach(r -> configured.put(MapRecords.eidPrefix(r).toString(), r));
+
+        for (Map.Entry<String, LispMapRecord> e : eids.entrySet()) {
+            LispMapRecord intended = e.getValue();
+            LispMapRecord actual = configured.remove(e.getKey());
+            if (intended == null || actual == null) {
+                if (intended != actual) {
+                    return false;
+                }
+                continue;
+            }
+            Set<String> names = locators.get(e.getKey());
+            if (names == null ? !MapRecords.equivalent(intended, actual) :
+                    !sameLocators(intended, actual, names)) {
+                return false;
+            }
+        }
+        return !wholeEtr || configured.isEmpty();
+    }
+
+    /**
+     * Compares the named locators of two records of the same EID.
+     */
+    private static boolean sameLocators(LispMapRecord intended, LispMapRecord actual,
+                                        Set<String> names) {
+        Map<String, LispLocator> configured = Maps.newHashMap();
+        actual.getLocators().forEach(l -> configured.put(l.getLocatorAfi().toString(), l));
+
+        for (LispLocator l : intended.getLocators()) {
+            String name = l.getLocatorAfi().toString();
+            if (!names.contains(name)) {
+                continue;
+            }
+            LispLocator other = configured.get(name);
+            if (other == null || other.getPriority() != l.getPriority() ||
+                    other.getWeight() != l.getWeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-device, per-filter cache of get-config results. Entries expire
+ * after a time to live and the least recently used ones are evicted once
+ * the cache is full.
+ *
+ * Each device has a generation that every invalidation bumps. A result is
+ * only stored when the generation of its device is still the one read
+ * before the get-config was sent, so a read that overlapped a push never
+ * leaves the configuration from before the push in the cache.
+ */
+final class ConfigCache {
+
+    private volatile Cache<Map.Entry<DeviceId, String>, String> cache;
+    private volatile boolean enabled;
+    private final Map<DeviceId, AtomicLong> generations = Maps.newConcurrentMap();
+
+    ConfigCache(long ttlMs, int maxSize) {
+        configure(ttlMs, maxSize);
+    }
+
+    /**
+     * Rebuilds the cache with new limits, dropping all cached results.
+     * A non-positive time to live or size disables caching.
+     *
+     * @param ttlMs time to live of an entry in milliseconds
+     * @param maxSize maximum number of entries
+     */
+    void configure(long ttlMs, int maxSize) {
+        enabled = ttlMs > 0 && maxSize > 0;
+        cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(ttlMs, 0), TimeUnit.MILLISECONDS)
+                .maximumSize(Math.max(maxSize, 0))
+                .build();
+    }
+
+    /**
+     * Returns the cached result, loading it when absent or expired. A
+     * failed load is not cached, nor is a load overlapping an
+     * invalidation of the device.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @param loader loads the result from the device
+     * @return the get-config result
+     * @throws ExecutionException when the loader fails
+     */
+    String get(DeviceId deviceId, String filter, Callable<String> loader)
+            throws ExecutionException {
+        String cached = getIfPresent(deviceId, filter);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = generation(deviceId);
+        String config;
+        try {
+            config = loader.call();
+        } catch (Exception e) {
+            throw new ExecutionException(e);
+        }
+        put(deviceId, filter, config, generation);
+        return config;
+    }
+
+    /**
+     * Returns the cached result without loading it.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @return the cached result, or null
+     */
+    String getIfPresent(DeviceId deviceId, String filter) {
+        return enabled ? cache.getIfPresent(Maps.immutableEntry(deviceId, filter)) : null;
+    }
+
+    /**
+     * Returns the current generation of the device, to be read before a
+     * get-config whose result is stored with {@link #put}.
+     *
+     * @param deviceId the target device
+     * @return generation of the cached results of the device
+     */
+    long generation(DeviceId deviceId) {
+        return counter(deviceId).get();
+    }
+
+    /**
+     * Stores a freshly loaded result unless the device was invalidated
+     * since the given generation was read.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @param config the get-config result
+     * @param generation generation of the device read before the get-config
+     */
+    void put(DeviceId deviceId, String filter, String config, long generation) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = counter(deviceId);
+        if (counter.get() != generation) {
+            return;
+        }
+
+        Map.Entry<DeviceId, String> key = Maps.immutableEntry(deviceId, filter);
+        Cache<Map.Entry<DeviceId, String>, String> current = cache;
+        current.put(key, config);
+        // an invalidation between the check and the put may have missed it
+        if (counter.get() != generation) {
+            current.asMap().remove(key, config);
+        }
+    }
+
+    /**
+     * Drops every cached result of the device, and any result of a
+     * get-config still in flight.
+     *
+     * @param deviceId the device whose configuration changed
+     */
+    void invalidate(DeviceId deviceId) {
+        counter(deviceId).incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> k.getKey().equals(deviceId));
+    }
+
+    private AtomicLong counter(DeviceId deviceId) {
+        return generations.computeIfAbsent(deviceId, k -> new AtomicLong());
+    }
+}
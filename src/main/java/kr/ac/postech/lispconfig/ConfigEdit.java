@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+/**
+ * One configuration document to be written into a datastore of a device,
+ * either replacing its content (copy-config) or merged into it
+ * (edit-config). The document is copied out of the writer so that the
+ * writer's buffer can be reused for the next one.
+ */
+final class ConfigEdit {
+
+    private final boolean replace;
+    private final String document;
+    private final int entries;
+
+    private ConfigEdit(boolean replace, LispSimpleXmlWriter writer) {
+        this.replace = replace;
+        this.document = writer.toString();
+        this.entries = writer.entries();
+    }
+
+    /**
+     * Creates an edit replacing the datastore content with the document.
+     *
+     * @param writer writer holding the document
+     * @return copy-config edit
+     */
+    static ConfigEdit replace(LispSimpleXmlWriter writer) {
+        return new ConfigEdit(true, writer);
+    }
+
+    /**
+     * Creates an edit merging the document into the datastore.
+     *
+     * @param writer writer holding the document
+     * @return edit-config edit
+     */
+    static ConfigEdit edit(LispSimpleXmlWriter writer) {
+        return new ConfigEdit(false, writer);
+    }
+
+    boolean isReplace() {
+        return replace;
+    }
+
+    String document() {
+        return document;
+    }
+
+    int entries() {
+        return entries;
+    }
+}
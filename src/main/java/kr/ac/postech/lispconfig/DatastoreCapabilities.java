@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+/**
+ * Datastore related capabilities a NETCONF server announces in its hello
+ * message.
+ */
+final class DatastoreCapabilities {
+
+    private static final String CANDIDATE =
+            "urn:ietf:params:netconf:capability:candidate:1.0";
+    private static final String VALIDATE =
+            "urn:ietf:params:netconf:capability:validate:1.";
+    private static final String CONFIRMED_COMMIT =
+            "urn:ietf:params:netconf:capability:confirmed-commit:1.";
+
+    static final DatastoreCapabilities NONE =
+            new DatastoreCapabilities(false, false, false);
+
+    private final boolean candidate;
+    private final boolean validate;
+    private final boolean confirmedCommit;
+
+    private DatastoreCapabilities(boolean candidate, boolean validate,
+                                  boolean confirmedCommit) {
+        this.candidate = candidate;
+        this.validate = validate;
+        this.confirmedCommit = confirmedCommit;
+    }
+
+    /**
+     * Parses the capabilities out of the hello message of a server.
+     *
+     * @param hello hello message, may be null
+     * @return capabilities of the server
+     */
+    static DatastoreCapabilities parse(String hello) {
+        if (hello == null) {
+            return NONE;
+        }
+        return new DatastoreCapabilities(hello.contains(CANDIDATE),
+                                         hello.contains(VALIDATE),
+                                         hello.contains(CONFIRMED_COMMIT));
+    }
+
+    boolean candidate() {
+        return candidate;
+    }
+
+    boolean validate() {
+        return validate;
+    }
+
+    boolean confirmedCommit() {
+        return confirmedCommit;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import org.onosproject.net.DeviceId;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Signals that a configuration change was refused because the device
+ * exceeded its request rate or has too many changes waiting to be pushed.
+ */
+public class DeviceBusyException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    /**
+     * Creates an exception for the given device.
+     *
+     * @param deviceId the saturated device
+     * @param retryAfterMillis milliseconds after which a retry may be admitted
+     */
+    public DeviceBusyException(DeviceId deviceId, long retryAfterMillis) {
+        super(deviceId + " is busy; retry after " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns the number of milliseconds after which a retry may be admitted.
+     *
+     * @return milliseconds to wait
+     */
+    public long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
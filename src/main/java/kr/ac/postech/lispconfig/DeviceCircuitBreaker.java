@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-device circuit breaker of NETCONF calls.
+ *
+ * After a number of consecutive failed calls the circuit of the device
+ * opens and calls fail at once instead of waiting for the NETCONF timeout
+ * of a device known to be bad. Once the open period elapsed, a single
+ * call is let through as a probe; its success closes the circuit, its
+ * failure opens it again.
+ */
+final class DeviceCircuitBreaker {
+
+    /**
+     * State of the circuit of a device.
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Map<DeviceId, Circuit> circuits = Maps.newConcurrentMap();
+
+    private volatile int failureThreshold;
+    private volatile long openNanos;
+
+    DeviceCircuitBreaker(int failureThreshold, long openMs) {
+        configure(failureThreshold, openMs);
+    }
+
+    /**
+     * Sets when circuits open and for how long.
+     *
+     * @param failureThreshold consecutive failures opening the circuit of a
+     *                         device; 0 disables the breaker
+     * @param openMs milliseconds before an open circuit lets a probe through
+     */
+    void configure(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+    }
+
+    /**
+     * Returns whether a call to the device may be made now. A true result
+     * must be followed by {@link #success} or {@link #failure}.
+     *
+     * @param deviceId the device
+     * @return true unless the circuit of the device is open
+     */
+    boolean allow(DeviceId deviceId) {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        Circuit circuit = circuits.get(deviceId);
+        return circuit == null || circuit.allow(openNanos);
+    }
+
+    /**
+     * Records a call the device answered.
+     *
+     * @param deviceId the device
+     */
+    void success(DeviceId deviceId) {
+        Circuit circuit = circuits.get(deviceId);
+        if (circuit != null && circuit.success()) {
+            log.info("Circuit of {} closed", deviceId);
+        }
+    }
+
+    /**
+     * Records a call which failed after all of its attempts.
+     *
+     * @param deviceId the device
+     */
+    void failure(DeviceId deviceId) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (circuits.computeIfAbsent(deviceId, id -> new Circuit())
+                .failure(failureThreshold)) {
+            log.warn("Circuit of {} opened; calls fail at once for {} ms", deviceId,
+                     TimeUnit.NANOSECONDS.toMillis(openNanos));
+        }
+    }
+
+    /**
+     * Closes the circuit of the device, e.g. when it reconnected.
+     *
+     * @param deviceId the device
+     */
+    void reset(DeviceId deviceId) {
+        circuits.remove(deviceId);
+    }
+
+    /**
+     * Returns the state of the circuit of the device.
+     *
+     * @param deviceId the device
+     * @return circuit state
+     */
+    State state(DeviceId deviceId) {
+        Circuit circuit = circuits.get(deviceId);
+        return circuit == null ? State.CLOSED : circuit.state();
+    }
+
+    /**
+     * Circuit of one device.
+     */
+    private static final class Circuit {
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+
+        synchronized boolean allow(long openNanos) {
+            switch (state) {
+                case OPEN:
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        return false;
+                    }
+                    // let this call through as the probe
+                    state = State.HALF_OPEN;
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * @return true when the call closed an open circuit
+         */
+        synchronized boolean success() {
+            boolean closed = state != State.CLOSED;
+            state = State.CLOSED;
+            failures = 0;
+            return closed;
+        }
+
+        /**
+         * @return true when the call opened the circuit
+         */
+        synchronized boolean failure(int threshold) {
+            failures++;
+            if (state == State.HALF_OPEN || state == State.CLOSED && failures >= threshold) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+
+/**
+ * A NetConf device of an inventory to be connected, together with the
+ * initial ITR and ETR configuration to push once it is up.
+ */
+public final class DeviceInventoryEntry {
+
+    private final String address;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final List<String> mapResolvers;
+    private final List<LispMapRecord> records;
+
+    /**
+     * Creates an inventory entry.
+     *
+     * @param address IP address of the NetConf device
+     * @param port NetConf port of the device
+     * @param username username for NetConf
+     * @param password password for NetConf
+     * @param mapResolvers initial map resolver addresses
+     * @param records initial local EID-RLOC map records
+     */
+    public DeviceInventoryEntry(String address, int port,
+                                String username, String password,
+                                List<String> mapResolvers,
+                                List<LispMapRecord> records) {
+        this.address = address;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.mapResolvers = ImmutableList.copyOf(mapResolvers);
+        this.records = ImmutableList.copyOf(records);
+    }
+
+    /**
+     * Returns the identifier the device gets once it is connected.
+     *
+     * @return device identifier
+     */
+    public DeviceId deviceId() {
+        return DeviceId.deviceId("netconf:" + address + ":" + port);
+    }
+
+    public String address() {
+        return address;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String password() {
+        return password;
+    }
+
+    public List<String> mapResolvers() {
+        return mapResolvers;
+    }
+
+    public List<LispMapRecord> records() {
+        return records;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("address", address)
+                .add("port", port)
+                .add("username", username)
+                .add("mapResolvers", mapResolvers)
+                .add("records", records.size())
+                .toString();
+    }
+}
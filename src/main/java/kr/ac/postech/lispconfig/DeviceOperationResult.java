@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.net.DeviceId;
+
+/**
+ * Result of an operation applied to one device of a fleet.
+ */
+public final class DeviceOperationResult {
+
+    /**
+     * Outcome of the operation on the device.
+     */
+    public enum Status {
+        /** The device accepted the change. */
+        SUCCEEDED,
+        /** The change was not applied to the device. */
+        FAILED,
+        /** The operation was stopped before reaching the device. */
+        SKIPPED
+    }
+
+    private final DeviceId deviceId;
+    private final Status status;
+    private final long elapsedMillis;
+    private final String error;
+
+    /**
+     * Creates a device operation result.
+     *
+     * @param deviceId the device
+     * @param status outcome of the operation
+     * @param elapsedMillis time spent on the device in milliseconds
+     * @param error reason of the failure, or null
+     */
+    public DeviceOperationResult(DeviceId deviceId, Status status,
+                                 long elapsedMillis, String error) {
+        this.deviceId = deviceId;
+        this.status = status;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    public DeviceId deviceId() {
+        return deviceId;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("deviceId", deviceId)
+                .add("status", status)
+                .add("elapsedMillis", elapsedMillis)
+                .add("error", error)
+                .toString();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of configuration changes, per device: a token bucket
+ * limiting the rate of requests and a bound on the number of changes
+ * waiting to be pushed.
+ */
+final class DeviceRateLimiter {
+
+    // suggested wait when the queue of a device is full
+    private static final long QUEUE_FULL_RETRY_MS = 1000;
+
+    private final Map<DeviceId, Bucket> buckets = Maps.newConcurrentMap();
+    private final Map<DeviceId, AtomicLong> rejections = Maps.newConcurrentMap();
+
+    private volatile double ratePerSec;
+    private volatile int burst;
+    private volatile int maxQueued;
+
+    DeviceRateLimiter(double ratePerSec, int burst, int maxQueued) {
+        this.ratePerSec = ratePerSec;
+        this.burst = burst;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Sets the limits; buckets keep their tokens up to the new burst size.
+     *
+     * @param ratePerSec requests per second; 0 disables the rate limit
+     * @param burst number of requests admitted at once
+     * @param maxQueued maximum number of queued changes; 0 for no bound
+     */
+    void setLimits(double ratePerSec, int burst, int maxQueued) {
+        this.ratePerSec = ratePerSec;
+        this.burst = Math.max(1, burst);
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Takes a token of the device when it is not saturated.
+     *
+     * @param deviceId the device
+     * @param queued number of changes of the device waiting to be pushed
+     * @return 0 when admitted, otherwise milliseconds after which a retry
+     *         may be admitted
+     */
+    long tryAcquire(DeviceId deviceId, int queued) {
+        long wait = 0;
+        if (maxQueued > 0 && queued >= maxQueued) {
+            wait = QUEUE_FULL_RETRY_MS;
+        } else if (ratePerSec > 0) {
+            wait = buckets.computeIfAbsent(deviceId, id -> new Bucket())
+                    .tryTake(ratePerSec, burst);
+        }
+        if (wait > 0) {
+            rejections.computeIfAbsent(deviceId, id -> new AtomicLong())
+                    .incrementAndGet();
+        }
+        return wait;
+    }
+
+    /**
+     * Returns the number of requests of the device refused so far.
+     *
+     * @param deviceId the device
+     * @return number of refused requests
+     */
+    long rejected(DeviceId deviceId) {
+        AtomicLong count = rejections.get(deviceId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Returns the number of refused requests of every device which had
+     * some refused.
+     *
+     * @return number of refused requests, by device
+     */
+    Map<DeviceId, Long> rejected() {
+        Map<DeviceId, Long> counts = Maps.newHashMap();
+        rejections.forEach((id, count) -> counts.put(id, count.get()));
+        return counts;
+    }
+
+    /**
+     * Token bucket of one device, refilled lazily when a token is taken.
+     */
+    private static final class Bucket {
+        private double tokens = -1;
+        private long refilled = System.nanoTime();
+
+        synchronized long tryTake(double ratePerSec, int burst) {
+            long now = System.nanoTime();
+            if (tokens < 0) {
+                tokens = burst;
+            } else {
+                tokens = Math.min(burst, tokens +
+                        (now - refilled) * ratePerSec / TimeUnit.SECONDS.toNanos(1));
+            }
+            refilled = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / ratePerSec));
+        }
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Per-device queue which coalesces configuration changes arriving within
+ * a time window, or up to a maximum batch size, into device pushes of at
+ * most that many entries each.
+ *
+ * Every device has a lane of its own state and lock. At most one push per
+ * device is in flight; changes queued meanwhile are pushed by the same
+ * lane right after it, so the pushes of a device are strictly ordered
+ * while different devices are queued and pushed in parallel.
+ *
+ * Entries whose push failed stay unconfirmed and form the outbox of the
+ * device, which {@link #replay(DeviceId)} pushes again once the device is
+ * back. Pushes are built from the current state of the entries, so an
+ * entry changed many times while the device was away is sent only once.
+ */
+final class DeviceUpdateQueue {
+
+    /**
+     * Pushes a batch of pending changes to a device.
+     */
+    interface Pusher {
+        /**
+         * Pushes the changes to the device.
+         *
+         * @param deviceId the target device
+         * @param changes changed entries of the device
+         * @return future completed with true when the device accepted the changes
+         */
+        CompletableFuture<Boolean> push(DeviceId deviceId, PendingChanges changes);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final Pusher pusher;
+    private final ConcurrentMap<DeviceId, Lane> lanes = Maps.newConcurrentMap();
+
+    private volatile long windowMs;
+    private volatile int maxBatchSize;
+
+    /**
+     * Creates a queue pushing on the given executor.
+     *
+     * @param executor executor running the pushes
+     * @param timer scheduler only used to close the time windows
+     * @param pusher pusher sending the changes to the devices
+     * @param windowMs time window in milliseconds
+     * @param maxBatchSize maximum number of entries pushed at once
+     */
+    DeviceUpdateQueue(Executor executor, ScheduledExecutorService timer,
+                      Pusher pusher, long windowMs, int maxBatchSize) {
+        this.executor = executor;
+        this.timer = timer;
+        this.pusher = pusher;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void setWindowMs(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Queues changed entries of a device.
+     *
+     * @param deviceId the target device
+     * @param resolvers changed map resolver addresses
+     * @param eids changed local EID ids
+     * @return future completed with the result of the push carrying the changes
+     */
+    CompletableFuture<Boolean> submit(DeviceId deviceId,
+                                      Collection<String> resolvers,
+                                      Collection<String> eids) {
+        return submit(deviceId, resolvers, eids, ImmutableMap.of());
+    }
+
+    /**
+     * Queues changed entries of a device, some local EIDs of which changed
+     * only in the given locators.
+     *
+     * @param deviceId the target device
+     * @param resolvers changed map resolver addresses
+     * @param eids changed local EID ids
+     * @param locators names of the changed locators, by local EID id
+     * @return future completed with the result of the pushes carrying the changes
+     */
+    CompletableFuture<Boolean> submit(DeviceId deviceId,
+                                      Collection<String> resolvers,
+                                      Collection<String> eids,
+                                      Map<String, Set<String>> locators) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        enqueue(deviceId, resolvers, eids, locators,
+                pending -> pending.addWaiter(resolvers, eids, future));
+        return future;
+    }
+
+    /**
+     * Queues changed local EIDs of a device with a future for each of them,
+     * so that the caller learns which of the EIDs were pushed.
+     *
+     * @param deviceId the target device
+     * @param eids changed local EID ids
+     * @param locators names of the changed locators, by local EID id
+     * @return futures completed with the result of the push carrying each
+     *         local EID, by id
+     */
+    Map<String, CompletableFuture<Boolean>> submitEach(DeviceId deviceId,
+                                                       Collection<String> eids,
+                                                       Map<String, Set<String>> locators) {
+        Map<String, CompletableFuture<Boolean>> futures = Maps.newLinkedHashMap();
+        eids.forEach(id -> futures.put(id, new CompletableFuture<>()));
+        enqueue(deviceId, ImmutableList.of(), eids, locators,
+                pending -> futures.forEach((id, future) -> pending.addWaiter(
+                        ImmutableList.of(), ImmutableList.of(id), future)));
+        return futures;
+    }
+
+    /**
+     * Adds changed entries and their waiters to the pending changes of the
+     * device, and flushes them now or at the end of the time window.
+     */
+    private void enqueue(DeviceId deviceId, Collection<String> resolvers,
+                         Collection<String> eids, Map<String, Set<String>> locators,
+                         Consumer<PendingChanges> waiters) {
+        Lane lane = lane(deviceId);
+        boolean flushNow;
+
+        synchronized (lane) {
+            boolean first = lane.pending == null;
+            if (first) {
+                lane.pending = new PendingChanges();
+            }
+            lane.pending.add(resolvers, eids, locators, null);
+            waiters.accept(lane.pending);
+            lane.markUnconfirmed(lane.resolvers, resolvers);
+            lane.markUnconfirmed(lane.eids, eids);
+
+            flushNow = windowMs <= 0 || lane.pending.size() >= maxBatchSize;
+            if (first && !flushNow) {
+                timer.schedule(() -> executor.execute(() -> flush(deviceId)),
+                               windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) {
+            executor.execute(() -> flush(deviceId));
+        }
+    }
+
+    /**
+     * Queues a replacement of the whole configuration of a device and
+     * pushes it right away, in order with the other pushes of the device.
+     *
+     * @param deviceId the target device
+     * @return future completed with the result of the push
+     */
+    CompletableFuture<Boolean> submitFullSync(DeviceId deviceId) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Lane lane = lane(deviceId);
+
+        synchronized (lane) {
+            if (lane.pending == null) {
+                lane.pending = new PendingChanges();
+            }
+            lane.pending.requestFullSync(future);
+        }
+        executor.execute(() -> flush(deviceId));
+
+        return future;
+    }
+
+    /**
+     * Pushes every pending change of the device right away, in parts of at
+     * most the maximum batch size.
+     *
+     * @param deviceId the target device
+     */
+    void flush(DeviceId deviceId) {
+        Lane lane = lane(deviceId);
+        synchronized (lane) {
+            if (lane.inFlight) {
+                // the lane in flight picks up the pending changes
+                return;
+            }
+            lane.inFlight = true;
+        }
+        drain(deviceId, lane);
+    }
+
+    /**
+     * Pushes the pending changes of a lane in flight, and once they are
+     * pushed, the changes queued meanwhile. No thread waits for the device
+     * in between.
+     */
+    private void drain(DeviceId deviceId, Lane lane) {
+        PendingChanges changes;
+        long flushed;
+        synchronized (lane) {
+            changes = lane.pending;
+            lane.pending = null;
+            flushed = lane.sequence;
+            if (changes == null) {
+                lane.inFlight = false;
+                return;
+            }
+        }
+
+        Iterator<PendingChanges> parts = changes.split(maxBatchSize).iterator();
+        PendingChanges failed = new PendingChanges();
+        pushParts(deviceId, lane, parts, flushed, failed).whenComplete((v, error) -> {
+            changes.complete(error == null ? failed : changes);
+            executor.execute(() -> drain(deviceId, lane));
+        });
+    }
+
+    /**
+     * Pushes the remaining parts one after the other, collecting the parts
+     * the device did not accept.
+     */
+    private CompletableFuture<Void> pushParts(DeviceId deviceId, Lane lane,
+                                              Iterator<PendingChanges> parts,
+                                              long flushed, PendingChanges failed) {
+        if (!parts.hasNext()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        PendingChanges part = parts.next();
+        return push(deviceId, lane, part, flushed).thenCompose(pushed -> {
+            if (!pushed) {
+                failed.addAll(part);
+            }
+            return pushParts(deviceId, lane, parts, flushed, failed);
+        });
+    }
+
+    /**
+     * Pushes one part of the pending changes and confirms its entries when
+     * the device accepted them.
+     */
+    private CompletableFuture<Boolean> push(DeviceId deviceId, Lane lane,
+                                            PendingChanges part, long flushed) {
+        CompletableFuture<Boolean> future;
+        try {
+            future = pusher.push(deviceId, part);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        return future.handle((result, error) -> {
+            if (error != null) {
+                log.warn("Failed to push {} changes to {}", part.size(),
+                         deviceId, error);
+            }
+            boolean pushed = error == null && result;
+            synchronized (lane) {
+                if (part.isFullSync()) {
+                    lane.unsynced = !pushed;
+                }
+                if (pushed) {
+                    lane.confirm(lane.resolvers, part.isFullSync() ?
+                            null : part.resolvers(), flushed);
+                    lane.confirm(lane.eids, part.isFullSync() ?
+                            null : part.eids(), flushed);
+                }
+            }
+            return pushed;
+        });
+    }
+
+    /**
+     * Pushes the outbox of the device, i.e. every entry whose latest change
+     * was not confirmed and a full sync which failed, right away.
+     *
+     * @param deviceId the device
+     * @return future completed with the result of the push; true when the
+     *         outbox is empty
+     */
+    CompletableFuture<Boolean> replay(DeviceId deviceId) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Lane lane = lanes.get(deviceId);
+        if (lane == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        synchronized (lane) {
+            if (lane.resolvers.isEmpty() && lane.eids.isEmpty() && !lane.unsynced) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            if (lane.pending == null) {
+                lane.pending = new PendingChanges();
+            }
+            if (lane.unsynced) {
+                lane.pending.requestFullSync(future);
+            } else {
+                // the entries keep their marks, so a newer submission of
+                // any of them still waits for its own push
+                lane.pending.add(ImmutableSet.copyOf(lane.resolvers.keySet()),
+                                 ImmutableSet.copyOf(lane.eids.keySet()),
+                                 future);
+            }
+            log.info("Replaying {} map resolvers and {} local EIDs{} to {}",
+                     lane.resolvers.size(), lane.eids.size(),
+                     lane.unsynced ? " in a full sync" : "", deviceId);
+        }
+        executor.execute(() -> flush(deviceId));
+
+        return future;
+    }
+
+    /**
+     * Returns whether changes of the device wait for a push or are being
+     * pushed.
+     *
+     * @param deviceId the device
+     * @return true while a push of the device is pending or in flight
+     */
+    boolean isBusy(DeviceId deviceId) {
+        Lane lane = lanes.get(deviceId);
+        if (lane == null) {
+            return false;
+        }
+        synchronized (lane) {
+            return lane.pending != null || lane.inFlight;
+        }
+    }
+
+    /**
+     * Returns the number of changed entries of the device waiting for a push.
+     *
+     * @param deviceId the device
+     * @return number of queued entries
+     */
+    int depth(DeviceId deviceId) {
+        Lane lane = lanes.get(deviceId);
+        if (lane == null) {
+            return 0;
+        }
+        synchronized (lane) {
+            return lane.pending == null ? 0 : lane.pending.size();
+        }
+    }
+
+    /**
+     * Returns the number of changed entries of all devices waiting for a push.
+     *
+     * @return number of queued entries
+     */
+    int depth() {
+        return lanes.keySet().stream().mapToInt(this::depth).sum();
+    }
+
+    /**
+     * Returns the map resolver addresses of the device whose latest change
+     * has not been confirmed by the device yet.
+     *
+     * @param deviceId the device
+     * @return unconfirmed map resolver addresses
+     */
+    Set<String> unconfirmedResolvers(DeviceId deviceId) {
+        Lane lane = lanes.get(deviceId);
+        if (lane == null) {
+            return ImmutableSet.of();
+        }
+        synchronized (lane) {
+            return ImmutableSet.copyOf(lane.resolvers.keySet());
+        }
+    }
+
+    /**
+     * Returns the local EID ids of the device whose latest change has not
+     * been confirmed by the device yet.
+     *
+     * @param deviceId the device
+     * @return unconfirmed local EID ids
+     */
+    Set<String> unconfirmedEids(DeviceId deviceId) {
+        Lane lane = lanes.get(deviceId);
+        if (lane == null) {
+            return ImmutableSet.of();
+        }
+        synchronized (lane) {
+            return ImmutableSet.copyOf(lane.eids.keySet());
+        }
+    }
+
+    /**
+     * Fails every pending change. Used when the queue is shut down.
+     */
+    void cancelAll() {
+        lanes.values().forEach(lane -> {
+            PendingChanges changes;
+            synchronized (lane) {
+                changes = lane.pending;
+                lane.pending = null;
+            }
+            if (changes != null) {
+                changes.complete(changes);
+            }
+        });
+    }
+
+    private Lane lane(DeviceId deviceId) {
+        return lanes.computeIfAbsent(deviceId, k -> new Lane());
+    }
+
+    /**
+     * Queue state of one device; guarded by the lane itself.
+     */
+    private static final class Lane {
+        private PendingChanges pending;
+        // whether a push of the lane is in flight
+        private boolean inFlight;
+        // entries submitted but not yet confirmed by a successful push, with
+        // the sequence number of their latest submission
+        private final Map<String, Long> resolvers = Maps.newHashMap();
+        private final Map<String, Long> eids = Maps.newHashMap();
+        private long sequence;
+        // whether the latest full sync failed
+        private boolean unsynced;
+
+        private void markUnconfirmed(Map<String, Long> marks, Collection<String> keys) {
+            if (keys.isEmpty()) {
+                return;
+            }
+            long seq = ++sequence;
+            keys.forEach(k -> marks.put(k, seq));
+        }
+
+        /**
+         * Confirms the given entries, or all entries when keys is null,
+         * unless they were submitted again after the push was built.
+         */
+        private void confirm(Map<String, Long> marks, Collection<String> keys,
+                             long flushed) {
+            if (keys == null) {
+                marks.values().removeIf(seq -> seq <= flushed);
+            } else {
+                keys.forEach(k -> marks.computeIfPresent(
+                        k, (key, seq) -> seq <= flushed ? null : seq));
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Detects configuration changed on a device behind the back of the
+ * controller and queues the entries which differ from the intended state.
+ *
+ * The running configuration and the intended state of a device are first
+ * reduced to a digest; when it equals the digest of the last check which
+ * found the device in sync, nothing is parsed or compared.
+ */
+final class DriftReconciler {
+
+    /**
+     * Reads a filtered part of the running configuration of a device.
+     */
+    interface ConfigReader {
+        CompletableFuture<String> read(DeviceId deviceId, String filter);
+    }
+
+    /**
+     * Pushes the intended state of the given entries to a device.
+     */
+    interface Corrector {
+        CompletableFuture<Boolean> correct(DeviceId deviceId,
+                                           Collection<String> resolvers,
+                                           Collection<String> eids);
+    }
+
+    private static final String ITR_ROOT = "itr-cfg";
+    private static final String ETR_ROOT = "etr-cfg";
+    private static final String ITR_FILTER = "<" + ITR_ROOT + "/>";
+    private static final String ETR_FILTER = "<" + ETR_ROOT + "/>";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final LispConfigStore store;
+    private final ConfigReader reader;
+    private final Corrector corrector;
+
+    // digest of the last check of each device which found it in sync
+    private final Map<DeviceId, Long> syncedDigests = Maps.newConcurrentMap();
+
+    DriftReconciler(LispConfigStore store, ConfigReader reader, Corrector corrector) {
+        this.store = store;
+        this.reader = reader;
+        this.corrector = corrector;
+    }
+
+    /**
+     * Compares the running configuration of the device with its intended
+     * state and queues the differing entries. Only the ITR and ETR parts
+     * managed by the store are checked.
+     *
+     * @param deviceId the device
+     * @return future completed with false when the device could not be read
+     *         or corrected
+     */
+    CompletableFuture<Boolean> reconcile(DeviceId deviceId) {
+        boolean itr = store.isItrManaged(deviceId);
+        boolean etr = store.isEtrManaged(deviceId);
+        if (!itr && !etr) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return read(deviceId, itr, ITR_FILTER)
+                .thenCompose(itrReply -> read(deviceId, etr, ETR_FILTER)
+                        .thenApply(etrReply -> compare(deviceId, itr, etr,
+                                                       itrReply, etrReply)))
+                .handle((correction, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to check the configuration of {}",
+                                 deviceId, error);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return correction;
+                })
+                .thenCompose(correction -> correction);
+    }
+
+    /**
+     * Reads a part of the running configuration, or nothing when the part
+     * is not managed.
+     */
+    private CompletableFuture<String> read(DeviceId deviceId, boolean managed,
+                                           String filter) {
+        return managed ? reader.read(deviceId, filter) :
+                CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Compares the managed parts of the running configuration with the
+     * intended state and queues the differing entries.
+     */
+    private CompletableFuture<Boolean> compare(DeviceId deviceId, boolean itr,
+                                               boolean etr, String itrReply,
+                                               String etrReply) {
+        try {
+            String itrConfig = itr ? configBody(itrReply, ITR_ROOT) : "";
+            String etrConfig = etr ? configBody(etrReply, ETR_ROOT) : "";
+            List<String> resolvers = store.getMapResolvers(deviceId);
+            List<LispMapRecord> records = store.getLocalEids(deviceId);
+
+            long digest = digest(itrConfig, etrConfig, resolvers, records);
+            Long synced = syncedDigests.get(deviceId);
+            if (synced != null && synced == digest) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            Set<String> changedResolvers = itr ?
+                    diffResolvers(resolvers, LispSimpleXmlReader.mapResolvers(itrConfig)) :
+                    ImmutableSet.of();
+            Set<String> changedEids = etr ?
+                    diffEids(records, LispSimpleXmlReader.localEids(etrConfig)) :
+                    ImmutableSet.of();
+            if (changedResolvers.isEmpty() && changedEids.isEmpty()) {
+                syncedDigests.put(deviceId, digest);
+                return CompletableFuture.completedFuture(true);
+            }
+
+            syncedDigests.remove(deviceId);
+            log.info("Configuration of {} drifted: correcting {} map resolvers " +
+                             "and {} local EIDs", deviceId,
+                     changedResolvers.size(), changedEids.size());
+            return corrector.correct(deviceId, changedResolvers, changedEids);
+        } catch (XMLStreamException e) {
+            log.warn("Failed to check the configuration of {}", deviceId, e);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Forgets the device, so that its next check compares in full.
+     *
+     * @param deviceId the device
+     */
+    void forget(DeviceId deviceId) {
+        syncedDigests.remove(deviceId);
+    }
+
+    /**
+     * Returns the addresses configured on only one side.
+     */
+    private static Set<String> diffResolvers(List<String> intended, List<String> running) {
+        return ImmutableSet.copyOf(Sets.symmetricDifference(
+                ImmutableSet.copyOf(intended), ImmutableSet.copyOf(running)));
+    }
+
+    /**
+     * Returns the ids of the local EIDs configured on only one side or
+     * configured differently.
+     */
+    private static Set<String> diffEids(List<LispMapRecord> intended,
+                                        List<LispMapRecord> running) {
+        Map<IpPrefix, LispMapRecord> runningByPrefix = Maps.newHashMap();
+        running.forEach(r -> runningByPrefix.put(MapRecords.eidPrefix(r), r));
+
+        Set<String> changed = Sets.newHashSet();
+        for (LispMapRecord record : intended) {
+            IpPrefix prefix = MapRecords.eidPrefix(record);
+            LispMapRecord other = runningByPrefix.remove(prefix);
+            if (other == null || !MapRecords.equivalent(record, other)) {
+                changed.add(prefix.toString());
+            }
+        }
+        runningByPrefix.keySet().forEach(p -> changed.add(p.toString()));
+        return changed;
+    }
+
+    /**
+     * Returns the part of a get-config reply from the opening to the
+     * closing root element, leaving out the message id of the reply.
+     */
+    private static String configBody(String reply, String root) {
+        if (reply == null) {
+            return "";
+        }
+        int start = reply.indexOf("<" + root);
+        int end = reply.lastIndexOf("</" + root + ">");
+        if (start < 0) {
+            return "";
+        }
+        if (end < start) {
+            // an empty root element, e.g. <itr-cfg/>
+            return reply.substring(start, reply.indexOf('>', start) + 1);
+        }
+        return reply.substring(start, end + root.length() + 3);
+    }
+
+    private static long digest(String itrConfig, String etrConfig,
+                               List<String> resolvers, List<LispMapRecord> records) {
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putString(itrConfig, StandardCharsets.UTF_8)
+                .putString(etrConfig, StandardCharsets.UTF_8);
+        resolvers.forEach(r -> hasher.putString(r, StandardCharsets.UTF_8));
+        for (LispMapRecord record : records) {
+            hasher.putString(MapRecords.eidPrefix(record).toString(), StandardCharsets.UTF_8)
+                    .putInt(record.getRecordTtl());
+            for (LispLocator l : record.getLocators()) {
+                hasher.putString(l.getLocatorAfi().toString(), StandardCharsets.UTF_8)
+                        .putByte(l.getPriority())
+                        .putByte(l.getWeight());
+            }
+        }
+        return hasher.hash().asLong();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.DeviceOperationResult.Status;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Applies an asynchronous operation to a set of devices, keeping at most
+ * a given number of devices in flight. Once the number of failed devices
+ * reaches the failure threshold, devices not started yet are skipped.
+ */
+final class FleetOperation {
+
+    private final List<DeviceId> devices;
+    private final Function<DeviceId, CompletableFuture<Boolean>> operation;
+    private final int concurrency;
+    private final int maxFailures;
+
+    private final DeviceOperationResult[] results;
+    private final CompletableFuture<List<DeviceOperationResult>> future =
+            new CompletableFuture<>();
+
+    // guarded by this
+    private int next;
+    private int completed;
+    private int failures;
+
+    /**
+     * Creates a fleet operation.
+     *
+     * @param devices target devices
+     * @param operation operation applied to each device
+     * @param concurrency maximum number of devices in flight
+     * @param maxFailures number of failed devices after which the remaining
+     *                    devices are skipped; 0 never stops
+     */
+    FleetOperation(List<DeviceId> devices,
+                   Function<DeviceId, CompletableFuture<Boolean>> operation,
+                   int concurrency, int maxFailures) {
+        this.devices = ImmutableList.copyOf(devices);
+        this.operation = operation;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxFailures = maxFailures;
+        this.results = new DeviceOperationResult[devices.size()];
+    }
+
+    /**
+     * Starts the operation.
+     *
+     * @return future of the per-device results, in the order of the devices
+     */
+    CompletableFuture<List<DeviceOperationResult>> start() {
+        if (devices.isEmpty()) {
+            future.complete(ImmutableList.of());
+            return future;
+        }
+        int initial = Math.min(concurrency, devices.size());
+        for (int i = 0; i < initial; i++) {
+            startNext();
+        }
+        return future;
+    }
+
+    private void startNext() {
+        int index;
+        boolean done = false;
+        synchronized (this) {
+            if (maxFailures > 0 && failures >= maxFailures) {
+                while (next < devices.size()) {
+                    int skipped = next++;
+                    done = record(skipped, new DeviceOperationResult(
+                            devices.get(skipped), Status.SKIPPED, 0, null));
+                }
+                index = -1;
+            } else if (next < devices.size()) {
+                index = next++;
+            } else {
+                index = -1;
+            }
+        }
+        if (done) {
+            future.complete(ImmutableList.copyOf(results));
+        }
+        if (index < 0) {
+            return;
+        }
+
+        DeviceId deviceId = devices.get(index);
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> result;
+        try {
+            result = operation.apply(deviceId);
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((success, error) -> {
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            DeviceOperationResult r;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ?
+                        error.getCause() : error;
+                r = new DeviceOperationResult(deviceId, Status.FAILED, elapsed,
+                                              String.valueOf(cause.getMessage()));
+            } else {
+                r = new DeviceOperationResult(
+                        deviceId, success ? Status.SUCCEEDED : Status.FAILED,
+                        elapsed, null);
+            }
+            boolean finished;
+            synchronized (this) {
+                finished = record(index, r);
+            }
+            if (finished) {
+                future.complete(ImmutableList.copyOf(results));
+            } else {
+                startNext();
+            }
+        });
+    }
+
+    /**
+     * Records the result of a device; called with this held.
+     *
+     * @return true when every device has a result
+     */
+    private boolean record(int index, DeviceOperationResult result) {
+        results[index] = result;
+        if (result.status() == Status.FAILED) {
+            failures++;
+        }
+        return ++completed == results.length;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * JSON representation of the map resolvers and local EIDs of a device,
+ * and of operation results and statistics.
+ * Local EID records use the same field names as the bulk local-db request.
+ */
+public final class LispConfigJson {
+
+    private LispConfigJson() {
+    }
+
+    /**
+     * Encodes the map resolvers of a device.
+     *
+     * @param mapper object mapper
+     * @param deviceId the device
+     * @param resolvers map resolver addresses
+     * @param unconfirmed addresses not yet confirmed by the device, or null
+     *                    to omit the pending flag
+     * @return JSON object of the map resolvers
+     */
+    public static ObjectNode mapResolvers(ObjectMapper mapper, DeviceId deviceId,
+                                          Collection<String> resolvers,
+                                          Set<String> unconfirmed) {
+        ObjectNode node = mapper.createObjectNode().put("deviceId", deviceId.toString());
+        ArrayNode arrayNode = node.putArray("mapResolvers");
+
+        resolvers.forEach(r -> {
+            ObjectNode resolverNode = arrayNode.addObject().put("address", r);
+            if (unconfirmed != null) {
+                resolverNode.put("pending", unconfirmed.contains(r));
+            }
+        });
+
+        return node;
+    }
+
+    /**
+     * Encodes the local EIDs of a device.
+     *
+     * @param mapper object mapper
+     * @param deviceId the device
+     * @param records local EID-RLOC map records
+     * @param unconfirmed local EID ids not yet confirmed by the device, or
+     *                    null to omit the pending flag
+     * @return JSON object of the local EIDs
+     */
+    public static ObjectNode localEids(ObjectMapper mapper, DeviceId deviceId,
+                                       Collection<LispMapRecord> records,
+                                       Set<String> unconfirmed) {
+        ObjectNode node = mapper.createObjectNode().put("deviceId", deviceId.toString());
+        ArrayNode arrayNode = node.putArray("records");
+
+        records.forEach(r -> {
+            ObjectNode recordNode = localEid(arrayNode.addObject(), r);
+            if (unconfirmed != null) {
+                recordNode.put("pending", unconfirmed.contains(
+                        MapRecords.eidPrefix(r).toString()));
+            }
+        });
+
+        return node;
+    }
+
+    /**
+     * Writes the fields of a local EID record into the given node.
+     *
+     * @param node JSON object to fill
+     * @param record local EID-RLOC map record
+     * @return the given node
+     */
+    public static ObjectNode localEid(ObjectNode node, LispMapRecord record) {
+        node.put("eid", record.getEidPrefixAfi().toString());
+        node.put("eid_mask", record.getMaskLength() & 0xff);
+        node.put("ttl", record.getRecordTtl());
+
+        ArrayNode locators = node.putArray("locators");
+        record.getLocators().forEach(l -> locators.addObject()
+                .put("rloc", l.getLocatorAfi().toString())
+                .put("priority", l.getPriority() & 0xff)
+                .put("weight", l.getWeight() & 0xff));
+
+        return node;
+    }
+
+    /**
+     * Encodes the per-device results of a fleet operation.
+     *
+     * @param mapper object mapper
+     * @param results per-device results
+     * @return JSON object of the results
+     */
+    public static ObjectNode deviceResults(ObjectMapper mapper,
+                                           Collection<DeviceOperationResult> results) {
+        ObjectNode node = mapper.createObjectNode();
+        ArrayNode arrayNode = node.putArray("devices");
+        int succeeded = 0;
+
+        for (DeviceOperationResult r : results) {
+            ObjectNode resultNode = arrayNode.addObject()
+                    .put("deviceId", r.deviceId().toString())
+                    .put("status", r.status().name())
+                    .put("elapsedMillis", r.elapsedMillis());
+            if (r.error() != null) {
+                resultNode.put("error", r.error());
+            }
+            if (r.status() == DeviceOperationResult.Status.SUCCEEDED) {
+                succeeded++;
+            }
+        }
+        node.put("succeeded", succeeded);
+        node.put("total", results.size());
+
+        return node;
+    }
+
+    /**
+     * Encodes the per-device results of an inventory onboarding, together
+     * with the inventory entries which could not be parsed.
+     *
+     * @param mapper object mapper
+     * @param results per-device results
+     * @param invalid errors of the invalid entries, by entry index
+     * @return JSON object of the results
+     */
+    public static ObjectNode inventoryResults(ObjectMapper mapper,
+                                              Collection<DeviceOperationResult> results,
+                                              Map<Integer, String> invalid) {
+        ObjectNode node = deviceResults(mapper, results);
+        ArrayNode arrayNode = node.putArray("invalid");
+        invalid.forEach((index, error) -> arrayNode.addObject()
+                .put("index", index)
+                .put("error", error));
+
+        return node;
+    }
+
+    /**
+     * Encodes the NetConf statistics of every device, and of every device
+     * with refused requests only.
+     *
+     * @param mapper object mapper
+     * @param stats per-device, per-operation statistics
+     * @param queueDepth number of changes of a device waiting for a push
+     * @param rejected number of refused change requests, by device
+     * @return JSON object of the statistics
+     */
+    public static ObjectNode netconfStats(ObjectMapper mapper,
+                                          Collection<NetconfOperationStats> stats,
+                                          ToIntFunction<DeviceId> queueDepth,
+                                          Map<DeviceId, Long> rejected) {
+        ObjectNode node = mapper.createObjectNode();
+        ArrayNode arrayNode = node.putArray("devices");
+        Map<DeviceId, ArrayNode> operations = Maps.newHashMap();
+
+        for (NetconfOperationStats s : stats) {
+            ArrayNode operationsNode = operations.computeIfAbsent(
+                    s.deviceId(), id -> arrayNode.addObject()
+                            .put("deviceId", id.toString())
+                            .put("queueDepth", queueDepth.applyAsInt(id))
+                            .put("rejected", rejected.getOrDefault(id, 0L))
+                            .putArray("operations"));
+            operationsNode.addObject()
+                    .put("operation", s.operation())
+                    .put("count", s.count())
+                    .put("errors", s.errors())
+                    .put("p50Millis", s.p50Millis())
+                    .put("p99Millis", s.p99Millis())
+                    .put("maxMillis", s.maxMillis())
+                    .put("bytes", s.bytes())
+                    .put("records", s.records());
+        }
+
+        rejected.keySet().stream()
+                .filter(id -> !operations.containsKey(id))
+                .sorted(Comparator.comparing(DeviceId::toString))
+                .forEach(id -> arrayNode.addObject()
+                        .put("deviceId", id.toString())
+                        .put("queueDepth", queueDepth.applyAsInt(id))
+                        .put("rejected", rejected.get(id))
+                        .putArray("operations"));
+
+        return node;
+    }
+}
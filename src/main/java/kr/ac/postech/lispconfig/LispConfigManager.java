@@ -21,36 +21,70 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter.Operation;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
-import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
-import org.onosproject.lisp.msg.protocols.LispLocator;
 import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.config.NetworkConfigService;
-import org.onosproject.net.driver.DriverHandler;
-import org.onosproject.net.driver.DriverService;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
+import org.onosproject.net.device.DeviceService;
 import org.onosproject.netconf.NetconfController;
+import org.onosproject.netconf.NetconfDeviceListener;
 import org.onosproject.netconf.NetconfException;
+import org.onosproject.netconf.NetconfSession;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static org.onlab.util.Tools.groupedThreads;
+
 /**
  * NetConf/Yang base LISP data plane configuration tool.
  * The all methods are base on lispsimple.yang model file.
@@ -71,48 +105,371 @@ public class LispConfigManager implements LispConfigService {
     protected CoreService coreService;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected DriverService driverService;
+    protected ComponentConfigService componentConfigService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected DeviceService deviceService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected NetconfController netconfController;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LispConfigStore store;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MastershipService mastershipService;
+
+    private static final boolean DEFAULT_USE_EDIT_CONFIG = true;
+    @Property(name = "useEditConfig", boolValue = DEFAULT_USE_EDIT_CONFIG,
+            label = "Push only the changed entries with edit-config instead " +
+                    "of replacing the whole configuration with copy-config")
+    private boolean useEditConfig = DEFAULT_USE_EDIT_CONFIG;
+
+    private static final int DEFAULT_BATCH_WINDOW_MS = 50;
+    @Property(name = "batchWindowMs", intValue = DEFAULT_BATCH_WINDOW_MS,
+            label = "Time window in milliseconds in which changes of a device " +
+                    "are coalesced into one push; 0 pushes every change at once")
+    private int batchWindowMs = DEFAULT_BATCH_WINDOW_MS;
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    @Property(name = "maxBatchSize", intValue = DEFAULT_MAX_BATCH_SIZE,
+            label = "Maximum number of changed entries pushed to a device at once; " +
+                    "full resyncs are pushed whole")
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    private static final int DEFAULT_PUSH_THREADS = 16;
+    @Property(name = "pushThreads", intValue = DEFAULT_PUSH_THREADS,
+            label = "Maximum number of devices pushed to at the same time")
+    private int pushThreads = DEFAULT_PUSH_THREADS;
+
+    private static final int PUSH_IDLE_SEC = 60;
+    private static final int IO_THREADS = 8;
+    private static final int IO_QUEUE_SIZE = 1024;
+
+    private static final int DEFAULT_CONFIG_CACHE_TTL_MS = 5000;
+    @Property(name = "configCacheTtlMs", intValue = DEFAULT_CONFIG_CACHE_TTL_MS,
+            label = "Time in milliseconds a get-config result is served from " +
+                    "the cache; 0 disables the cache")
+    private int configCacheTtlMs = DEFAULT_CONFIG_CACHE_TTL_MS;
+
+    private static final int DEFAULT_CONFIG_CACHE_SIZE = 1000;
+    @Property(name = "configCacheSize", intValue = DEFAULT_CONFIG_CACHE_SIZE,
+            label = "Maximum number of cached get-config results")
+    private int configCacheSize = DEFAULT_CONFIG_CACHE_SIZE;
+
+    private static final int DEFAULT_BOOTSTRAP_CONCURRENCY = 8;
+    @Property(name = "bootstrapConcurrency", intValue = DEFAULT_BOOTSTRAP_CONCURRENCY,
+            label = "Maximum number of devices whose running configuration is " +
+                    "read at the same time on activation")
+    private int bootstrapConcurrency = DEFAULT_BOOTSTRAP_CONCURRENCY;
+
+    private static final int DEFAULT_RECONCILE_INTERVAL_SEC = 300;
+    @Property(name = "reconcileIntervalSec", intValue = DEFAULT_RECONCILE_INTERVAL_SEC,
+            label = "Seconds between checks of the devices for configuration " +
+                    "changed outside of ONOS; 0 disables the checks")
+    private int reconcileIntervalSec = DEFAULT_RECONCILE_INTERVAL_SEC;
+
+    private static final int DEFAULT_RECONCILE_JITTER_SEC = 30;
+    @Property(name = "reconcileJitterSec", intValue = DEFAULT_RECONCILE_JITTER_SEC,
+            label = "Maximum random number of seconds added to each interval " +
+                    "between configuration checks")
+    private int reconcileJitterSec = DEFAULT_RECONCILE_JITTER_SEC;
+
+    private static final int DEFAULT_RECONCILE_CONCURRENCY = 4;
+    @Property(name = "reconcileConcurrency", intValue = DEFAULT_RECONCILE_CONCURRENCY,
+            label = "Maximum number of devices checked at the same time")
+    private int reconcileConcurrency = DEFAULT_RECONCILE_CONCURRENCY;
+
+    private static final boolean DEFAULT_USE_CANDIDATE = true;
+    @Property(name = "useCandidate", boolValue = DEFAULT_USE_CANDIDATE,
+            label = "Stage changes in the candidate datastore and commit them " +
+                    "at once on devices supporting it")
+    private boolean useCandidate = DEFAULT_USE_CANDIDATE;
+
+    private static final int DEFAULT_CONFIRM_TIMEOUT_SEC = 60;
+    @Property(name = "confirmTimeoutSec", intValue = DEFAULT_CONFIRM_TIMEOUT_SEC,
+            label = "Seconds after which a device rolls back a commit which " +
+                    "was not confirmed; 0 disables confirmed commits")
+    private int confirmTimeoutSec = DEFAULT_CONFIRM_TIMEOUT_SEC;
+
+    private static final int DEFAULT_MAX_REQUESTS_PER_SEC = 20;
+    @Property(name = "maxRequestsPerSec", intValue = DEFAULT_MAX_REQUESTS_PER_SEC,
+            label = "Configuration change requests admitted per second and " +
+                    "device; 0 disables the rate limit")
+    private int maxRequestsPerSec = DEFAULT_MAX_REQUESTS_PER_SEC;
+
+    private static final int DEFAULT_REQUEST_BURST = 40;
+    @Property(name = "requestBurst", intValue = DEFAULT_REQUEST_BURST,
+            label = "Configuration change requests of a device admitted at " +
+                    "once before the rate limit applies")
+    private int requestBurst = DEFAULT_REQUEST_BURST;
+
+    private static final int DEFAULT_MAX_QUEUED_CHANGES = 10000;
+    @Property(name = "maxQueuedChanges", intValue = DEFAULT_MAX_QUEUED_CHANGES,
+            label = "Changed entries of a device waiting to be pushed beyond " +
+                    "which requests are refused; 0 for no bound")
+    private int maxQueuedChanges = DEFAULT_MAX_QUEUED_CHANGES;
+
+    private static final int DEFAULT_RETRY_ATTEMPTS = 3;
+    @Property(name = "retryAttempts", intValue = DEFAULT_RETRY_ATTEMPTS,
+            label = "Attempts of a NetConf call failing with a transport or " +
+                    "session error, including the first")
+    private int retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+
+    private static final int DEFAULT_RETRY_BASE_DELAY_MS = 100;
+    @Property(name = "retryBaseDelayMs", intValue = DEFAULT_RETRY_BASE_DELAY_MS,
+            label = "Maximum random delay in milliseconds before the first " +
+                    "retry; doubled for every further retry")
+    private int retryBaseDelayMs = DEFAULT_RETRY_BASE_DELAY_MS;
+
+    private static final int DEFAULT_RETRY_MAX_DELAY_MS = 2000;
+    @Property(name = "retryMaxDelayMs", intValue = DEFAULT_RETRY_MAX_DELAY_MS,
+            label = "Maximum delay in milliseconds before any retry")
+    private int retryMaxDelayMs = DEFAULT_RETRY_MAX_DELAY_MS;
+
+    private static final int DEFAULT_BREAKER_FAILURE_THRESHOLD = 5;
+    @Property(name = "breakerFailureThreshold", intValue = DEFAULT_BREAKER_FAILURE_THRESHOLD,
+            label = "Consecutive failed NetConf calls after which calls to the " +
+                    "device fail at once; 0 disables the circuit breaker")
+    private int breakerFailureThreshold = DEFAULT_BREAKER_FAILURE_THRESHOLD;
+
+    private static final int DEFAULT_BREAKER_OPEN_SEC = 30;
+    @Property(name = "breakerOpenSec", intValue = DEFAULT_BREAKER_OPEN_SEC,
+            label = "Seconds calls to a failing device fail at once before a " +
+                    "single call probes it again")
+    private int breakerOpenSec = DEFAULT_BREAKER_OPEN_SEC;
+
+    private final RetryBackoff backoff =
+            new RetryBackoff(DEFAULT_RETRY_ATTEMPTS, DEFAULT_RETRY_BASE_DELAY_MS,
+                             DEFAULT_RETRY_MAX_DELAY_MS);
+    private final DeviceCircuitBreaker breaker =
+            new DeviceCircuitBreaker(DEFAULT_BREAKER_FAILURE_THRESHOLD,
+                                     TimeUnit.SECONDS.toMillis(DEFAULT_BREAKER_OPEN_SEC));
+
+    private final ConfigCache configCache =
+            new ConfigCache(DEFAULT_CONFIG_CACHE_TTL_MS, DEFAULT_CONFIG_CACHE_SIZE);
+    private final DeviceRateLimiter rateLimiter =
+            new DeviceRateLimiter(DEFAULT_MAX_REQUESTS_PER_SEC, DEFAULT_REQUEST_BURST,
+                                  DEFAULT_MAX_QUEUED_CHANGES);
+
+    private ThreadPoolExecutor pushExecutor;
+    private ScheduledExecutorService timer;
+    private ExecutorService ioExecutor;
+    private DeviceUpdateQueue updateQueue;
+    private NetconfSessionCache sessions;
+    private NetconfMetrics metrics;
+    private DriftReconciler reconciler;
+    private ScheduledFuture<?> reconcileTask;
+
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+    private final NetconfDeviceListener netconfDeviceListener =
+            new InternalNetconfDeviceListener();
 
     ComponentContext context;
 
-    Map<DeviceId, List<String>> mapResolverMap;
-    Map<DeviceId, List<LispMapRecord>> eidDbMap;
+    private final static String NETCONF_SCHEME = "netconf";
+    private final static String RUNNING = "running";
+    private final static String CANDIDATE = "candidate";
+    private final static String MERGE = "merge";
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+    private final static String DEVICES = "devices";
+
+    private final static int MAX_LOGGED_PAYLOAD = 4 * 1024;
 
-    private final static String ITR_HEADER = "<itr-cfg xmlns=\"urn:ietf:params:" +
-            "xml:ns:yang:lispsimple\">\n<map-resolvers>\n<map-resolver>";
-    private final static String ITR_FOOTER = "</map-resolver>\n</map-resolvers>\n</itr-cfg>\n";
-    private final static String RESOLVER_BEGIN_TAG = "<map-resolver-address>";
-    private final static String RESOLVER_END_TAG = "</map-resolver-address>\n";
+    private final static String ITR_FILTER = "<itr-cfg/>";
+    private final static String ETR_FILTER = "<etr-cfg/>";
 
-    private final static String ETR_HEADER = "<etr-cfg xmlns=\"urn:ietf:params:" +
-            "xml:ns:yang:lispsimple\">";
-    private final static String ETR_FOOTER = "</etr-cfg>\n";
-    private final static String LOCAL_EIDS_HEADER = "<local-eids>";
-    private final static String LOCAL_EIDS_FOOTER = "</local-eids>";
+    // devices whose running configuration was read into the store, or is
+    // being read; failed reads are dropped so that they are retried
+    private final Map<DeviceId, CompletableFuture<Boolean>> bootstraps =
+            Maps.newConcurrentMap();
+
+    // devices of an inventory being connected, completed once they are up
+    private final Map<DeviceId, CompletableFuture<Boolean>> arrivals =
+            Maps.newConcurrentMap();
 
     @Activate
     protected void activate(ComponentContext context) {
         this.context = context;
-
-        mapResolverMap = Maps.newConcurrentMap();
-        eidDbMap = Maps.newConcurrentMap();
+        pushExecutor = new ThreadPoolExecutor(
+                pushThreads, pushThreads, PUSH_IDLE_SEC, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                groupedThreads("onos/lispconfig", "push-%d"));
+        pushExecutor.allowCoreThreadTimeOut(true);
+        timer = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/lispconfig", "timer-%d"));
+        updateQueue = new DeviceUpdateQueue(pushExecutor, timer, this::pushChanges,
+                                            batchWindowMs, maxBatchSize);
+        ioExecutor = new ThreadPoolExecutor(
+                IO_THREADS, IO_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(IO_QUEUE_SIZE),
+                groupedThreads("onos/lispconfig", "io-%d"));
+        sessions = new NetconfSessionCache(netconfController);
+        metrics = new NetconfMetrics(metricsService, updateQueue::depth,
+                                     rateLimiter::rejected);
+        reconciler = new DriftReconciler(store, this::fetchConfigAsync, this::commit);
+        componentConfigService.registerProperties(getClass());
+        readComponentConfiguration(context);
+
+        deviceService.addListener(deviceListener);
+        netconfController.addDeviceListener(netconfDeviceListener);
+        bootstrapAll();
         log.info("Started");
     }
 
     @Deactivate
     protected void deactivate() {
+        componentConfigService.unregisterProperties(getClass(), false);
+        cancelReconcile();
+        deviceService.removeListener(deviceListener);
+        netconfController.removeDeviceListener(netconfDeviceListener);
+        sessions.clear();
+        bootstraps.clear();
+        arrivals.values().forEach(f -> f.cancel(false));
+        arrivals.clear();
+        metrics.removeAll();
+        timer.shutdown();
+        pushExecutor.shutdown();
+        ioExecutor.shutdown();
+        updateQueue.cancelAll();
         log.info("Stopped");
     }
 
+    @Modified
+    protected void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean flag = Tools.isPropertyEnabled(properties, "useEditConfig");
+        if (flag == null) {
+            log.info("useEditConfig is not configured, using current value of {}",
+                     useEditConfig);
+        } else {
+            useEditConfig = flag;
+            log.info("Configured. useEditConfig is {}",
+                     useEditConfig ? "enabled" : "disabled");
+        }
+
+        flag = Tools.isPropertyEnabled(properties, "useCandidate");
+        if (flag != null) {
+            useCandidate = flag;
+        }
+        confirmTimeoutSec = getIntegerProperty(properties, "confirmTimeoutSec",
+                                               confirmTimeoutSec);
+        log.info("Configured. useCandidate is {}, confirmTimeoutSec is {}",
+                 useCandidate ? "enabled" : "disabled", confirmTimeoutSec);
+
+        batchWindowMs = getIntegerProperty(properties, "batchWindowMs",
+                                           batchWindowMs);
+        maxBatchSize = getIntegerProperty(properties, "maxBatchSize",
+                                          maxBatchSize);
+        updateQueue.setWindowMs(batchWindowMs);
+        updateQueue.setMaxBatchSize(maxBatchSize);
+        log.info("Configured. batchWindowMs is {}, maxBatchSize is {}",
+                 batchWindowMs, maxBatchSize);
+
+        pushThreads = Math.max(1, getIntegerProperty(properties, "pushThreads",
+                                                     pushThreads));
+        resizePushExecutor(pushThreads);
+        log.info("Configured. pushThreads is {}", pushThreads);
+
+        maxRequestsPerSec = getIntegerProperty(properties, "maxRequestsPerSec",
+                                               maxRequestsPerSec);
+        requestBurst = getIntegerProperty(properties, "requestBurst", requestBurst);
+        maxQueuedChanges = getIntegerProperty(properties, "maxQueuedChanges",
+                                              maxQueuedChanges);
+        rateLimiter.setLimits(maxRequestsPerSec, requestBurst, maxQueuedChanges);
+        log.info("Configured. maxRequestsPerSec is {}, requestBurst is {}, " +
+                         "maxQueuedChanges is {}", maxRequestsPerSec, requestBurst,
+                 maxQueuedChanges);
+
+        retryAttempts = getIntegerProperty(properties, "retryAttempts", retryAttempts);
+        retryBaseDelayMs = getIntegerProperty(properties, "retryBaseDelayMs",
+                                              retryBaseDelayMs);
+        retryMaxDelayMs = getIntegerProperty(properties, "retryMaxDelayMs",
+                                             retryMaxDelayMs);
+        backoff.configure(retryAttempts, retryBaseDelayMs, retryMaxDelayMs);
+        breakerFailureThreshold = getIntegerProperty(properties, "breakerFailureThreshold",
+                                                     breakerFailureThreshold);
+        breakerOpenSec = getIntegerProperty(properties, "breakerOpenSec", breakerOpenSec);
+        breaker.configure(breakerFailureThreshold,
+                          TimeUnit.SECONDS.toMillis(breakerOpenSec));
+        log.info("Configured. retryAttempts is {}, retryBaseDelayMs is {}, " +
+                         "retryMaxDelayMs is {}, breakerFailureThreshold is {}, " +
+                         "breakerOpenSec is {}", retryAttempts, retryBaseDelayMs,
+                 retryMaxDelayMs, breakerFailureThreshold, breakerOpenSec);
+
+        int newTtl = getIntegerProperty(properties, "configCacheTtlMs",
+                                        configCacheTtlMs);
+        int newSize = getIntegerProperty(properties, "configCacheSize",
+                                         configCacheSize);
+        if (newTtl != configCacheTtlMs || newSize != configCacheSize) {
+            configCacheTtlMs = newTtl;
+            configCacheSize = newSize;
+            configCache.configure(configCacheTtlMs, configCacheSize);
+        }
+        log.info("Configured. configCacheTtlMs is {}, configCacheSize is {}",
+                 configCacheTtlMs, configCacheSize);
+
+        bootstrapConcurrency = getIntegerProperty(properties, "bootstrapConcurrency",
+                                                  bootstrapConcurrency);
+        log.info("Configured. bootstrapConcurrency is {}", bootstrapConcurrency);
+
+        int newInterval = getIntegerProperty(properties, "reconcileIntervalSec",
+                                             reconcileIntervalSec);
+        reconcileJitterSec = getIntegerProperty(properties, "reconcileJitterSec",
+                                                reconcileJitterSec);
+        reconcileConcurrency = getIntegerProperty(properties, "reconcileConcurrency",
+                                                  reconcileConcurrency);
+        if (newInterval != reconcileIntervalSec || reconcileTask == null) {
+            reconcileIntervalSec = newInterval;
+            cancelReconcile();
+            scheduleReconcile();
+        }
+        log.info("Configured. reconcileIntervalSec is {}, reconcileJitterSec is {}, " +
+                         "reconcileConcurrency is {}", reconcileIntervalSec,
+                 reconcileJitterSec, reconcileConcurrency);
+    }
+
+    /**
+     * Sets the number of push threads, growing the maximum before the core
+     * size and shrinking it after, as the executor requires.
+     */
+    private void resizePushExecutor(int threads) {
+        if (threads > pushExecutor.getMaximumPoolSize()) {
+            pushExecutor.setMaximumPoolSize(threads);
+            pushExecutor.setCorePoolSize(threads);
+        } else {
+            pushExecutor.setCorePoolSize(threads);
+            pushExecutor.setMaximumPoolSize(threads);
+        }
+    }
+
+    private int getIntegerProperty(Dictionary<?, ?> properties, String name,
+                                   int current) {
+        String s = Tools.get(properties, name);
+        try {
+            return Strings.isNullOrEmpty(s) ? current : Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value {} for {}, using current value of {}",
+                     s, name, current);
+            return current;
+        }
+    }
+
     @Override
     public String getConfig(DeviceId deviceId) {
-        DriverHandler handler = driverService.createHandler(deviceId);
-        NetconfController controller = handler.get(NetconfController.class);
-
         try {
-            return controller.getNetconfDevice(deviceId).getSession().getConfig("running");
+            return fetchConfig(deviceId, null);
         } catch (NetconfException e) {
-            e.printStackTrace();
+            log.warn("Failed to get the configuration of {}", deviceId, e);
         }
 
         return "Error to obtain GET_CONFIG";
@@ -120,252 +477,1176 @@ public class LispConfigManager implements LispConfigService {
 
     @Override
     public String getConfigWithFilter(DeviceId deviceId, String filter) {
-        DriverHandler handler = driverService.createHandler(deviceId);
-        NetconfController controller = handler.get(NetconfController.class);
+        return getConfigWithFilter(deviceId, filter, false);
+    }
 
+    @Override
+    public String getConfigWithFilter(DeviceId deviceId, String filter,
+                                      boolean fresh) {
         try {
-            return controller.getNetconfDevice(deviceId).getSession()
-                    .getConfig("running", filter);
-        } catch (NetconfException e) {
-            e.printStackTrace();
+            if (fresh) {
+                long generation = configCache.generation(deviceId);
+                String config = fetchConfig(deviceId, filter);
+                configCache.put(deviceId, filter, config, generation);
+                return config;
+            }
+            return configCache.get(deviceId, filter,
+                                   () -> fetchConfig(deviceId, filter));
+        } catch (NetconfException | ExecutionException e) {
+            log.warn("Failed to get the configuration of {}", deviceId, e);
         }
 
         return "Error to obtain GET_CONFIG for ITR";
     }
 
+    /**
+     * Reads the running configuration from the device, filtered unless
+     * the filter is null.
+     */
+    private String fetchConfig(DeviceId deviceId, String filter)
+            throws NetconfException {
+        try {
+            return fetchConfigAsync(deviceId, filter).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NetconfException) {
+                throw (NetconfException) e.getCause();
+            }
+            throw new NetconfException("Failed to get the configuration of " +
+                                               deviceId, e.getCause());
+        }
+    }
+
+    /**
+     * Reads the running configuration from the device on the I/O executor,
+     * filtered unless the filter is null.
+     */
+    private CompletableFuture<String> fetchConfigAsync(DeviceId deviceId,
+                                                       String filter) {
+        long start = System.nanoTime();
+        return invoke(deviceId, ioExecutor, true, session -> filter == null ?
+                session.getConfig(RUNNING) : session.getConfig(RUNNING, filter))
+                .whenComplete((config, error) -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (error == null) {
+                        metrics.success(deviceId, NetconfMetrics.GET_CONFIG,
+                                        elapsed, lengthOf(config), 0);
+                    } else {
+                        metrics.failure(deviceId, NetconfMetrics.GET_CONFIG,
+                                        elapsed, 0, 0);
+                    }
+                });
+    }
+
     @Override
-    public boolean addItrMapResolver(DeviceId deviceId, String address) {
-        List<String> resolverList = mapResolverMap.get(deviceId);
+    public CompletableFuture<String> getConfigAsync(DeviceId deviceId) {
+        return fetchConfigAsync(deviceId, null).exceptionally(e -> {
+            log.warn("Failed to get the configuration of {}", deviceId, e);
+            return "Error to obtain GET_CONFIG";
+        });
+    }
 
-        if (resolverList == null) {
-            resolverList = Lists.newLinkedList();
-            mapResolverMap.put(deviceId, resolverList);
-        }
+    @Override
+    public CompletableFuture<String> getConfigWithFilterAsync(DeviceId deviceId,
+                                                              String filter) {
+        return getConfigWithFilterAsync(deviceId, filter, false);
+    }
 
-        if (resolverList.stream().filter(s -> s.equals(address)).count() == 0 ) {
-            resolverList.add(address);
-            return updateItrMapResolver(deviceId);
-        } else {
-            log.info("Map resolver {} is already exist", address);
+    @Override
+    public CompletableFuture<String> getConfigWithFilterAsync(DeviceId deviceId,
+                                                              String filter,
+                                                              boolean fresh) {
+        String cached = fresh ? null : configCache.getIfPresent(deviceId, filter);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
+        long generation = configCache.generation(deviceId);
+        return fetchConfigAsync(deviceId, filter).handle((config, error) -> {
+            if (error != null) {
+                log.warn("Failed to get the configuration of {}", deviceId, error);
+                return "Error to obtain GET_CONFIG for ITR";
+            }
+            configCache.put(deviceId, filter, config, generation);
+            return config;
+        });
+    }
 
-        return false;
+    @Override
+    public boolean addItrMapResolver(DeviceId deviceId, String address) {
+        return await(addItrMapResolverAsync(deviceId, address));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addItrMapResolverAsync(DeviceId deviceId,
+                                                             String address) {
+        return admitted(deviceId, () -> {
+            if (store.addMapResolver(deviceId, address)) {
+                return commit(deviceId, Collections.singletonList(address),
+                              Collections.emptyList());
+            } else {
+                log.info("Map resolver {} is already exist", address);
+            }
+
+            return CompletableFuture.completedFuture(false);
+        });
     }
 
     @Override
     public boolean removeItrMapResolver(DeviceId deviceId, String address) {
-        List<String> resolverList = mapResolverMap.get(deviceId);
+        return await(removeItrMapResolverAsync(deviceId, address));
+    }
 
-        if (resolverList != null) {
-            resolverList.remove(address);
-            return updateItrMapResolver(deviceId);
-        } else {
-            log.info("Map resolver {} is not exist on {}", address, deviceId);
-        }
+    @Override
+    public CompletableFuture<Boolean> removeItrMapResolverAsync(DeviceId deviceId,
+                                                                String address) {
+        return admitted(deviceId, () -> {
+            if (store.removeMapResolver(deviceId, address)) {
+                return commit(deviceId, Collections.singletonList(address),
+                              Collections.emptyList());
+            } else {
+                log.info("Map resolver {} is not exist on {}", address, deviceId);
+            }
 
-        return false;
+            return CompletableFuture.completedFuture(false);
+        });
     }
 
     @Override
     public boolean addEtrEidDataBase(DeviceId deviceId, LispMapRecord record) {
-        log.info(record.toString());
-        List<LispMapRecord> eidDb = eidDbMap.get(deviceId);
+        return await(addEtrEidDataBaseAsync(deviceId, record));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addEtrEidDataBaseAsync(DeviceId deviceId,
+                                                             LispMapRecord record) {
+        return admitted(deviceId, () -> {
+            log.debug(record.toString());
+            return mergeAndCommit(deviceId, Collections.emptyList(),
+                                  Collections.singletonList(record));
+        });
+    }
+
+    @Override
+    public boolean removeEtrEidDataBase(DeviceId deviceId, LispMapRecord record) {
+        return await(removeEtrEidDataBaseAsync(deviceId, record));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeEtrEidDataBaseAsync(DeviceId deviceId,
+                                                                LispMapRecord record) {
+        return admitted(deviceId, () -> {
+            if (deleteRecord(deviceId, record)) {
+                return commit(deviceId, Collections.emptyList(),
+                              Collections.singletonList(eidId(record)));
+            }
 
-        if (eidDb == null) {
-            eidDb = Lists.newLinkedList();
-            eidDbMap.put(deviceId, eidDb);
+            return CompletableFuture.completedFuture(false);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Boolean>> addEtrEidDataBasesAsync(
+            DeviceId deviceId, List<LispMapRecord> records) {
+        return admitted(deviceId, () -> mergeAndCommitEach(deviceId, records));
+    }
+
+    @Override
+    public CompletableFuture<List<Boolean>> removeEtrEidDataBasesAsync(
+            DeviceId deviceId, List<LispMapRecord> records) {
+        return admitted(deviceId, () -> {
+            List<Boolean> removed = Lists.newArrayListWithCapacity(records.size());
+            List<String> ids = Lists.newArrayList();
+            records.forEach(r -> {
+                boolean deleted = deleteRecord(deviceId, r);
+                removed.add(deleted);
+                if (deleted) {
+                    ids.add(eidId(r));
+                }
+            });
+
+            if (ids.isEmpty()) {
+                return CompletableFuture.completedFuture(removed);
+            }
+            return commit(deviceId, Collections.emptyList(), ids)
+                    .thenApply(result -> {
+                        List<Boolean> results = Lists.newArrayList(removed);
+                        results.replaceAll(r -> r && result);
+                        return results;
+                    });
+        });
+    }
+
+    /**
+     * Waits for a change of a device on behalf of a synchronous caller, who
+     * gets a refusal as the DeviceBusyException itself.
+     */
+    private static boolean await(CompletableFuture<Boolean> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        log.info("Trace Point 1");
-        List<LispMapRecord> records = eidDb.stream()
-                .filter(s -> s.getEidPrefixAfi().equals(record.getEidPrefixAfi()))
-                .collect(Collectors.toList());
-        if (records.size() == 0) {
-            log.info("Add new map record");
-            eidDb.add(record);
-        } else {
-            log.info("Update new map record");
-            LispMapRecord oldRecord = records.get(0);
+    /**
+     * Applies a mutation requested by a user of the service, unless the
+     * device is saturated, in which case the future fails with a
+     * {@link DeviceBusyException}.
+     */
+    private <T> CompletableFuture<T> admitted(
+            DeviceId deviceId, Supplier<CompletableFuture<T>> mutation) {
+        long wait = rateLimiter.tryAcquire(deviceId, updateQueue.depth(deviceId));
+        if (wait > 0) {
+            log.debug("Refused a change of {}; retry after {} ms", deviceId, wait);
+            metrics.rejected(deviceId);
+            return Tools.exceptionalFuture(new DeviceBusyException(deviceId, wait));
+        }
+        return afterBootstrap(deviceId, mutation);
+    }
+
+    /**
+     * Applies a mutation of the device once the running configuration of
+     * the device was read into the store, so that a later full push does
+     * not wipe entries configured before this manager knew of them.
+     */
+    private <T> CompletableFuture<T> afterBootstrap(
+            DeviceId deviceId, Supplier<CompletableFuture<T>> mutation) {
+        CompletableFuture<Boolean> bootstrap = bootstrap(deviceId);
+        if (bootstrap.isDone()) {
+            return mutation.get();
+        }
+        return bootstrap.handle((result, error) -> null)
+                .thenCompose(v -> mutation.get());
+    }
+
+    /**
+     * Reads the running configuration of every available NETCONF device
+     * into the store, a bounded number of devices at a time.
+     */
+    private void bootstrapAll() {
+        List<DeviceId> devices = Lists.newArrayList();
+        fleet(null).forEach(d -> {
+            if (deviceService.isAvailable(d)) {
+                devices.add(d);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        new FleetOperation(devices, this::bootstrap, bootstrapConcurrency, 0)
+                .start()
+                .thenAccept(results -> log.info(
+                        "Read running configuration of {} of {} devices in {} ms",
+                        results.stream().filter(r -> r.status() ==
+                                DeviceOperationResult.Status.SUCCEEDED).count(),
+                        results.size(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Reads the running configuration of the device into the store unless
+     * it was read before. Only parts not yet managed by the store are read.
+     *
+     * @return future completed once the configuration was read
+     */
+    private CompletableFuture<Boolean> bootstrap(DeviceId deviceId) {
+        CompletableFuture<Boolean> future = bootstraps.get(deviceId);
+        if (future != null) {
+            return future;
+        }
+        if (store.isItrManaged(deviceId) && store.isEtrManaged(deviceId)) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        future = bootstraps.putIfAbsent(deviceId, created);
+        if (future != null) {
+            return future;
+        }
+
+        loadRunningConfig(deviceId).whenComplete((result, error) -> {
+            if (error != null || !result) {
+                bootstraps.remove(deviceId, created);
+            }
+            created.complete(error == null && result);
+        });
+        return created;
+    }
 
-            List<LispLocator> newLocators = record.getLocators();
-            List<LispLocator> oldLocators = oldRecord.getLocators();
+    private CompletableFuture<Boolean> loadRunningConfig(DeviceId deviceId) {
+        return readUnmanaged(deviceId, store.isItrManaged(deviceId), ITR_FILTER)
+                .thenCompose(itrConfig -> readUnmanaged(
+                        deviceId, store.isEtrManaged(deviceId), ETR_FILTER)
+                        .thenApply(etrConfig -> loadRunningConfig(
+                                deviceId, itrConfig, etrConfig)))
+                .exceptionally(e -> {
+                    log.warn("Failed to read the running configuration of {}",
+                             deviceId, e);
+                    return false;
+                });
+    }
+
+    /**
+     * Reads a part of the running configuration, or nothing when the part
+     * is managed already.
+     */
+    private CompletableFuture<String> readUnmanaged(DeviceId deviceId,
+                                                    boolean managed,
+                                                    String filter) {
+        return managed ? CompletableFuture.completedFuture(null) :
+                fetchConfigAsync(deviceId, filter);
+    }
 
-            List<LispLocator> actualLocators = Lists.newArrayList();
-            actualLocators.addAll(newLocators);
-            actualLocators.addAll(oldLocators);
+    /**
+     * Stores the map resolvers and local EIDs of the parts read, null when
+     * not read.
+     */
+    private boolean loadRunningConfig(DeviceId deviceId, String itrConfig,
+                                      String etrConfig) {
+        try {
+            if (itrConfig != null) {
+                List<String> resolvers = LispSimpleXmlReader.mapResolvers(itrConfig);
+                resolvers.forEach(r -> store.addMapResolver(deviceId, r));
+                log.info("Read {} map resolvers of {}", resolvers.size(), deviceId);
+            }
+            if (etrConfig != null) {
+                List<LispMapRecord> records = LispSimpleXmlReader.localEids(etrConfig);
+                records.forEach(r -> store.mergeLocalEid(deviceId, r));
+                log.info("Read {} local EIDs of {}", records.size(), deviceId);
+            }
+            return true;
+        } catch (XMLStreamException e) {
+            log.warn("Failed to read the running configuration of {}", deviceId, e);
+            return false;
+        }
+    }
 
-            for (LispLocator loc : newLocators) {
-                for (LispLocator ol : oldLocators) {
-                    if(loc.getLocatorAfi().equals(ol.getLocatorAfi())){
-                        actualLocators.remove(ol);
+    /**
+     * Schedules the next configuration check of the devices, unless the
+     * checks are disabled.
+     */
+    private synchronized void scheduleReconcile() {
+        if (reconcileTask != null && !reconcileTask.isDone()) {
+            // already scheduled, e.g. reconfigured while devices were checked
+            return;
+        }
+        if (reconcileIntervalSec <= 0 || timer.isShutdown()) {
+            reconcileTask = null;
+            return;
+        }
+        long delayMs = TimeUnit.SECONDS.toMillis(reconcileIntervalSec);
+        if (reconcileJitterSec > 0) {
+            delayMs += ThreadLocalRandom.current().nextLong(
+                    TimeUnit.SECONDS.toMillis(reconcileJitterSec));
+        }
+        reconcileTask = timer.schedule(this::reconcileAll, delayMs,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelReconcile() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel(false);
+            reconcileTask = null;
+        }
+    }
+
+    /**
+     * Checks every available device mastered by this instance and not
+     * being pushed to, a bounded number of devices at a time. Devices with
+     * entries whose push failed are checked too, so that the entries still
+     * differing are pushed again. The next check is scheduled once all
+     * devices were checked.
+     */
+    private void reconcileAll() {
+        List<DeviceId> devices = Lists.newArrayList();
+        fleet(null).forEach(d -> {
+            if (deviceService.isAvailable(d) && mastershipService.isLocalMaster(d) &&
+                    !updateQueue.isBusy(d)) {
+                devices.add(d);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        new FleetOperation(devices, reconciler::reconcile, reconcileConcurrency, 0)
+                .start()
+                .whenComplete((results, error) -> {
+                    if (results != null) {
+                        log.debug("Checked the configuration of {} devices in {} ms",
+                                  results.size(), System.currentTimeMillis() - start);
                     }
+                    scheduleReconcile();
+                });
+    }
+
+    /**
+     * Merges the records into the local EID database of the device and
+     * queues the changed entries. Records changing nothing are not pushed;
+     * records the device is known to hold already are pushed with their
+     * changed locators only.
+     */
+    private CompletableFuture<Boolean> mergeAndCommit(DeviceId deviceId,
+                                                      Collection<String> resolvers,
+                                                      Collection<LispMapRecord> records) {
+        Set<String> unconfirmed = updateQueue.unconfirmedEids(deviceId);
+        Set<String> ids = Sets.newLinkedHashSet();
+        Map<String, Set<String>> locators = Maps.newHashMap();
+
+        records.forEach(r -> mergeLocalEid(deviceId, r, unconfirmed, ids, locators));
+
+        if (resolvers.isEmpty() && ids.isEmpty()) {
+            log.debug("No change to push to {}", deviceId);
+            return CompletableFuture.completedFuture(true);
+        }
+        return updateQueue.submit(deviceId, resolvers, ids, locators);
+    }
+
+    /**
+     * Merges the records like {@link #mergeAndCommit}, but completes with
+     * the result of each record: false for an invalid record, true for a
+     * record changing nothing, and otherwise the result of the push
+     * carrying its local EID.
+     */
+    private CompletableFuture<List<Boolean>> mergeAndCommitEach(
+            DeviceId deviceId, List<LispMapRecord> records) {
+        Set<String> unconfirmed = updateQueue.unconfirmedEids(deviceId);
+        Set<String> ids = Sets.newLinkedHashSet();
+        Map<String, Set<String>> locators = Maps.newHashMap();
+        // the pushed id of each record, and the result of records pushing nothing
+        List<String> recordIds = Lists.newArrayListWithCapacity(records.size());
+        List<CompletableFuture<Boolean>> results =
+                Lists.newArrayListWithCapacity(records.size());
+        for (LispMapRecord record : records) {
+            String id = null;
+            boolean valid = true;
+            try {
+                id = mergeLocalEid(deviceId, record, unconfirmed, ids, locators);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid EID-RLOC mapping record {}: {}", record, e.getMessage());
+                valid = false;
+            }
+            recordIds.add(id);
+            results.add(id == null ? CompletableFuture.completedFuture(valid) : null);
+        }
+
+        if (!ids.isEmpty()) {
+            Map<String, CompletableFuture<Boolean>> pushes =
+                    updateQueue.submitEach(deviceId, ids, locators);
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) == null) {
+                    results.set(i, pushes.get(recordIds.get(i)));
                 }
             }
+        }
 
-            DefaultLispMapRecord.DefaultMapRecordBuilder builder =
-                    new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(v -> results.stream().map(CompletableFuture::join)
+                        .collect(Collectors.toList()));
+    }
 
-            builder.withEidPrefixAfi(record.getEidPrefixAfi());
-            builder.withMaskLength(record.getMaskLength());
-            builder.withRecordTtl(record.getRecordTtl());
-            builder.withLocators(actualLocators);
+    /**
+     * Merges a record into the local EID database of the device and adds
+     * its id to the changed ids, with its changed locator names when only
+     * some locators of an EID the device holds changed.
+     *
+     * @return the id of the record, or null when the record changed nothing
+     *         and no earlier record of the same batch changed its EID
+     */
+    private String mergeLocalEid(DeviceId deviceId, LispMapRecord record,
+                                 Set<String> unconfirmed, Set<String> ids,
+                                 Map<String, Set<String>> locators) {
+        MapRecordDiff diff = store.mergeLocalEid(deviceId, record);
+        String id = diff.prefix().toString();
+        if (diff.isEmpty()) {
+            return ids.contains(id) ? id : null;
+        }
 
-            eidDb.remove(oldRecord);
-            eidDb.add(builder.build());
+        boolean partial = !diff.isCreated() && diff.removed().isEmpty() &&
+                !unconfirmed.contains(id);
+        if (!partial) {
+            locators.remove(id);
+        } else if (!ids.contains(id) || locators.containsKey(id)) {
+            locators.computeIfAbsent(id, k -> Sets.newHashSet())
+                    .addAll(diff.changedLocatorNames());
         }
+        ids.add(id);
+        return id;
+    }
 
-        return updateEtrEidDatabase(deviceId);
+    /**
+     * Removes the record of the same EID prefix from the local EID database
+     * of the device.
+     *
+     * @return true when the prefix was found and removed
+     */
+    private boolean deleteRecord(DeviceId deviceId, LispMapRecord record) {
+        if (store.removeLocalEid(deviceId, MapRecords.eidPrefix(record))) {
+            return true;
+        }
+        log.info("EID-RLOC mapping record {} is not exist", record.toString());
+        return false;
     }
 
     @Override
-    public boolean removeEtrEidDataBase(DeviceId deviceId, LispMapRecord record) {
-        List<LispMapRecord> eidDb = eidDbMap.get(deviceId);
+    public CompletableFuture<List<DeviceOperationResult>> addItrMapResolverToFleet(
+            Collection<DeviceId> deviceIds, String address,
+            int concurrency, int maxFailures) {
+        return new FleetOperation(fleet(deviceIds),
+                                  d -> addItrMapResolverAsync(d, address),
+                                  pushConcurrency(concurrency),
+                                  maxFailures).start();
+    }
 
-        if (eidDb != null) {
-            eidDb.remove(record);
-            return updateEtrEidDatabase(deviceId);
-        } else {
-            log.info("EID-RLOC mapping record {} is not exist", record.toString());
+    @Override
+    public CompletableFuture<List<DeviceOperationResult>> removeItrMapResolverFromFleet(
+            Collection<DeviceId> deviceIds, String address,
+            int concurrency, int maxFailures) {
+        return new FleetOperation(fleet(deviceIds),
+                                  d -> removeItrMapResolverAsync(d, address),
+                                  pushConcurrency(concurrency),
+                                  maxFailures).start();
+    }
+
+    /**
+     * Returns the concurrency of a fleet operation, which cannot exceed the
+     * number of push threads since every device push takes one of them.
+     */
+    private int pushConcurrency(int concurrency) {
+        int threads = pushThreads;
+        if (concurrency > threads) {
+            log.warn("Concurrency {} exceeds pushThreads {}, pushing to {} " +
+                             "devices at a time", concurrency, threads, threads);
+            return threads;
         }
+        return concurrency;
+    }
 
-        return false;
+    /**
+     * Returns the given devices, or every NetConf device when none is given.
+     */
+    private List<DeviceId> fleet(Collection<DeviceId> deviceIds) {
+        if (deviceIds != null && !deviceIds.isEmpty()) {
+            return ImmutableList.copyOf(deviceIds);
+        }
+        List<DeviceId> devices = Lists.newArrayList();
+        deviceService.getDevices().forEach(d -> {
+            if (NETCONF_SCHEME.equals(d.id().uri().getScheme())) {
+                devices.add(d.id());
+            }
+        });
+        return devices;
+    }
+
+    @Override
+    public List<String> getMapResolvers(DeviceId deviceId) {
+        return store.getMapResolvers(deviceId);
+    }
+
+    @Override
+    public List<LispMapRecord> getLocalEids(DeviceId deviceId) {
+        return store.getLocalEids(deviceId);
+    }
+
+    @Override
+    public List<LispMapRecord> getLocalEids(DeviceId deviceId, IpPrefix after,
+                                            int limit) {
+        return store.getLocalEids(deviceId, after, limit);
+    }
+
+    @Override
+    public LispMapRecord getMatchingLocalEid(DeviceId deviceId, IpAddress address) {
+        return store.getMatchingLocalEid(deviceId, address);
+    }
+
+    @Override
+    public List<LispMapRecord> getCoveringLocalEids(DeviceId deviceId, IpPrefix prefix) {
+        return store.getCoveringLocalEids(deviceId, prefix);
+    }
+
+    @Override
+    public List<LispMapRecord> getCoveredLocalEids(DeviceId deviceId, IpPrefix prefix) {
+        return store.getCoveredLocalEids(deviceId, prefix);
+    }
+
+    @Override
+    public Set<String> getUnconfirmedMapResolvers(DeviceId deviceId) {
+        return updateQueue.unconfirmedResolvers(deviceId);
+    }
+
+    @Override
+    public Set<String> getUnconfirmedLocalEids(DeviceId deviceId) {
+        return updateQueue.unconfirmedEids(deviceId);
+    }
+
+    @Override
+    public List<NetconfOperationStats> getNetconfStats() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public int getQueueDepth(DeviceId deviceId) {
+        return updateQueue.depth(deviceId);
+    }
+
+    @Override
+    public long getRejectedRequests(DeviceId deviceId) {
+        return rateLimiter.rejected(deviceId);
+    }
+
+    @Override
+    public Map<DeviceId, Long> getRejectedRequests() {
+        return rateLimiter.rejected();
+    }
+
+    @Override
+    public boolean resyncDevice(DeviceId deviceId) {
+        return await(resyncDeviceAsync(deviceId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resyncDeviceAsync(DeviceId deviceId) {
+        return admitted(deviceId, () -> updateQueue.submitFullSync(deviceId));
     }
 
     @Override
     public boolean connectDevice(String name, String password,
                                 String address, String port){
+        DeviceId deviceId = DeviceId.deviceId("netconf:" + address + ":" + port);
+        return applyDeviceConfig(deviceId, address, port, name, password);
+    }
 
-        //Setup netconf
-        ObjectNode nodeNetconfData = new ObjectMapper().createObjectNode();
-        nodeNetconfData.put("ip", address);
-        nodeNetconfData.put("port", port);
-        nodeNetconfData.put("username", name);
-        nodeNetconfData.put("password", password);
-
-        ObjectNode nodeNetconf = new ObjectMapper().createObjectNode();
-        nodeNetconf.set("netconf", nodeNetconfData);
+    /**
+     * Registers the device with the network configuration service, which
+     * makes the NetConf provider connect to it.
+     */
+    private boolean applyDeviceConfig(DeviceId deviceId, String address,
+                                      String port, String name,
+                                      String password) {
+        ObjectNode basic = MAPPER.createObjectNode().put("driver", "netconf");
+        ObjectNode netconf = MAPPER.createObjectNode()
+                .put("ip", address)
+                .put("port", port)
+                .put("username", name)
+                .put("password", password);
+
+        return cfgService.applyConfig(DEVICES, deviceId, "basic", basic) != null &&
+                cfgService.applyConfig(DEVICES, deviceId, "netconf", netconf) != null;
+    }
 
-        ObjectNode nodeDriver = new ObjectMapper().createObjectNode();
-        nodeDriver.put("driver", "netconf");
+    @Override
+    public CompletableFuture<List<DeviceOperationResult>> connectDevices(
+            List<DeviceInventoryEntry> devices, int concurrency, int timeoutSec) {
+        Map<DeviceId, DeviceInventoryEntry> inventory = Maps.newLinkedHashMap();
+        devices.forEach(d -> inventory.put(d.deviceId(), d));
+
+        // register every device first, so that all of them connect in
+        // parallel while the first ones are being configured
+        Set<DeviceId> rejected = Sets.newHashSet();
+        inventory.forEach((deviceId, d) -> {
+            if (!applyDeviceConfig(deviceId, d.address(), String.valueOf(d.port()),
+                                   d.username(), d.password())) {
+                rejected.add(deviceId);
+            }
+        });
+        log.info("Registered {} of {} inventory devices",
+                 inventory.size() - rejected.size(), inventory.size());
 
-        ObjectNode nodeBasic = new ObjectMapper().createObjectNode();
-        nodeBasic.set("basic", nodeDriver);
+        return new FleetOperation(ImmutableList.copyOf(inventory.keySet()), d -> {
+            if (rejected.contains(d)) {
+                return Tools.exceptionalFuture(new IllegalStateException(
+                        "network configuration rejected"));
+            }
+            return awaitAvailable(d, timeoutSec)
+                    .thenCompose(v -> pushInitialConfig(inventory.get(d)));
+        }, concurrency, 0).start();
+    }
 
-        ObjectNode nodeUnion = new ObjectMapper().createObjectNode();
-        nodeUnion.setAll(nodeNetconf);
-        nodeUnion.setAll(nodeBasic);
+    /**
+     * Returns a future completed once the device is available, or failed
+     * when it does not come up within the timeout.
+     */
+    private CompletableFuture<Boolean> awaitAvailable(DeviceId deviceId,
+                                                      int timeoutSec) {
+        CompletableFuture<Boolean> arrival =
+                arrivals.computeIfAbsent(deviceId, d -> new CompletableFuture<>());
+        if (deviceService.isAvailable(deviceId)) {
+            arrivals.remove(deviceId, arrival);
+            arrival.complete(true);
+            return arrival;
+        }
 
-        ObjectNode nodeDevice = new ObjectMapper().createObjectNode();
-        String newDeviceName = "netconf:"+address+":"+port;
-        DeviceId deviceId = DeviceId.deviceId(newDeviceName);
-        nodeDevice.set(newDeviceName, nodeUnion);
+        timer.schedule(() -> {
+            if (arrivals.remove(deviceId, arrival)) {
+                arrival.completeExceptionally(new TimeoutException(
+                        deviceId + " did not come up within " + timeoutSec + " s"));
+            }
+        }, timeoutSec, TimeUnit.SECONDS);
+        return arrival;
+    }
 
-        ObjectNode root = new ObjectMapper().createObjectNode();
-        root.set("devices", nodeDevice);
+    /**
+     * Adds the map resolvers and local EIDs of an inventory device and
+     * pushes them at once. Entries the device already has are not counted
+     * as failures.
+     */
+    private CompletableFuture<Boolean> pushInitialConfig(DeviceInventoryEntry device) {
+        DeviceId deviceId = device.deviceId();
+        return afterBootstrap(deviceId, () -> {
+            List<String> resolvers = Lists.newArrayList();
+            device.mapResolvers().forEach(r -> {
+                if (store.addMapResolver(deviceId, r)) {
+                    resolvers.add(r);
+                }
+            });
+            return mergeAndCommit(deviceId, resolvers, device.records());
+        });
+    }
 
-        Object resultRegister = cfgService.applyConfig("devices", deviceId,
-                                        "basic",
-                                        nodeBasic.get("basic"));
-        Object resultConfigure = cfgService.applyConfig("devices", deviceId,
-                               "netconf",
-                               nodeNetconf.get("netconf"));
+    /**
+     * Queues the changed entries of the device. The returned future is
+     * completed once they are pushed, possibly together with changes of
+     * other callers.
+     */
+    private CompletableFuture<Boolean> commit(DeviceId deviceId,
+                                              Collection<String> resolvers,
+                                              Collection<String> eids) {
+        return updateQueue.submit(deviceId, resolvers, eids);
+    }
 
-        if (resultRegister != null && resultConfigure != null) {
-           return true;
+    /**
+     * Pushes a batch of changed entries to the device. Falls back to a
+     * full copy-config when edit-config is disabled.
+     */
+    private CompletableFuture<Boolean> pushChanges(DeviceId deviceId,
+                                                   PendingChanges changes) {
+        if (!deviceService.isAvailable(deviceId)) {
+            // left unconfirmed, and replayed once the device is back
+            log.info("{} is unavailable; {} changes kept until it reconnects",
+                     deviceId, changes.size());
+            return CompletableFuture.completedFuture(false);
+        }
+        List<ConfigEdit> edits = Lists.newArrayList();
+        CommitCheck check = new CommitCheck();
+
+        if (changes.isFullSync()) {
+            addFullConfig(edits, check, deviceId, store.isItrManaged(deviceId),
+                          store.isEtrManaged(deviceId));
+        } else if (!useEditConfig) {
+            addFullConfig(edits, check, deviceId, !changes.resolvers().isEmpty(),
+                          !changes.eids().isEmpty());
         } else {
-            return false;
+            if (!changes.resolvers().isEmpty()) {
+                edits.add(itrMapResolverEdit(deviceId, changes.resolvers(), check));
+            }
+            if (!changes.eids().isEmpty()) {
+                edits.add(etrEidDatabaseEdit(deviceId, changes, check));
+            }
         }
+
+        return apply(deviceId, edits, check).thenApply(result -> {
+            configCache.invalidate(deviceId);
+            return result;
+        });
     }
 
-    private boolean updateItrMapResolver(DeviceId deviceId){
-        List<String> resolverList = mapResolverMap.get(deviceId);
+    /**
+     * Builds an edit-config of only the given map resolvers; addresses no
+     * longer known to this manager are removed from the device, if present.
+     */
+    private ConfigEdit itrMapResolverEdit(DeviceId deviceId,
+                                          Collection<String> changed,
+                                          CommitCheck check) {
+        List<String> resolverList = getMapResolvers(deviceId);
+
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginItrConfig();
+        changed.forEach(r -> {
+            boolean configured = resolverList.contains(r);
+            writer.mapResolver(r, configured ? Operation.NONE : Operation.REMOVE);
+            check.resolver(r, configured);
+        });
+        writer.endItrConfig();
 
-        StringBuilder builder = new StringBuilder(ITR_HEADER);
-        resolverList.forEach(r -> {
-            builder.append(RESOLVER_BEGIN_TAG);
-            if (IpAddress.valueOf(r).isIp4() ) {
-                builder.append("<ipv4>");
-                builder.append(r);
-                builder.append("</ipv4>");
+        return ConfigEdit.edit(writer);
+    }
+
+    /**
+     * Builds an edit-config of only the changed local EIDs; EIDs no longer
+     * known to this manager are removed from the device, if present, and
+     * EIDs changed in some locators only carry those locators.
+     */
+    private ConfigEdit etrEidDatabaseEdit(DeviceId deviceId,
+                                          PendingChanges changes,
+                                          CommitCheck check) {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginEtrConfig();
+        changes.eids().forEach(id -> {
+            LispMapRecord record = store.getLocalEid(deviceId, IpPrefix.valueOf(id));
+            Set<String> locators = changes.changedLocators(id);
+            check.eid(id, record, locators);
+            if (record != null && locators != null) {
+                writer.localEidLocators(record, locators);
+            } else if (record != null) {
+                writer.localEid(record, Operation.REPLACE);
             } else {
-                builder.append("<ipv6>");
-                builder.append(r);
-                builder.append("</ipv6>");
+                writer.localEidKey(id, Operation.REMOVE);
             }
-            builder.append(RESOLVER_END_TAG);
         });
-        builder.append(ITR_FOOTER);
+        writer.endEtrConfig();
 
-        DriverHandler handler = driverService.createHandler(deviceId);
-        NetconfController controller = handler.get(NetconfController.class);
+        return ConfigEdit.edit(writer);
+    }
 
-        try {
-            return controller.getNetconfDevice(deviceId).getSession()
-                    .copyConfig("running", builder.toString());
-        } catch (NetconfException e) {
-            e.printStackTrace();
+    /**
+     * Adds one copy-config replacing the whole ITR and/or ETR configuration
+     * of the device with the state known to this manager.
+     */
+    private void addFullConfig(List<ConfigEdit> edits, CommitCheck check,
+                               DeviceId deviceId, boolean itr, boolean etr) {
+        if (!itr && !etr) {
+            return;
         }
-       return false;
-    }
 
-    private boolean updateEtrEidDatabase(DeviceId deviceId){
-        List<LispMapRecord> eidDb = eidDbMap.get(deviceId);
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable();
+        if (itr) {
+            List<String> resolvers = getMapResolvers(deviceId);
+            writer.beginItrConfig();
+            resolvers.forEach(r -> writer.mapResolver(r, Operation.NONE));
+            writer.endItrConfig();
+            check.allResolvers(resolvers);
+        }
+        if (etr) {
+            List<LispMapRecord> records = getLocalEids(deviceId);
+            writer.beginEtrConfig();
+            records.forEach(r -> writer.localEid(r, Operation.NONE));
+            writer.endEtrConfig();
+            check.allEids(records);
+        }
 
+        edits.add(ConfigEdit.replace(writer));
+    }
+
+    /**
+     * Applies the edits to the device. When the device supports the
+     * candidate datastore, all edits are staged there and committed in
+     * one step, and the commit is only confirmed once the pushed entries
+     * are read back; otherwise they are applied to the running datastore
+     * one by one.
+     */
+    private CompletableFuture<Boolean> apply(DeviceId deviceId,
+                                             List<ConfigEdit> edits,
+                                             CommitCheck check) {
+        if (edits.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
 
-        StringBuilder builder = new StringBuilder(ETR_HEADER);
-        builder.append(LOCAL_EIDS_HEADER);
-        eidDb.forEach( record -> builder.append(serializeMapRecord(record)));
-        builder.append(LOCAL_EIDS_FOOTER);
-        builder.append(ETR_FOOTER);
+        if (useCandidate && supportsCandidate(deviceId)) {
+            // not idempotent: a commit sent twice may confirm or cancel the
+            // first one, so it is only retried while no session was obtained
+            return push(deviceId, NetconfMetrics.COMMIT, edits, false,
+                        session -> CandidateCommit.apply(
+                                session, sessions.capabilities(deviceId),
+                                confirmTimeoutSec,
+                                s -> write(s, CANDIDATE, edits),
+                                s -> readBack(s, deviceId, check)));
+        }
 
-        DriverHandler handler = driverService.createHandler(deviceId);
-        NetconfController controller = handler.get(NetconfController.class);
+        CompletableFuture<Boolean> result = CompletableFuture.completedFuture(true);
+        for (ConfigEdit edit : edits) {
+            result = result.thenCompose(applied -> push(
+                    deviceId, edit.isReplace() ? NetconfMetrics.COPY_CONFIG :
+                            NetconfMetrics.EDIT_CONFIG,
+                    ImmutableList.of(edit), true,
+                    session -> write(session, RUNNING, ImmutableList.of(edit)))
+                    .thenApply(pushed -> applied && pushed));
+        }
+        return result;
+    }
 
+    private boolean supportsCandidate(DeviceId deviceId) {
         try {
-            log.info(builder.toString());
-            return controller.getNetconfDevice(deviceId).getSession()
-                    .copyConfig("running", builder.toString());
+            return sessions.capabilities(deviceId).candidate();
         } catch (NetconfException e) {
-            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the pushed entries back from the running configuration of the
+     * device and compares them with the intended ones.
+     */
+    private boolean readBack(NetconfSession session, DeviceId deviceId,
+                             CommitCheck check) throws NetconfException {
+        String itrConfig = check.checksItr() ?
+                session.getConfig(RUNNING, ITR_FILTER) : null;
+        String etrConfig = check.checksEtr() ?
+                session.getConfig(RUNNING, ETR_FILTER) : null;
+        try {
+            if (check.matches(itrConfig, etrConfig)) {
+                return true;
+            }
+            log.warn("{} does not hold the pushed entries after the commit", deviceId);
+        } catch (XMLStreamException e) {
+            log.warn("Failed to read back the configuration of {}", deviceId, e);
         }
         return false;
     }
 
-    private  String serializeMapRecord(LispMapRecord mapRecord){
-        StringBuilder strBuilder = new StringBuilder();
-        strBuilder.append("<local-eid>");
+    /**
+     * Writes the edits into the given datastore of the device.
+     */
+    private static boolean write(NetconfSession session, String target,
+                                 List<ConfigEdit> edits) throws NetconfException {
+        for (ConfigEdit edit : edits) {
+            boolean result = edit.isReplace() ?
+                    session.copyConfig(target, edit.document()) :
+                    session.editConfig(target, MERGE, edit.document());
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        //Todo: now only support IPv4
-        strBuilder.append("<eid-address>");
-        if (mapRecord.getEidPrefixAfi().getAfi().getIanaCode() == 1) {
-            strBuilder.append("<afi>").append("ipv4").append("</afi>");
-            strBuilder.append("<ipv4>").append(mapRecord.getEidPrefixAfi().toString()).append("</ipv4>");
+    /**
+     * Sends configuration documents to the device on the push executor and
+     * records the latency, size and outcome of the call.
+     */
+    private CompletableFuture<Boolean> push(DeviceId deviceId, String operation,
+                                            List<ConfigEdit> edits,
+                                            boolean idempotent,
+                                            NetconfCall<Boolean> call) {
+        int length = 0;
+        int entries = 0;
+        for (ConfigEdit edit : edits) {
+            logPayload(operation, deviceId, edit);
+            length += edit.document().length();
+            entries += edit.entries();
         }
-        strBuilder.append("</eid-address>");
 
+        int size = length;
+        int count = entries;
+        long start = System.nanoTime();
+        return invoke(deviceId, pushExecutor, idempotent, call).handle((result, error) -> {
+            if (error != null) {
+                log.warn("{} of {} entries to {} failed", operation,
+                         count, deviceId, error);
+            } else if (!result) {
+                log.warn("{} of {} entries rejected by {}", operation,
+                         count, deviceId);
+            }
 
-        strBuilder.append("<rlocs>");
-        mapRecord.getLocators().forEach(
-                l -> {
-                    strBuilder.append("<rloc>");
-                    if (l.getLocatorAfi().getAfi().getIanaCode() == 1){
-                        strBuilder.append("<locator-address>");
-                        strBuilder.append("<afi>").append("ipv4").append("</afi>");
-                        strBuilder.append("<ipv4>").append(l.getLocatorAfi().toString()).append("</ipv4>");
-                        strBuilder.append("</locator-address>");
-                    }
-                    strBuilder.append("<priority>").append(l.getPriority()).append("</priority>");
-                    strBuilder.append("<weight>").append(l.getWeight()).append("</weight>");
-                    strBuilder.append("</rloc>");
-                }
-        );
-        strBuilder.append("</rlocs>");
+            boolean pushed = error == null && result;
+            long elapsed = System.nanoTime() - start;
+            if (pushed) {
+                metrics.success(deviceId, operation, elapsed, size, count);
+            } else {
+                metrics.failure(deviceId, operation, elapsed, size, count);
+            }
+            return pushed;
+        });
+    }
 
-        strBuilder.append("<record-ttl>").append(mapRecord.getRecordTtl()).append("</record-ttl>");
+    /**
+     * Makes a NETCONF call to the device on the given executor. A call
+     * failing with a transport or session error is retried after a random,
+     * exponentially growing delay kept by the timer, so that no thread
+     * waits for the retry. Calls which are not idempotent are only retried
+     * when no session could be obtained, i.e. before anything was sent.
+     * Calls to a device whose circuit is open fail at once.
+     */
+    private <T> CompletableFuture<T> invoke(DeviceId deviceId, Executor executor,
+                                            boolean idempotent, NetconfCall<T> call) {
+        if (!breaker.allow(deviceId)) {
+            return Tools.exceptionalFuture(new NetconfException(
+                    "Calls to " + deviceId + " are suspended after repeated failures"));
+        }
 
-        strBuilder.append("</local-eid>");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        new RetriedCall<>(deviceId, executor, idempotent, call, future).attempt(1);
+        return future.whenComplete((result, error) -> {
+            if (error == null) {
+                breaker.success(deviceId);
+            } else {
+                breaker.failure(deviceId);
+            }
+        });
+    }
 
-        return strBuilder.toString();
+    private static int lengthOf(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /**
+     * Logs a pushed document at debug level; large documents are logged
+     * by size only.
+     */
+    private void logPayload(String operation, DeviceId deviceId,
+                            ConfigEdit edit) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        if (edit.document().length() <= MAX_LOGGED_PAYLOAD) {
+            log.debug("{} to {}: {}", operation, deviceId, edit.document());
+        } else {
+            log.debug("{} to {}: {} characters", operation, deviceId,
+                      edit.document().length());
+        }
     }
 
+    /**
+     * Returns the key of the local-eid list entry of the given record.
+     */
+    private static String eidId(LispMapRecord mapRecord) {
+        return MapRecords.eidPrefix(mapRecord).toString();
+    }
+
+    /**
+     * A NETCONF request sent over the session of a device.
+     */
+    private interface NetconfCall<T> {
+        T apply(NetconfSession session) throws NetconfException;
+    }
+
+    /**
+     * Attempts of a NETCONF call, each run on the executor of the call and
+     * the retries scheduled on the timer.
+     */
+    private final class RetriedCall<T> {
+        private final DeviceId deviceId;
+        private final Executor executor;
+        private final boolean idempotent;
+        private final NetconfCall<T> call;
+        private final CompletableFuture<T> future;
+
+        private RetriedCall(DeviceId deviceId, Executor executor, boolean idempotent,
+                            NetconfCall<T> call, CompletableFuture<T> future) {
+            this.deviceId = deviceId;
+            this.executor = executor;
+            this.idempotent = idempotent;
+            this.call = call;
+            this.future = future;
+        }
+
+        private void attempt(int attempt) {
+            try {
+                executor.execute(() -> run(attempt));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void run(int attempt) {
+            NetconfSession session;
+            try {
+                session = sessions.session(deviceId);
+            } catch (NetconfException e) {
+                failed(attempt, e, true);
+                return;
+            }
+
+            try {
+                future.complete(call.apply(session));
+            } catch (NetconfException e) {
+                failed(attempt, e, idempotent);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void failed(int attempt, NetconfException e, boolean retry) {
+            sessions.invalidate(deviceId);
+            if (!retry || attempt >= backoff.maxAttempts()) {
+                future.completeExceptionally(e);
+                return;
+            }
+
+            long delayMs = backoff.delayMillis(attempt);
+            log.debug("Attempt {} of a call to {} failed, retrying in {} ms: {}",
+                      attempt, deviceId, delayMs, e.getMessage());
+            try {
+                timer.schedule(() -> attempt(attempt + 1), delayMs,
+                               TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException re) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached session handle of a device that went away or
+     * changed its availability.
+     */
+    private class InternalDeviceListener implements DeviceListener {
+
+        @Override
+        public boolean isRelevant(DeviceEvent event) {
+            return NETCONF_SCHEME.equals(event.subject().id().uri().getScheme());
+        }
+
+        @Override
+        public void event(DeviceEvent event) {
+            switch (event.type()) {
+                case DEVICE_ADDED:
+                    arrived(event.subject().id(), true);
+                    break;
+                case DEVICE_AVAILABILITY_CHANGED:
+                    sessions.invalidate(event.subject().id());
+                    reconciler.forget(event.subject().id());
+                    arrived(event.subject().id(), true);
+                    break;
+                case DEVICE_REMOVED:
+                case DEVICE_UPDATED:
+                    sessions.invalidate(event.subject().id());
+                    reconciler.forget(event.subject().id());
+                    arrived(event.subject().id(), false);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void arrived(DeviceId deviceId, boolean reconnected) {
+            if (!deviceService.isAvailable(deviceId)) {
+                return;
+            }
+            CompletableFuture<Boolean> arrival = arrivals.remove(deviceId);
+            if (arrival != null) {
+                arrival.complete(true);
+            }
+            if (reconnected) {
+                breaker.reset(deviceId);
+                replay(deviceId);
+            }
+        }
+
+        /**
+         * Pushes the changes the device missed while it was away, in one
+         * push built from the state of the store.
+         */
+        private void replay(DeviceId deviceId) {
+            afterBootstrap(deviceId, () -> updateQueue.replay(deviceId))
+                    .whenComplete((result, error) -> {
+                        if (error != null || !result) {
+                            log.warn("Failed to replay changes to {}", deviceId, error);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Drops the cached session handle of a device whose NETCONF session
+     * was opened or closed, and reads the configuration of a newly
+     * connected device.
+     */
+    private class InternalNetconfDeviceListener implements NetconfDeviceListener {
+
+        @Override
+        public void netconfDeviceConnected(DeviceId deviceId) {
+            sessions.invalidate(deviceId);
+            bootstrap(deviceId);
+        }
+
+        @Override
+        public void netconfDeviceDisconnected(DeviceId deviceId) {
+            sessions.invalidate(deviceId);
+        }
+    }
 }
@@ -16,9 +16,17 @@
 
 package kr.ac.postech.lispconfig;
 
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
 import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.net.DeviceId;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 public interface LispConfigService {
 
     /**
@@ -34,6 +42,19 @@ public interface LispConfigService {
     boolean connectDevice(String name, String password, String address,
                           String port);
 
+    /**
+     * Connect many devices through NetConf and push their initial ITR and
+     * ETR configuration. All devices are registered at once; at most
+     * concurrency devices are waited for and configured at the same time.
+     *
+     * @param devices devices of the inventory
+     * @param concurrency maximum number of devices configured at once
+     * @param timeoutSec seconds to wait for a device to come up
+     * @return future of the per-device results, in the order of the devices
+     */
+    CompletableFuture<List<DeviceOperationResult>> connectDevices(
+            List<DeviceInventoryEntry> devices, int concurrency, int timeoutSec);
+
     /**
      * NetConf Get-Config call
      *
@@ -43,7 +64,7 @@ public interface LispConfigService {
     String getConfig(DeviceId deviceId);
 
     /**
-     * NetConf Get-Config call
+     * NetConf Get-Config call which may be answered from the result cache.
      *
      * @param deviceId the target device
      * @param filter the filter XML document
@@ -51,12 +72,24 @@ public interface LispConfigService {
      */
     String getConfigWithFilter(DeviceId deviceId, String filter);
 
+    /**
+     * NetConf Get-Config call which may be answered from the result cache.
+     * The cache of a device is dropped whenever its configuration is pushed.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @param fresh true to bypass the cache and read from the device
+     * @return the get-config result
+     */
+    String getConfigWithFilter(DeviceId deviceId, String filter, boolean fresh);
+
     /**
      * Add Map resolver as an ITR configuration
      *
      * @param deviceId The target device
      * @param address The address of map resolver to add
      * @return true when a map resolver is added successfully
+     * @throws DeviceBusyException when the device refuses further changes for now
      */
     boolean addItrMapResolver(DeviceId deviceId, String address);
 
@@ -66,6 +99,7 @@ public interface LispConfigService {
      * @param deviceId The target device
      * @param address The address of map resolver to remove
      * @return true when a map resolver is removed successfully
+     * @throws DeviceBusyException when the device refuses further changes for now
      */
     boolean removeItrMapResolver(DeviceId deviceId, String address);
 
@@ -75,6 +109,7 @@ public interface LispConfigService {
      * @param deviceId The target device
      * @param record Local EID-RLOC map record
      * @return true when a map resolver is added successfully
+     * @throws DeviceBusyException when the device refuses further changes for now
      */
     boolean addEtrEidDataBase(DeviceId deviceId, LispMapRecord record);
 
@@ -84,6 +119,267 @@ public interface LispConfigService {
      * @param deviceId The target device
      * @param record Local EID-RLOC map record
      * @return true when a map resolver is added successfully
+     * @throws DeviceBusyException when the device refuses further changes for now
      */
     boolean removeEtrEidDataBase(DeviceId deviceId, LispMapRecord record);
+
+    /**
+     * Replace the whole ITR and ETR configuration of the device with the
+     * state known to this service using NetConf copy-config.
+     *
+     * @param deviceId The target device
+     * @return true when the device configuration is replaced successfully
+     * @throws DeviceBusyException when the device refuses further changes for now
+     */
+    boolean resyncDevice(DeviceId deviceId);
+
+    /**
+     * Asynchronously replace the whole ITR and ETR configuration of the
+     * device with the state known to this service, in order with the other
+     * pushes of the device.
+     *
+     * @param deviceId The target device
+     * @return future completed with true when the device configuration is
+     *         replaced, or failed with DeviceBusyException when the device
+     *         refuses further changes for now
+     */
+    CompletableFuture<Boolean> resyncDeviceAsync(DeviceId deviceId);
+
+    /**
+     * Asynchronous NetConf Get-Config call.
+     *
+     * @param deviceId the target device
+     * @return future of the get-config result
+     */
+    CompletableFuture<String> getConfigAsync(DeviceId deviceId);
+
+    /**
+     * Asynchronous NetConf Get-Config call with a filter.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @return future of the get-config result
+     */
+    CompletableFuture<String> getConfigWithFilterAsync(DeviceId deviceId,
+                                                       String filter);
+
+    /**
+     * Asynchronous NetConf Get-Config call which may be answered from the
+     * result cache.
+     *
+     * @param deviceId the target device
+     * @param filter the filter XML document
+     * @param fresh true to bypass the cache and read from the device
+     * @return future of the get-config result
+     */
+    CompletableFuture<String> getConfigWithFilterAsync(DeviceId deviceId,
+                                                       String filter,
+                                                       boolean fresh);
+
+    /**
+     * Asynchronously add Map resolver as an ITR configuration.
+     *
+     * @param deviceId The target device
+     * @param address The address of map resolver to add
+     * @return future completed with true when the map resolver is added
+     */
+    CompletableFuture<Boolean> addItrMapResolverAsync(DeviceId deviceId,
+                                                      String address);
+
+    /**
+     * Asynchronously remove Map resolver as an ITR configuration.
+     *
+     * @param deviceId The target device
+     * @param address The address of map resolver to remove
+     * @return future completed with true when the map resolver is removed
+     */
+    CompletableFuture<Boolean> removeItrMapResolverAsync(DeviceId deviceId,
+                                                         String address);
+
+    /**
+     * Asynchronously add Local EID database as an ETR configuration.
+     *
+     * @param deviceId The target device
+     * @param record Local EID-RLOC map record
+     * @return future completed with true when the record is added
+     */
+    CompletableFuture<Boolean> addEtrEidDataBaseAsync(DeviceId deviceId,
+                                                      LispMapRecord record);
+
+    /**
+     * Asynchronously remove Local EID database as an ETR configuration.
+     *
+     * @param deviceId The target device
+     * @param record Local EID-RLOC map record
+     * @return future completed with true when the record is removed
+     */
+    CompletableFuture<Boolean> removeEtrEidDataBaseAsync(DeviceId deviceId,
+                                                         LispMapRecord record);
+
+    /**
+     * Asynchronously add several Local EID records as an ETR configuration
+     * and push them to the device at once.
+     *
+     * @param deviceId The target device
+     * @param records Local EID-RLOC map records
+     * @return future of the per-record results, in the order of the records;
+     *         false for an invalid record or one whose push failed
+     */
+    CompletableFuture<List<Boolean>> addEtrEidDataBasesAsync(
+            DeviceId deviceId, List<LispMapRecord> records);
+
+    /**
+     * Asynchronously remove several Local EID records from the ETR
+     * configuration and push the removal to the device at once.
+     *
+     * @param deviceId The target device
+     * @param records Local EID-RLOC map records
+     * @return future of the per-record results, in the order of the records;
+     * false for records which were not configured
+     */
+    CompletableFuture<List<Boolean>> removeEtrEidDataBasesAsync(
+            DeviceId deviceId, List<LispMapRecord> records);
+
+    /**
+     * Returns the map resolvers of the device known to this service,
+     * without contacting the device.
+     *
+     * @param deviceId The target device
+     * @return map resolver addresses
+     */
+    List<String> getMapResolvers(DeviceId deviceId);
+
+    /**
+     * Returns the local EID database of the device known to this service,
+     * without contacting the device.
+     *
+     * @param deviceId The target device
+     * @return local EID-RLOC map records
+     */
+    List<LispMapRecord> getLocalEids(DeviceId deviceId);
+
+    /**
+     * Returns a page of the local EID database of the device known to this
+     * service, without contacting the device. Records are ordered by
+     * {@link MapRecords#PREFIX_ORDER}; the EID prefix of the last record
+     * of a page is the cursor of the next one.
+     *
+     * @param deviceId The target device
+     * @param after EID prefix to start after, or null to start at the first
+     *              record
+     * @param limit maximum number of records
+     * @return local EID-RLOC map records
+     */
+    List<LispMapRecord> getLocalEids(DeviceId deviceId, IpPrefix after, int limit);
+
+    /**
+     * Returns the local EID record of the longest prefix holding the given
+     * address, as known to this service, without contacting the device.
+     *
+     * @param deviceId The target device
+     * @param address IP address
+     * @return the record, or null when no local EID prefix holds the address
+     */
+    LispMapRecord getMatchingLocalEid(DeviceId deviceId, IpAddress address);
+
+    /**
+     * Returns the local EID records of the prefixes holding the given
+     * prefix, the prefix itself included, without contacting the device.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records, shortest prefix first
+     */
+    List<LispMapRecord> getCoveringLocalEids(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the local EID records of the prefixes held by the given
+     * prefix, the prefix itself included, without contacting the device.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records in prefix order
+     */
+    List<LispMapRecord> getCoveredLocalEids(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the map resolver addresses whose latest change has not been
+     * confirmed by the device yet.
+     *
+     * @param deviceId The target device
+     * @return unconfirmed map resolver addresses
+     */
+    Set<String> getUnconfirmedMapResolvers(DeviceId deviceId);
+
+    /**
+     * Returns the local EID prefixes whose latest change has not been
+     * confirmed by the device yet.
+     *
+     * @param deviceId The target device
+     * @return unconfirmed local EID prefixes, such as "10.1.0.0/16"
+     */
+    Set<String> getUnconfirmedLocalEids(DeviceId deviceId);
+
+    /**
+     * Add Map resolver to many ITRs, with at most concurrency devices being
+     * configured at the same time.
+     *
+     * @param deviceIds The target devices; all NetConf devices when empty
+     * @param address The address of map resolver to add
+     * @param concurrency maximum number of devices configured at once
+     * @param maxFailures number of failed devices after which the remaining
+     *                    devices are skipped; 0 never stops
+     * @return future of the per-device results
+     */
+    CompletableFuture<List<DeviceOperationResult>> addItrMapResolverToFleet(
+            Collection<DeviceId> deviceIds, String address,
+            int concurrency, int maxFailures);
+
+    /**
+     * Remove Map resolver from many ITRs, with at most concurrency devices
+     * being configured at the same time.
+     *
+     * @param deviceIds The target devices; all NetConf devices when empty
+     * @param address The address of map resolver to remove
+     * @param concurrency maximum number of devices configured at once
+     * @param maxFailures number of failed devices after which the remaining
+     *                    devices are skipped; 0 never stops
+     * @return future of the per-device results
+     */
+    CompletableFuture<List<DeviceOperationResult>> removeItrMapResolverFromFleet(
+            Collection<DeviceId> deviceIds, String address,
+            int concurrency, int maxFailures);
+
+    /**
+     * Get latency, payload and error statistics of the NetConf calls sent
+     * to each device, per NetConf operation.
+     *
+     * @return statistics ordered by device
+     */
+    List<NetconfOperationStats> getNetconfStats();
+
+    /**
+     * Get the number of changed entries of the device waiting to be pushed.
+     *
+     * @param deviceId The target device
+     * @return number of queued entries
+     */
+    int getQueueDepth(DeviceId deviceId);
+
+    /**
+     * Get the number of configuration change requests of the device refused
+     * because the device exceeded its request rate or queue bound.
+     *
+     * @param deviceId The target device
+     * @return number of refused requests
+     */
+    long getRejectedRequests(DeviceId deviceId);
+
+    /**
+     * Get the number of refused configuration change requests of every
+     * device which had requests refused, including devices never called.
+     *
+     * @return number of refused requests, by device
+     */
+    Map<DeviceId, Long> getRejectedRequests();
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+
+/**
+ * Store of the intended map resolvers and local EID databases of the
+ * LISP devices. Reads are served from the local instance.
+ */
+public interface LispConfigStore {
+
+    /**
+     * Adds a map resolver to the device.
+     *
+     * @param deviceId The target device
+     * @param address The address of map resolver to add
+     * @return false when the map resolver already exists
+     */
+    boolean addMapResolver(DeviceId deviceId, String address);
+
+    /**
+     * Removes a map resolver from the device.
+     *
+     * @param deviceId The target device
+     * @param address The address of map resolver to remove
+     * @return false when the map resolver did not exist
+     */
+    boolean removeMapResolver(DeviceId deviceId, String address);
+
+    /**
+     * Returns the map resolvers of the device.
+     *
+     * @param deviceId The target device
+     * @return map resolver addresses in insertion order
+     */
+    List<String> getMapResolvers(DeviceId deviceId);
+
+    /**
+     * Adds a local EID record to the device, merging its locators into an
+     * existing record of the same EID prefix.
+     *
+     * @param deviceId The target device
+     * @param record local EID-RLOC map record
+     * @return difference between the stored record before and after the
+     * merge; nothing is written when it is empty
+     */
+    MapRecordDiff mergeLocalEid(DeviceId deviceId, LispMapRecord record);
+
+    /**
+     * Removes the local EID record of the given EID prefix from the device.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return false when no record of the prefix existed
+     */
+    boolean removeLocalEid(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the local EID record of exactly the given EID prefix.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return the record, or null
+     */
+    LispMapRecord getLocalEid(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the local EID record of the longest prefix holding the given
+     * address.
+     *
+     * @param deviceId The target device
+     * @param address IP address
+     * @return the record, or null when no prefix holds the address
+     */
+    LispMapRecord getMatchingLocalEid(DeviceId deviceId, IpAddress address);
+
+    /**
+     * Returns the local EID records of the prefixes holding the given
+     * prefix, the prefix itself included.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records, shortest prefix first
+     */
+    List<LispMapRecord> getCoveringLocalEids(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the local EID records of the prefixes held by the given
+     * prefix, the prefix itself included.
+     *
+     * @param deviceId The target device
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records in prefix order
+     */
+    List<LispMapRecord> getCoveredLocalEids(DeviceId deviceId, IpPrefix prefix);
+
+    /**
+     * Returns the local EID database of the device.
+     *
+     * @param deviceId The target device
+     * @return local EID-RLOC map records in prefix order
+     */
+    List<LispMapRecord> getLocalEids(DeviceId deviceId);
+
+    /**
+     * Returns a page of the local EID database of the device.
+     *
+     * @param deviceId The target device
+     * @param after EID prefix to start after, or null to start at the first
+     *              record; it need not be in the database
+     * @param limit maximum number of records
+     * @return local EID-RLOC map records in prefix order
+     */
+    List<LispMapRecord> getLocalEids(DeviceId deviceId, IpPrefix after, int limit);
+
+    /**
+     * Returns whether map resolvers of the device were ever changed, i.e.
+     * whether a full push of the ITR configuration is meaningful.
+     *
+     * @param deviceId The target device
+     * @return true when the ITR configuration is managed
+     */
+    boolean isItrManaged(DeviceId deviceId);
+
+    /**
+     * Returns whether local EIDs of the device were ever changed, i.e.
+     * whether a full push of the ETR configuration is meaningful.
+     *
+     * @param deviceId The target device
+     * @return true when the ETR configuration is managed
+     */
+    boolean isEtrManaged(DeviceId deviceId);
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Lists;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Streaming reader of lispsimple get-config replies. Elements are matched
+ * by local name, so the reply may be wrapped in rpc-reply/data or not.
+ * Entries which cannot be converted are skipped.
+ */
+public final class LispSimpleXmlReader {
+
+    private static final Logger log = LoggerFactory.getLogger(LispSimpleXmlReader.class);
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private LispSimpleXmlReader() {
+    }
+
+    /**
+     * Reads the map resolver addresses of an itr-cfg document.
+     *
+     * @param xml get-config reply
+     * @return map resolver addresses in document order
+     * @throws XMLStreamException when the document is not well-formed
+     */
+    public static List<String> mapResolvers(String xml) throws XMLStreamException {
+        List<String> resolvers = Lists.newArrayList();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+        Deque<String> path = new ArrayDeque<>();
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (isAddress(name) && "map-resolver-address".equals(path.peek())) {
+                        String address = reader.getElementText().trim();
+                        if (isIpAddress(address)) {
+                            resolvers.add(address);
+                        } else {
+                            log.warn("Skipping invalid map resolver address {}", address);
+                        }
+                    } else {
+                        path.push(name);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return resolvers;
+    }
+
+    /**
+     * Reads the local EID records of an etr-cfg document.
+     *
+     * @param xml get-config reply
+     * @return local EID-RLOC map records in document order
+     * @throws XMLStreamException when the document is not well-formed
+     */
+    public static List<LispMapRecord> localEids(String xml) throws XMLStreamException {
+        List<LispMapRecord> records = Lists.newArrayList();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+        Deque<String> path = new ArrayDeque<>();
+        EidEntry eid = null;
+        RlocEntry rloc = null;
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String parent = path.peek();
+                    if (eid != null && rloc != null && isRlocLeaf(name, parent)) {
+                        rloc.set(name, reader.getElementText().trim());
+                    } else if (eid != null && rloc == null && isEidLeaf(name, parent)) {
+                        eid.set(name, reader.getElementText().trim());
+                    } else {
+                        if ("local-eid".equals(name)) {
+                            eid = new EidEntry();
+                        } else if ("rloc".equals(name) && eid != null) {
+                            rloc = new RlocEntry();
+                        }
+                        path.push(name);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = path.pop();
+                    if ("rloc".equals(name) && eid != null && rloc != null) {
+                        eid.locators.add(rloc);
+                        rloc = null;
+                    } else if ("local-eid".equals(name) && eid != null) {
+                        LispMapRecord record = eid.build();
+                        if (record != null) {
+                            records.add(record);
+                        }
+                        eid = null;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return records;
+    }
+
+    private static boolean isAddress(String name) {
+        return "ipv4".equals(name) || "ipv6".equals(name);
+    }
+
+    private static boolean isEidLeaf(String name, String parent) {
+        return "local-eid".equals(parent) && ("id".equals(name) || "record-ttl".equals(name)) ||
+                "eid-address".equals(parent) && isAddress(name);
+    }
+
+    private static boolean isRlocLeaf(String name, String parent) {
+        return "rloc".equals(parent) && ("name".equals(name) || "priority".equals(name) ||
+                "weight".equals(name)) ||
+                "locator-address".equals(parent) && isAddress(name);
+    }
+
+    private static boolean isIpAddress(String address) {
+        try {
+            IpAddress.valueOf(address);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Leaves of a local-eid entry collected while reading it.
+     */
+    private static final class EidEntry {
+        private String id;
+        private String address;
+        private String ttl;
+        private final List<RlocEntry> locators = Lists.newArrayList();
+
+        private void set(String name, String value) {
+            switch (name) {
+                case "id":
+                    id = value;
+                    break;
+                case "record-ttl":
+                    ttl = value;
+                    break;
+                default:
+                    address = value;
+                    break;
+            }
+        }
+
+        private LispMapRecord build() {
+            try {
+                IpPrefix prefix = IpPrefix.valueOf(id);
+                List<LispLocator> lispLocators = Lists.newArrayList();
+                for (RlocEntry l : locators) {
+                    lispLocators.add(l.build());
+                }
+
+                DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                        new DefaultLispMapRecord.DefaultMapRecordBuilder();
+                builder.withEidPrefixAfi(MapRecords.afiAddress(address != null ? address :
+                                                            prefix.address().toString()));
+                builder.withMaskLength((byte) prefix.prefixLength());
+                builder.withRecordTtl(ttl == null ? 0 : Integer.parseInt(ttl));
+                builder.withLocators(lispLocators);
+                return builder.build();
+            } catch (IllegalArgumentException | NullPointerException e) {
+                log.warn("Skipping invalid local-eid {}: {}", id, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Leaves of an rloc entry collected while reading it.
+     */
+    private static final class RlocEntry {
+        private String name;
+        private String address;
+        private String priority;
+        private String weight;
+
+        private void set(String leaf, String value) {
+            switch (leaf) {
+                case "name":
+                    name = value;
+                    break;
+                case "priority":
+                    priority = value;
+                    break;
+                case "weight":
+                    weight = value;
+                    break;
+                default:
+                    address = value;
+                    break;
+            }
+        }
+
+        private LispLocator build() {
+            DefaultLispLocator.DefaultLocatorBuilder builder =
+                    new DefaultLispLocator.DefaultLocatorBuilder();
+            builder.withLocatorAfi(MapRecords.afiAddress(address != null ? address : name));
+            builder.withPriority((byte) Integer.parseInt(priority));
+            builder.withWeight((byte) Integer.parseInt(weight));
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+
+import java.util.Set;
+
+/**
+ * Writes lispsimple ITR and ETR configuration documents directly into one
+ * character buffer, without building intermediate strings per entry.
+ *
+ * A writer obtained from {@link #reusable()} shares a buffer with the
+ * other writers of the calling thread; the document must be consumed
+ * before the thread asks for the next writer.
+ */
+public final class LispSimpleXmlWriter {
+
+    /**
+     * NetConf operation attached to a written list entry. Entries are taken
+     * out with remove rather than delete, so removing an entry the device
+     * no longer has does not fail the whole edit-config.
+     */
+    public enum Operation {
+        NONE(""),
+        REPLACE(" xmlns:nc=\"urn:ietf:params:xml:ns:netconf:base:1.0\"" +
+                        " nc:operation=\"replace\""),
+        REMOVE(" xmlns:nc=\"urn:ietf:params:xml:ns:netconf:base:1.0\"" +
+                       " nc:operation=\"remove\"");
+
+        private final String attribute;
+
+        Operation(String attribute) {
+            this.attribute = attribute;
+        }
+    }
+
+    private static final String ITR_HEADER = "<itr-cfg xmlns=\"urn:ietf:params:" +
+            "xml:ns:yang:lispsimple\">\n<map-resolvers>\n<map-resolver>" +
+            "<id>default</id>\n";
+    private static final String ITR_FOOTER = "</map-resolver>\n</map-resolvers>\n</itr-cfg>\n";
+    private static final String RESOLVER_END_TAG = "</map-resolver-address>\n";
+
+    private static final String ETR_HEADER = "<etr-cfg xmlns=\"urn:ietf:params:" +
+            "xml:ns:yang:lispsimple\"><local-eids>";
+    private static final String ETR_FOOTER = "</local-eids></etr-cfg>\n";
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private final StringBuilder out;
+    private int entries;
+
+    /**
+     * Creates a writer appending to the given buffer.
+     *
+     * @param out buffer to write into
+     */
+    public LispSimpleXmlWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Returns a writer on the emptied buffer of the calling thread. A
+     * buffer which grew beyond a few megabytes is released instead of
+     * being kept for the lifetime of the thread.
+     *
+     * @return writer on an empty buffer
+     */
+    public static LispSimpleXmlWriter reusable() {
+        StringBuilder buffer = BUFFER.get();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(INITIAL_CAPACITY);
+            BUFFER.set(buffer);
+        }
+        buffer.setLength(0);
+        return new LispSimpleXmlWriter(buffer);
+    }
+
+    public LispSimpleXmlWriter beginItrConfig() {
+        out.append(ITR_HEADER);
+        return this;
+    }
+
+    public LispSimpleXmlWriter endItrConfig() {
+        out.append(ITR_FOOTER);
+        return this;
+    }
+
+    public LispSimpleXmlWriter beginEtrConfig() {
+        out.append(ETR_HEADER);
+        return this;
+    }
+
+    public LispSimpleXmlWriter endEtrConfig() {
+        out.append(ETR_FOOTER);
+        return this;
+    }
+
+    /**
+     * Writes a map resolver address entry.
+     *
+     * @param address map resolver address
+     * @param operation operation of the entry
+     * @return this writer
+     */
+    public LispSimpleXmlWriter mapResolver(String address, Operation operation) {
+        out.append("<map-resolver-address").append(operation.attribute).append('>');
+        if (IpAddress.valueOf(address).isIp4()) {
+            out.append("<ipv4>").append(address).append("</ipv4>");
+        } else {
+            out.append("<ipv6>").append(address).append("</ipv6>");
+        }
+        out.append(RESOLVER_END_TAG);
+        entries++;
+        return this;
+    }
+
+    /**
+     * Writes a local-eid entry carrying only its key.
+     *
+     * @param id local EID id
+     * @param operation operation of the entry
+     * @return this writer
+     */
+    public LispSimpleXmlWriter localEidKey(String id, Operation operation) {
+        out.append("<local-eid").append(operation.attribute).append("><id>")
+                .append(id).append("</id></local-eid>");
+        entries++;
+        return this;
+    }
+
+    /**
+     * Writes a complete local-eid entry.
+     *
+     * @param mapRecord local EID-RLOC map record
+     * @param operation operation of the entry
+     * @return this writer
+     */
+    public LispSimpleXmlWriter localEid(LispMapRecord mapRecord, Operation operation) {
+        out.append("<local-eid").append(operation.attribute).append('>');
+        out.append("<id>").append(MapRecords.eidPrefix(mapRecord)).append("</id>");
+
+        out.append("<eid-address>");
+        address(mapRecord.getEidPrefixAfi());
+        out.append("</eid-address>");
+
+        out.append("<rlocs>");
+        mapRecord.getLocators().forEach(this::rloc);
+        out.append("</rlocs>");
+
+        out.append("<record-ttl>").append(mapRecord.getRecordTtl()).append("</record-ttl>");
+        out.append("</local-eid>");
+        entries++;
+        return this;
+    }
+
+    /**
+     * Writes a local-eid entry carrying only the given locators, to be
+     * merged into the entry held by the device.
+     *
+     * @param mapRecord local EID-RLOC map record
+     * @param names names of the locators to write
+     * @return this writer
+     */
+    public LispSimpleXmlWriter localEidLocators(LispMapRecord mapRecord,
+                                                Set<String> names) {
+        out.append("<local-eid>");
+        out.append("<id>").append(MapRecords.eidPrefix(mapRecord)).append("</id>");
+
+        out.append("<rlocs>");
+        mapRecord.getLocators().stream()
+                .filter(l -> names.contains(l.getLocatorAfi().toString()))
+                .forEach(this::rloc);
+        out.append("</rlocs>");
+
+        out.append("<record-ttl>").append(mapRecord.getRecordTtl()).append("</record-ttl>");
+        out.append("</local-eid>");
+        entries++;
+        return this;
+    }
+
+    private void rloc(LispLocator l) {
+        out.append("<rloc>");
+        out.append("<name>").append(l.getLocatorAfi()).append("</name>");
+        out.append("<locator-address>");
+        address(l.getLocatorAfi());
+        out.append("</locator-address>");
+        out.append("<priority>").append(l.getPriority() & 0xff).append("</priority>");
+        out.append("<weight>").append(l.getWeight() & 0xff).append("</weight>");
+        out.append("</rloc>");
+    }
+
+    /**
+     * Writes the afi and address leaves of an IPv4 or IPv6 address.
+     */
+    private void address(LispAfiAddress address) {
+        if (address instanceof LispIpv4Address) {
+            out.append("<afi>ipv4</afi><ipv4>").append(address).append("</ipv4>");
+        } else if (address instanceof LispIpv6Address) {
+            out.append("<afi>ipv6</afi><ipv6>").append(address).append("</ipv6>");
+        } else {
+            throw new IllegalArgumentException("Unsupported LISP address " + address);
+        }
+    }
+
+    /**
+     * Returns the number of characters written so far.
+     *
+     * @return document length
+     */
+    public int length() {
+        return out.length();
+    }
+
+    /**
+     * Returns the number of map resolver and local-eid entries written so far.
+     *
+     * @return number of entries
+     */
+    public int entries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Difference between two versions of the local EID record of a prefix:
+ * the locators added, removed, or whose priority or weight changed.
+ */
+public final class MapRecordDiff {
+
+    private final IpPrefix prefix;
+    private final LispMapRecord record;
+    private final boolean created;
+    private final boolean ttlChanged;
+    private final List<LispLocator> added;
+    private final List<LispLocator> removed;
+    private final List<LispLocator> changed;
+
+    /**
+     * Creates a record difference.
+     *
+     * @param prefix EID prefix of the record
+     * @param record the new version of the record
+     * @param created true when there was no previous version
+     * @param ttlChanged true when the record TTL changed
+     * @param added locators of new addresses
+     * @param removed locators whose address is gone
+     * @param changed new versions of locators whose priority or weight changed
+     */
+    public MapRecordDiff(IpPrefix prefix, LispMapRecord record,
+                         boolean created, boolean ttlChanged,
+                         List<LispLocator> added, List<LispLocator> removed,
+                         List<LispLocator> changed) {
+        this.prefix = prefix;
+        this.record = record;
+        this.created = created;
+        this.ttlChanged = ttlChanged;
+        this.added = ImmutableList.copyOf(added);
+        this.removed = ImmutableList.copyOf(removed);
+        this.changed = ImmutableList.copyOf(changed);
+    }
+
+    public IpPrefix prefix() {
+        return prefix;
+    }
+
+    public LispMapRecord record() {
+        return record;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public boolean isTtlChanged() {
+        return ttlChanged;
+    }
+
+    public List<LispLocator> added() {
+        return added;
+    }
+
+    public List<LispLocator> removed() {
+        return removed;
+    }
+
+    public List<LispLocator> changed() {
+        return changed;
+    }
+
+    /**
+     * Returns whether both versions configure a device the same way.
+     *
+     * @return true when nothing changed
+     */
+    public boolean isEmpty() {
+        return !created && !ttlChanged && added.isEmpty() &&
+                removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Returns the names of the added and changed locators, in the form of
+     * the rloc list keys of lispsimple.
+     *
+     * @return locator names
+     */
+    public Set<String> changedLocatorNames() {
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        added.forEach(l -> names.add(l.getLocatorAfi().toString()));
+        changed.forEach(l -> names.add(l.getLocatorAfi().toString()));
+        return names.build();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("prefix", prefix)
+                .add("created", created)
+                .add("ttlChanged", ttlChanged)
+                .add("added", added.size())
+                .add("removed", removed.size())
+                .add("changed", changed.size())
+                .toString();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Utilities for local EID-RLOC map records.
+ */
+public final class MapRecords {
+
+    /**
+     * Record TTL, in minutes, of records which do not specify one.
+     */
+    public static final int DEFAULT_TTL = 1;
+
+    /**
+     * Order in which local EID databases are kept and paged through: IPv4
+     * before IPv6 prefixes, then by prefix address and mask length.
+     */
+    public static final Comparator<IpPrefix> PREFIX_ORDER =
+            Comparator.comparing(IpPrefix::address)
+                    .thenComparingInt(IpPrefix::prefixLength);
+
+    private MapRecords() {
+    }
+
+    /**
+     * Returns the EID prefix of the given record. Its string form is the
+     * id of the local-eid list entry of the record.
+     *
+     * @param mapRecord map record
+     * @return EID prefix made of the EID address and mask length
+     * @throws IllegalArgumentException when the EID is not an IP address
+     */
+    public static IpPrefix eidPrefix(LispMapRecord mapRecord) {
+        LispAfiAddress eid = mapRecord.getEidPrefixAfi();
+        checkArgument(eid instanceof LispIpAddress,
+                      "Unsupported EID address %s", eid);
+        return IpPrefix.valueOf(((LispIpAddress) eid).getAddress(),
+                               mapRecord.getMaskLength() & 0xff);
+    }
+
+    /**
+     * Returns the LISP address of an IPv4 or IPv6 address string.
+     *
+     * @param address IP address
+     * @return IPv4 or IPv6 LISP address
+     * @throws IllegalArgumentException when the address is not an IP address
+     */
+    public static LispAfiAddress afiAddress(String address) {
+        IpAddress ip = IpAddress.valueOf(address);
+        return ip.isIp4() ? new LispIpv4Address(ip) : new LispIpv6Address(ip);
+    }
+
+    /**
+     * Builds a record out of its fields, checking their ranges. A negative
+     * mask length stands for a host prefix.
+     *
+     * @param eid EID address
+     * @param maskLength mask length; at most 32 for IPv4 and 128 for IPv6
+     * @param ttl record TTL in minutes
+     * @param locators locators of the record
+     * @return map record
+     * @throws IllegalArgumentException when a field is missing or out of range
+     */
+    public static LispMapRecord record(String eid, int maskLength, int ttl,
+                                       List<LispLocator> locators) {
+        checkArgument(eid != null, "eid is missing");
+        LispAfiAddress eidAddress = afiAddress(eid);
+        int maxMask = eidAddress instanceof LispIpv4Address ? 32 : 128;
+        if (maskLength < 0) {
+            maskLength = maxMask;
+        }
+        checkRange("eid_mask", maskLength, maxMask);
+
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(eidAddress);
+        builder.withMaskLength((byte) maskLength);
+        builder.withRecordTtl(ttl);
+        builder.withLocators(locators);
+
+        return builder.build();
+    }
+
+    /**
+     * Builds a locator out of its fields, checking their ranges.
+     *
+     * @param rloc RLOC address
+     * @param priority priority, 0 to 255
+     * @param weight weight, 0 to 255
+     * @return locator
+     * @throws IllegalArgumentException when a field is missing or out of range
+     */
+    public static LispLocator locator(String rloc, int priority, int weight) {
+        checkArgument(rloc != null, "rloc is missing");
+        checkRange("priority", priority, 255);
+        checkRange("weight", weight, 255);
+
+        DefaultLispLocator.DefaultLocatorBuilder builder =
+                new DefaultLispLocator.DefaultLocatorBuilder();
+        builder.withLocatorAfi(afiAddress(rloc));
+        builder.withPriority((byte) priority);
+        builder.withWeight((byte) weight);
+
+        return builder.build();
+    }
+
+    private static void checkRange(String name, int value, int max) {
+        checkArgument(value >= 0 && value <= max,
+                      "%s must be between 0 and %s", name, max);
+    }
+
+    /**
+     * Merges the locators of a new record into an existing record of the
+     * same EID prefix. Locators of the new record replace the existing
+     * ones with the same address; other existing locators are kept.
+     *
+     * @param oldRecord existing record, or null
+     * @param record new record
+     * @return the merged record; the existing record itself when the new
+     * record changes nothing
+     */
+    public static LispMapRecord merge(LispMapRecord oldRecord, LispMapRecord record) {
+        if (oldRecord == null) {
+            return record;
+        }
+
+        Map<LispAfiAddress, LispLocator> locators = byAddress(oldRecord);
+        boolean changed = oldRecord.getRecordTtl() != record.getRecordTtl();
+        for (LispLocator l : record.getLocators()) {
+            LispLocator old = locators.put(l.getLocatorAfi(), l);
+            changed |= old == null || !sameLocator(old, l);
+        }
+        if (!changed) {
+            return oldRecord;
+        }
+
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+
+        builder.withEidPrefixAfi(record.getEidPrefixAfi());
+        builder.withMaskLength(record.getMaskLength());
+        builder.withRecordTtl(record.getRecordTtl());
+        builder.withLocators(Lists.newArrayList(locators.values()));
+
+        return builder.build();
+    }
+
+    /**
+     * Compares two versions of the record of an EID prefix, matching their
+     * locators by address.
+     *
+     * @param oldRecord previous version, or null
+     * @param record new version
+     * @return difference between the versions
+     */
+    public static MapRecordDiff diff(LispMapRecord oldRecord, LispMapRecord record) {
+        IpPrefix prefix = eidPrefix(record);
+        if (oldRecord == null) {
+            return new MapRecordDiff(prefix, record, true, false,
+                                     record.getLocators(), ImmutableList.of(),
+                                     ImmutableList.of());
+        }
+        if (oldRecord == record) {
+            return new MapRecordDiff(prefix, record, false, false,
+                                     ImmutableList.of(), ImmutableList.of(),
+                                     ImmutableList.of());
+        }
+
+        Map<LispAfiAddress, LispLocator> old = byAddress(oldRecord);
+        List<LispLocator> added = Lists.newArrayList();
+        List<LispLocator> changed = Lists.newArrayList();
+        for (LispLocator l : record.getLocators()) {
+            LispLocator o = old.remove(l.getLocatorAfi());
+            if (o == null) {
+                added.add(l);
+            } else if (!sameLocator(o, l)) {
+                changed.add(l);
+            }
+        }
+
+        return new MapRecordDiff(prefix, record, false,
+                                 oldRecord.getRecordTtl() != record.getRecordTtl(),
+                                 added, Lists.newArrayList(old.values()), changed);
+    }
+
+    /**
+     * Returns whether two records carry the same lispsimple configuration:
+     * EID prefix, TTL and the same set of locators with equal priority and
+     * weight. Fields not modelled by lispsimple are ignored.
+     *
+     * @param a map record
+     * @param b map record
+     * @return true when both records configure a device the same way
+     */
+    public static boolean equivalent(LispMapRecord a, LispMapRecord b) {
+        return eidPrefix(a).equals(eidPrefix(b)) && diff(a, b).isEmpty();
+    }
+
+    private static Map<LispAfiAddress, LispLocator> byAddress(LispMapRecord record) {
+        Map<LispAfiAddress, LispLocator> locators =
+                Maps.newLinkedHashMapWithExpectedSize(record.getLocators().size());
+        record.getLocators().forEach(l -> locators.put(l.getLocatorAfi(), l));
+        return locators;
+    }
+
+    private static boolean sameLocator(LispLocator a, LispLocator b) {
+        return a.getPriority() == b.getPriority() && a.getWeight() == b.getWeight();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.net.DeviceId;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Latency, payload and error metrics of the NETCONF calls of each device,
+ * registered with the ONOS metrics service.
+ */
+final class NetconfMetrics {
+
+    static final String GET_CONFIG = "get-config";
+    static final String COPY_CONFIG = "copy-config";
+    static final String EDIT_CONFIG = "edit-config";
+    static final String COMMIT = "commit";
+
+    private static final String COMPONENT = "LispConfig";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String REJECTED = "rejected";
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MetricsService metricsService;
+    private final MetricsComponent component;
+    private final ToIntFunction<DeviceId> queueDepth;
+    private final ToLongFunction<DeviceId> rejected;
+    private final Map<Map.Entry<DeviceId, String>, OperationMetrics> operations =
+            Maps.newConcurrentMap();
+    private final Map<DeviceId, MetricsFeature> devices = Maps.newConcurrentMap();
+
+    /**
+     * Creates the metrics of the application.
+     *
+     * @param metricsService the ONOS metrics service
+     * @param queueDepth number of changes of a device waiting for a push
+     * @param rejected number of refused change requests of a device
+     */
+    NetconfMetrics(MetricsService metricsService,
+                   ToIntFunction<DeviceId> queueDepth,
+                   ToLongFunction<DeviceId> rejected) {
+        this.metricsService = metricsService;
+        this.component = metricsService.registerComponent(COMPONENT);
+        this.queueDepth = queueDepth;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Registers the gauges of a device which had a request refused, so that
+     * a device whose every request was refused is listed too.
+     *
+     * @param deviceId the device
+     */
+    void rejected(DeviceId deviceId) {
+        feature(deviceId);
+    }
+
+    /**
+     * Records a completed call.
+     *
+     * @param deviceId the device
+     * @param operation NETCONF operation
+     * @param nanos latency in nanoseconds
+     * @param bytes payload characters sent or received
+     * @param records entries sent
+     */
+    void success(DeviceId deviceId, String operation, long nanos,
+                 int bytes, int records) {
+        record(deviceId, operation, nanos, bytes, records);
+    }
+
+    /**
+     * Records a failed or rejected call.
+     *
+     * @param deviceId the device
+     * @param operation NETCONF operation
+     * @param nanos latency in nanoseconds
+     * @param bytes payload characters sent
+     * @param records entries sent
+     */
+    void failure(DeviceId deviceId, String operation, long nanos,
+                 int bytes, int records) {
+        record(deviceId, operation, nanos, bytes, records).errors.inc();
+    }
+
+    private OperationMetrics record(DeviceId deviceId, String operation,
+                                    long nanos, int bytes, int records) {
+        OperationMetrics metrics = metrics(deviceId, operation);
+        metrics.latency.update(nanos, TimeUnit.NANOSECONDS);
+        metrics.bytes.inc(bytes);
+        metrics.records.inc(records);
+        return metrics;
+    }
+
+    /**
+     * Returns a snapshot of every device and operation, ordered by device.
+     *
+     * @return operation snapshots
+     */
+    List<NetconfOperationStats> snapshot() {
+        List<NetconfOperationStats> stats = Lists.newArrayList();
+        operations.forEach((key, metrics) -> {
+            Snapshot latency = metrics.latency.getSnapshot();
+            stats.add(new NetconfOperationStats(
+                    key.getKey(), key.getValue(), metrics.latency.getCount(),
+                    metrics.errors.getCount(),
+                    latency.getMedian() / NANOS_PER_MILLI,
+                    latency.get99thPercentile() / NANOS_PER_MILLI,
+                    latency.getMax() / NANOS_PER_MILLI,
+                    metrics.bytes.getCount(), metrics.records.getCount()));
+        });
+        stats.sort(Comparator.comparing((NetconfOperationStats s) -> s.deviceId().toString())
+                           .thenComparing(NetconfOperationStats::operation));
+        return stats;
+    }
+
+    /**
+     * Unregisters every metric from the metrics service.
+     */
+    void removeAll() {
+        operations.forEach((key, metrics) -> {
+            MetricsFeature feature = devices.get(key.getKey());
+            String operation = key.getValue();
+            metricsService.removeMetric(component, feature, operation + ".latency");
+            metricsService.removeMetric(component, feature, operation + ".errors");
+            metricsService.removeMetric(component, feature, operation + ".bytes");
+            metricsService.removeMetric(component, feature, operation + ".records");
+        });
+        devices.values().forEach(feature -> {
+            metricsService.removeMetric(component, feature, QUEUE_DEPTH);
+            metricsService.removeMetric(component, feature, REJECTED);
+        });
+        operations.clear();
+        devices.clear();
+    }
+
+    private OperationMetrics metrics(DeviceId deviceId, String operation) {
+        return operations.computeIfAbsent(
+                Maps.immutableEntry(deviceId, operation),
+                key -> new OperationMetrics(feature(deviceId), operation));
+    }
+
+    private MetricsFeature feature(DeviceId deviceId) {
+        return devices.computeIfAbsent(deviceId, id -> {
+            MetricsFeature feature = component.registerFeature(id.toString());
+            metricsService.registerMetric(component, feature, QUEUE_DEPTH,
+                                          (Gauge<Integer>) () -> queueDepth.applyAsInt(id));
+            metricsService.registerMetric(component, feature, REJECTED,
+                                          (Gauge<Long>) () -> rejected.applyAsLong(id));
+            return feature;
+        });
+    }
+
+    /**
+     * Metrics of one operation of one device.
+     */
+    private final class OperationMetrics {
+        private final Timer latency;
+        private final Counter errors;
+        private final Counter bytes;
+        private final Counter records;
+
+        private OperationMetrics(MetricsFeature feature, String operation) {
+            latency = metricsService.createTimer(component, feature, operation + ".latency");
+            errors = metricsService.createCounter(component, feature, operation + ".errors");
+            bytes = metricsService.createCounter(component, feature, operation + ".bytes");
+            records = metricsService.createCounter(component, feature, operation + ".records");
+        }
+    }
+}
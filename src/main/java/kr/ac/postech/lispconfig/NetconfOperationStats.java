@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.net.DeviceId;
+
+/**
+ * Snapshot of the NETCONF calls of one operation type sent to one device.
+ */
+public final class NetconfOperationStats {
+
+    private final DeviceId deviceId;
+    private final String operation;
+    private final long count;
+    private final long errors;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+    private final long bytes;
+    private final long records;
+
+    /**
+     * Creates a NETCONF operation snapshot.
+     *
+     * @param deviceId the device
+     * @param operation NETCONF operation, e.g. edit-config
+     * @param count number of calls
+     * @param errors number of failed calls
+     * @param p50Millis median latency in milliseconds
+     * @param p99Millis 99th percentile latency in milliseconds
+     * @param maxMillis maximum latency in milliseconds
+     * @param bytes payload characters sent or received
+     * @param records map resolver and local-eid entries sent
+     */
+    public NetconfOperationStats(DeviceId deviceId, String operation,
+                                 long count, long errors, double p50Millis,
+                                 double p99Millis, double maxMillis,
+                                 long bytes, long records) {
+        this.deviceId = deviceId;
+        this.operation = operation;
+        this.count = count;
+        this.errors = errors;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+        this.bytes = bytes;
+        this.records = records;
+    }
+
+    public DeviceId deviceId() {
+        return deviceId;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    public double p50Millis() {
+        return p50Millis;
+    }
+
+    public double p99Millis() {
+        return p99Millis;
+    }
+
+    public double maxMillis() {
+        return maxMillis;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("deviceId", deviceId)
+                .add("operation", operation)
+                .add("count", count)
+                .add("errors", errors)
+                .add("p50Millis", p50Millis)
+                .add("p99Millis", p99Millis)
+                .add("maxMillis", maxMillis)
+                .add("bytes", bytes)
+                .add("records", records)
+                .toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.onosproject.netconf.NetconfController;
+import org.onosproject.netconf.NetconfDevice;
+import org.onosproject.netconf.NetconfException;
+import org.onosproject.netconf.NetconfSession;
+
+import java.util.Map;
+
+/**
+ * Per-device cache of NETCONF device handles, so that an RPC does not
+ * have to look the device up through the controller every time. A cached
+ * handle is checked before use and resolved again once its session is no
+ * longer active.
+ */
+final class NetconfSessionCache {
+
+    private final NetconfController controller;
+    private final Map<DeviceId, NetconfDevice> devices = Maps.newConcurrentMap();
+    private final Map<DeviceId, DatastoreCapabilities> capabilities =
+            Maps.newConcurrentMap();
+
+    NetconfSessionCache(NetconfController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Returns an active NETCONF session of the device.
+     *
+     * @param deviceId the target device
+     * @return the session of the device
+     * @throws NetconfException when the device is not connected
+     */
+    NetconfSession session(DeviceId deviceId) throws NetconfException {
+        NetconfDevice device = devices.get(deviceId);
+        if (device == null || !device.isActive()) {
+            device = resolve(deviceId);
+        }
+        return device.getSession();
+    }
+
+    private NetconfDevice resolve(DeviceId deviceId) throws NetconfException {
+        NetconfDevice device = controller.getNetconfDevice(deviceId);
+        if (device == null || !device.isActive()) {
+            devices.remove(deviceId);
+            throw new NetconfException("No active NETCONF session for " + deviceId);
+        }
+        devices.put(deviceId, device);
+        capabilities.remove(deviceId);
+        return device;
+    }
+
+    /**
+     * Returns the datastore capabilities the device announced when its
+     * session was opened.
+     *
+     * @param deviceId the target device
+     * @return capabilities of the device
+     * @throws NetconfException when the device is not connected
+     */
+    DatastoreCapabilities capabilities(DeviceId deviceId) throws NetconfException {
+        NetconfSession session = session(deviceId);
+        DatastoreCapabilities result = capabilities.get(deviceId);
+        if (result == null) {
+            result = DatastoreCapabilities.parse(session.getServerCapabilities());
+            capabilities.put(deviceId, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the cached handle of the device; the next session lookup
+     * resolves it again.
+     *
+     * @param deviceId the target device
+     */
+    void invalidate(DeviceId deviceId) {
+        devices.remove(deviceId);
+        capabilities.remove(deviceId);
+    }
+
+    /**
+     * Drops all cached handles.
+     */
+    void clear() {
+        devices.clear();
+        capabilities.clear();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Set of map resolver addresses and local EID ids of a device whose
+ * configuration has changed but has not been pushed to the device yet.
+ *
+ * Only the keys are recorded; the value pushed for a key is the one held
+ * by the manager when the changes are flushed, so several changes of the
+ * same entry collapse into one. A local EID whose every change was limited
+ * to some of its locators also records their names, so that only those
+ * locators are pushed.
+ */
+final class PendingChanges {
+
+    private final Set<String> resolvers = Sets.newLinkedHashSet();
+    private final Set<String> eids = Sets.newLinkedHashSet();
+    // changed locator names of the eids not changed as a whole
+    private final Map<String, Set<String>> locators = Maps.newHashMap();
+    private final List<Waiter> waiters = Lists.newArrayList();
+    private boolean fullSync;
+
+    /**
+     * Adds changed entries and the future to complete once they are pushed.
+     *
+     * @param resolvers changed map resolver addresses
+     * @param eids changed local EID ids
+     * @param waiter future completed with the push result
+     */
+    void add(Collection<String> resolvers, Collection<String> eids,
+             CompletableFuture<Boolean> waiter) {
+        add(resolvers, eids, ImmutableMap.of(), waiter);
+    }
+
+    /**
+     * Adds changed entries and the future to complete once they are pushed.
+     *
+     * @param resolvers changed map resolver addresses
+     * @param eids changed local EID ids
+     * @param locators names of the changed locators of the local EIDs whose
+     *                 change is limited to those; other EIDs are pushed whole
+     * @param waiter future completed with the push result
+     */
+    void add(Collection<String> resolvers, Collection<String> eids,
+             Map<String, Set<String>> locators, CompletableFuture<Boolean> waiter) {
+        this.resolvers.addAll(resolvers);
+        eids.forEach(id -> addEid(id, locators.get(id)));
+        if (waiter != null) {
+            addWaiter(resolvers, eids, waiter);
+        }
+    }
+
+    /**
+     * Adds a future to complete once the given entries, added before, are
+     * pushed.
+     *
+     * @param resolvers map resolver addresses the waiter depends on
+     * @param eids local EID ids the waiter depends on
+     * @param waiter future completed with true when all of them were pushed
+     */
+    void addWaiter(Collection<String> resolvers, Collection<String> eids,
+                   CompletableFuture<Boolean> waiter) {
+        waiters.add(new Waiter(ImmutableSet.copyOf(resolvers),
+                               ImmutableSet.copyOf(eids), false, waiter));
+    }
+
+    private void addEid(String id, Set<String> names) {
+        if (names == null) {
+            locators.remove(id);
+        } else if (!eids.contains(id) || locators.containsKey(id)) {
+            locators.computeIfAbsent(id, k -> Sets.newHashSet()).addAll(names);
+        }
+        eids.add(id);
+    }
+
+    /**
+     * Requests that the whole configuration of the device is replaced.
+     *
+     * @param waiter future completed with the push result
+     */
+    void requestFullSync(CompletableFuture<Boolean> waiter) {
+        fullSync = true;
+        waiters.add(new Waiter(ImmutableSet.of(), ImmutableSet.of(), true, waiter));
+    }
+
+    /**
+     * Returns whether the whole configuration of the device is replaced
+     * rather than only the changed entries.
+     *
+     * @return true for a full synchronization
+     */
+    boolean isFullSync() {
+        return fullSync;
+    }
+
+    /**
+     * Adds all entries and waiters of the given changes.
+     *
+     * @param other pending changes to merge into this one
+     */
+    void addAll(PendingChanges other) {
+        resolvers.addAll(other.resolvers);
+        other.eids.forEach(id -> addEid(id, other.locators.get(id)));
+        waiters.addAll(other.waiters);
+        fullSync |= other.fullSync;
+    }
+
+    /**
+     * Splits the changed entries into parts of at most the given number of
+     * entries each, without their waiters. A full synchronization is not
+     * split since it replaces the whole configuration at once.
+     *
+     * @param maxSize maximum number of entries of a part
+     * @return parts holding all changed entries
+     */
+    List<PendingChanges> split(int maxSize) {
+        if (fullSync || size() <= maxSize || maxSize <= 0) {
+            PendingChanges whole = new PendingChanges();
+            whole.resolvers.addAll(resolvers);
+            eids.forEach(id -> whole.addEid(id, locators.get(id)));
+            whole.fullSync = fullSync;
+            return ImmutableList.of(whole);
+        }
+
+        List<PendingChanges> parts = Lists.newArrayList();
+        PendingChanges part = new PendingChanges();
+        for (String resolver : resolvers) {
+            if (part.size() == maxSize) {
+                parts.add(part);
+                part = new PendingChanges();
+            }
+            part.resolvers.add(resolver);
+        }
+        for (String id : eids) {
+            if (part.size() == maxSize) {
+                parts.add(part);
+                part = new PendingChanges();
+            }
+            part.addEid(id, locators.get(id));
+        }
+        parts.add(part);
+        return parts;
+    }
+
+    Set<String> resolvers() {
+        return ImmutableSet.copyOf(resolvers);
+    }
+
+    Set<String> eids() {
+        return ImmutableSet.copyOf(eids);
+    }
+
+    /**
+     * Returns the names of the changed locators of a local EID.
+     *
+     * @param id local EID id
+     * @return changed locator names, or null when the whole EID changed
+     */
+    Set<String> changedLocators(String id) {
+        return locators.get(id);
+    }
+
+    /**
+     * Returns the number of changed entries.
+     *
+     * @return number of changed map resolvers and local EIDs
+     */
+    int size() {
+        return resolvers.size() + eids.size();
+    }
+
+    boolean isEmpty() {
+        return resolvers.isEmpty() && eids.isEmpty() && !fullSync;
+    }
+
+    /**
+     * Completes every waiter; a waiter fails when any of its entries, or
+     * the full synchronization it waits for, was not pushed.
+     *
+     * @param failed the parts whose push failed
+     */
+    void complete(PendingChanges failed) {
+        waiters.forEach(w -> w.future.complete(
+                !(w.fullSync && failed.fullSync) &&
+                        Collections.disjoint(w.resolvers, failed.resolvers) &&
+                        Collections.disjoint(w.eids, failed.eids)));
+        waiters.clear();
+    }
+
+    /**
+     * Future of a caller together with the entries it waits for.
+     */
+    private static final class Waiter {
+        private final Set<String> resolvers;
+        private final Set<String> eids;
+        private final boolean fullSync;
+        private final CompletableFuture<Boolean> future;
+
+        private Waiter(Set<String> resolvers, Set<String> eids, boolean fullSync,
+                       CompletableFuture<Boolean> future) {
+            this.resolvers = resolvers;
+            this.eids = eids;
+            this.fullSync = fullSync;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays between attempts of a failed NETCONF call: exponential in the
+ * number of the attempt, capped, with full jitter so that the retries of
+ * many devices failing at once are spread out.
+ */
+final class RetryBackoff {
+
+    private volatile int maxAttempts;
+    private volatile long baseDelayMs;
+    private volatile long maxDelayMs;
+
+    RetryBackoff(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        configure(maxAttempts, baseDelayMs, maxDelayMs);
+    }
+
+    /**
+     * Sets the number of attempts and the bounds of the delays.
+     *
+     * @param maxAttempts attempts of a call including the first; at least 1
+     * @param baseDelayMs upper bound of the delay after the first attempt
+     * @param maxDelayMs upper bound of any delay
+     */
+    void configure(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(0, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    }
+
+    /**
+     * Returns the number of attempts of a call, including the first.
+     *
+     * @return number of attempts
+     */
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns a random delay before the next attempt.
+     *
+     * @param attempt number of attempts made so far, starting at 1
+     * @return delay in milliseconds
+     */
+    long delayMillis(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long bound = Math.min(maxDelayMs, baseDelayMs << shift);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+}
@@ -16,6 +16,7 @@
 
 package kr.ac.postech.lispconfig.cli;
 
+import kr.ac.postech.lispconfig.DeviceBusyException;
 import kr.ac.postech.lispconfig.LispConfigService;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
@@ -43,6 +44,10 @@ public class LispAddMapResolverCommand extends AbstractShellCommand {
     protected void execute() {
         LispConfigService service = get(LispConfigService.class);
         DeviceId deviceId = DeviceId.deviceId(this.deviceId);
-        boolean result = service.addItrMapResolver(deviceId, address);
+        try {
+            service.addItrMapResolver(deviceId, address);
+        } catch (DeviceBusyException e) {
+            error(e.getMessage());
+        }
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.cli;
+
+import com.google.common.collect.Maps;
+import kr.ac.postech.lispconfig.DeviceInventoryEntry;
+import kr.ac.postech.lispconfig.DeviceOperationResult;
+import kr.ac.postech.lispconfig.LispConfigJson;
+import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.rest.DeviceInventoryParser;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Command(scope = "onos", name = "lisp-connect-inventory",
+         description = "connect the devices of a JSON or CSV inventory file " +
+                 "and push their initial LISP configuration")
+
+public class LispConnectInventoryCommand extends AbstractShellCommand {
+
+    @Argument(index = 0, name = "file", description = "inventory file; " +
+            "read as CSV when its name ends with .csv",
+            required = true, multiValued = false)
+    String file = null;
+
+    @Option(name = "-c", aliases = "--concurrency", description = "maximum " +
+            "number of devices configured at once",
+            required = false, multiValued = false)
+    int concurrency = 16;
+
+    @Option(name = "-t", aliases = "--timeout", description = "seconds to " +
+            "wait for a device to come up",
+            required = false, multiValued = false)
+    int timeoutSec = 120;
+
+    @Override
+    protected void execute() {
+        List<DeviceInventoryParser.Entry> entries;
+        try (InputStream stream = new FileInputStream(file)) {
+            DeviceInventoryParser parser =
+                    new DeviceInventoryParser(mapper().getFactory());
+            entries = file.endsWith(".csv") ? parser.parseCsv(stream) :
+                    parser.parseJson(stream);
+        } catch (IOException e) {
+            error("Failed to read %s: %s", file, e.getMessage());
+            return;
+        }
+
+        List<DeviceInventoryEntry> devices = entries.stream()
+                .filter(DeviceInventoryParser.Entry::isValid)
+                .map(DeviceInventoryParser.Entry::device)
+                .collect(Collectors.toList());
+        Map<Integer, String> invalid = Maps.newTreeMap();
+        entries.stream().filter(e -> !e.isValid())
+                .forEach(e -> invalid.put(e.index(), e.error()));
+
+        LispConfigService service = get(LispConfigService.class);
+        List<DeviceOperationResult> results =
+                service.connectDevices(devices, concurrency, timeoutSec).join();
+
+        if (outputJson()) {
+            print("%s", LispConfigJson.inventoryResults(mapper(), results, invalid));
+            return;
+        }
+        invalid.forEach((index, error) -> print("entry=%d, error=%s", index, error));
+        results.forEach(r -> print("deviceId=%s, status=%s, elapsed=%dms%s",
+                                   r.deviceId(), r.status(), r.elapsedMillis(),
+                                   r.error() == null ? "" : ", error=" + r.error()));
+    }
+}
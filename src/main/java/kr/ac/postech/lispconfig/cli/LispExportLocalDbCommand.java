@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.cli;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import kr.ac.postech.lispconfig.LispConfigJson;
+import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.MapRecords;
+import kr.ac.postech.lispconfig.rest.MapRecordCsvFormat;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the local EID records of the device known to the controller into
+ * a file, in a format lisp-import-local-db reads back.
+ */
+@Command(scope = "onos", name = "lisp-export-local-db",
+         description = "write the local eid-rloc records of the device into " +
+                 "a CSV or JSON file")
+
+public class LispExportLocalDbCommand extends AbstractShellCommand {
+
+    @Argument(index = 0, name = "deviceId", description = "source device",
+            required = true, multiValued = false)
+    String deviceId = null;
+
+    @Argument(index = 1, name = "file", description = "target file; " +
+            "written as CSV when its name ends with .csv",
+            required = true, multiValued = false)
+    String file = null;
+
+    private static final int PROGRESS_INTERVAL = 10000;
+    private static final int PAGE_SIZE = 1000;
+
+    private LispConfigService service;
+    private int written;
+
+    @Override
+    protected void execute() {
+        service = get(LispConfigService.class);
+        long start = System.nanoTime();
+
+        try (OutputStream stream = new FileOutputStream(file)) {
+            if (file.endsWith(".csv")) {
+                writeCsv(stream, start);
+            } else {
+                writeJson(stream, start);
+            }
+        } catch (IOException e) {
+            error("Failed to write %s: %s", file, e.getMessage());
+            return;
+        }
+
+        print("Done: %d records written in %d ms", written,
+              (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeCsv(OutputStream stream, long start) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        writer.write(MapRecordCsvFormat.HEADER);
+        writer.write('\n');
+        IpPrefix after = null;
+        List<LispMapRecord> page;
+        do {
+            page = nextPage(after);
+            for (LispMapRecord record : page) {
+                writer.write(MapRecordCsvFormat.format(record));
+                writer.write('\n');
+                after = MapRecords.eidPrefix(record);
+                progress(start);
+            }
+        } while (page.size() == PAGE_SIZE);
+        writer.flush();
+    }
+
+    private void writeJson(OutputStream stream, long start) throws IOException {
+        try (JsonGenerator generator = mapper().getFactory()
+                .createGenerator(stream, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("deviceId", deviceId);
+            generator.writeArrayFieldStart("records");
+            IpPrefix after = null;
+            List<LispMapRecord> page;
+            do {
+                page = nextPage(after);
+                for (LispMapRecord record : page) {
+                    mapper().writeTree(generator, LispConfigJson.localEid(
+                            mapper().createObjectNode(), record));
+                    after = MapRecords.eidPrefix(record);
+                    progress(start);
+                }
+            } while (page.size() == PAGE_SIZE);
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Reads the records following the given prefix, so that no more than
+     * one page of the database is held while the file is written.
+     */
+    private List<LispMapRecord> nextPage(IpPrefix after) {
+        return service.getLocalEids(DeviceId.deviceId(deviceId), after, PAGE_SIZE);
+    }
+
+    private void progress(long start) {
+        if (++written % PROGRESS_INTERVAL == 0) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            print("%d records written, %.0f records/s", written, written / seconds);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.cli;
+
+import kr.ac.postech.lispconfig.DeviceOperationResult;
+import kr.ac.postech.lispconfig.LispConfigJson;
+import kr.ac.postech.lispconfig.LispConfigService;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * LISP map resolver rollout command
+ */
+@Command(scope = "onos", name = "lisp-fleet-map-resolver",
+         description = "add or remove a map resolver on many devices in parallel")
+
+public class LispFleetMapResolverCommand extends AbstractShellCommand {
+
+    @Argument(index = 0, name = "address", description = "IP address",
+            required = true, multiValued = false)
+    String address = null;
+
+    @Argument(index = 1, name = "deviceIds", description = "target devices; " +
+            "all NetConf devices when omitted",
+            required = false, multiValued = true)
+    List<String> deviceIds = null;
+
+    @Option(name = "-r", aliases = "--remove", description = "remove the map " +
+            "resolver instead of adding it",
+            required = false, multiValued = false)
+    boolean remove = false;
+
+    @Option(name = "-c", aliases = "--concurrency", description = "maximum " +
+            "number of devices configured at once",
+            required = false, multiValued = false)
+    int concurrency = 16;
+
+    @Option(name = "-m", aliases = "--max-failures", description = "stop after " +
+            "this many failed devices; 0 never stops",
+            required = false, multiValued = false)
+    int maxFailures = 0;
+
+    @Override
+    protected void execute() {
+        LispConfigService service = get(LispConfigService.class);
+        List<DeviceId> devices = deviceIds == null ? null :
+                deviceIds.stream().map(DeviceId::deviceId)
+                        .collect(Collectors.toList());
+
+        List<DeviceOperationResult> results = remove ?
+                service.removeItrMapResolverFromFleet(devices, address,
+                                                      concurrency, maxFailures).join() :
+                service.addItrMapResolverToFleet(devices, address,
+                                                 concurrency, maxFailures).join();
+
+        if (outputJson()) {
+            print("%s", LispConfigJson.deviceResults(mapper(), results));
+            return;
+        }
+        results.forEach(r -> print("deviceId=%s, status=%s, elapsed=%dms%s",
+                                   r.deviceId(), r.status(), r.elapsedMillis(),
+                                   r.error() == null ? "" : ", error=" + r.error()));
+    }
+}
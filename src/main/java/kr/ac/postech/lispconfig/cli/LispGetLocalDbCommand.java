@@ -16,12 +16,22 @@
 
 package kr.ac.postech.lispconfig.cli;
 
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.LispConfigJson;
 import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.MapRecords;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
 import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.net.DeviceId;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * LISP configuration GET command
  */
@@ -35,13 +45,81 @@ public class LispGetLocalDbCommand extends AbstractShellCommand {
             required = true, multiValued = false)
     String deviceId = null;
 
+    @Option(name = "-f", aliases = "--fresh", description = "read from the " +
+            "device instead of the cached configuration",
+            required = false, multiValued = false)
+    boolean fresh = false;
+
+    @Option(name = "-l", aliases = "--local", description = "show the " +
+            "configuration held by the controller instead of reading the device",
+            required = false, multiValued = false)
+    boolean local = false;
+
+    @Option(name = "-p", aliases = "--pending", description = "mark entries " +
+            "whose push has not been confirmed by the device yet",
+            required = false, multiValued = false)
+    boolean pending = false;
+
+    @Option(name = "-m", aliases = "--match", description = "show only the " +
+            "local EID of the longest prefix holding the given address",
+            required = false, multiValued = false)
+    String match = null;
+
+    @Option(name = "--covering", description = "show only the local EIDs " +
+            "holding the given prefix, the prefix itself included",
+            required = false, multiValued = false)
+    String covering = null;
+
+    @Option(name = "--covered", description = "show only the local EIDs " +
+            "held by the given prefix, the prefix itself included",
+            required = false, multiValued = false)
+    String covered = null;
+
     static final String ETR_CFG = "<etr-cfg/>";
 
     @Override
     protected void execute() {
         LispConfigService service = get(LispConfigService.class);
         DeviceId deviceId = DeviceId.deviceId(this.deviceId);
-        String result = service.getConfigWithFilter(deviceId, ETR_CFG);
+
+        if (local || match != null || covering != null || covered != null) {
+            printLocal(service, deviceId);
+            return;
+        }
+
+        String result = service.getConfigWithFilter(deviceId, ETR_CFG, fresh);
         print(result);
     }
+
+    private void printLocal(LispConfigService service, DeviceId deviceId) {
+        List<LispMapRecord> records;
+        if (match != null) {
+            LispMapRecord record =
+                    service.getMatchingLocalEid(deviceId, IpAddress.valueOf(match));
+            records = record == null ? ImmutableList.of() : ImmutableList.of(record);
+        } else if (covering != null) {
+            records = service.getCoveringLocalEids(deviceId, IpPrefix.valueOf(covering));
+        } else if (covered != null) {
+            records = service.getCoveredLocalEids(deviceId, IpPrefix.valueOf(covered));
+        } else {
+            records = service.getLocalEids(deviceId);
+        }
+        Set<String> unconfirmed = pending ?
+                service.getUnconfirmedLocalEids(deviceId) : null;
+
+        if (outputJson()) {
+            print("%s", LispConfigJson.localEids(mapper(), deviceId,
+                                                 records, unconfirmed));
+            return;
+        }
+        records.forEach(r -> {
+            String prefix = MapRecords.eidPrefix(r).toString();
+            print("eid=%s, ttl=%d%s", prefix, r.getRecordTtl(),
+                  unconfirmed != null && unconfirmed.contains(prefix) ?
+                          " (pending)" : "");
+            r.getLocators().forEach(l -> print(
+                    "    rloc=%s, priority=%d, weight=%d", l.getLocatorAfi(),
+                    l.getPriority() & 0xff, l.getWeight() & 0xff));
+        });
+    }
 }
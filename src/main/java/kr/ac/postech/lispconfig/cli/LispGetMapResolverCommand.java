@@ -16,12 +16,17 @@
 
 package kr.ac.postech.lispconfig.cli;
 
+import kr.ac.postech.lispconfig.LispConfigJson;
 import kr.ac.postech.lispconfig.LispConfigService;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
 import org.onosproject.cli.AbstractShellCommand;
 import org.onosproject.net.DeviceId;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * LISP configuration GET command
  */
@@ -35,13 +40,49 @@ public class LispGetMapResolverCommand extends AbstractShellCommand {
             required = true, multiValued = false)
     String deviceId = null;
 
+    @Option(name = "-f", aliases = "--fresh", description = "read from the " +
+            "device instead of the cached configuration",
+            required = false, multiValued = false)
+    boolean fresh = false;
+
+    @Option(name = "-l", aliases = "--local", description = "show the " +
+            "configuration held by the controller instead of reading the device",
+            required = false, multiValued = false)
+    boolean local = false;
+
+    @Option(name = "-p", aliases = "--pending", description = "mark entries " +
+            "whose push has not been confirmed by the device yet",
+            required = false, multiValued = false)
+    boolean pending = false;
+
     static final String ITR_CFG = "<itr-cfg/>";
 
     @Override
     protected void execute() {
         LispConfigService service = get(LispConfigService.class);
         DeviceId deviceId = DeviceId.deviceId(this.deviceId);
-        String result = service.getConfigWithFilter(deviceId, ITR_CFG);
+
+        if (local) {
+            printLocal(service, deviceId);
+            return;
+        }
+
+        String result = service.getConfigWithFilter(deviceId, ITR_CFG, fresh);
         print(result);
     }
+
+    private void printLocal(LispConfigService service, DeviceId deviceId) {
+        List<String> resolvers = service.getMapResolvers(deviceId);
+        Set<String> unconfirmed = pending ?
+                service.getUnconfirmedMapResolvers(deviceId) : null;
+
+        if (outputJson()) {
+            print("%s", LispConfigJson.mapResolvers(mapper(), deviceId,
+                                                    resolvers, unconfirmed));
+            return;
+        }
+        resolvers.forEach(r -> print("address=%s%s", r,
+                                     unconfirmed != null && unconfirmed.contains(r) ?
+                                             " (pending)" : ""));
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.cli;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import kr.ac.postech.lispconfig.DeviceBusyException;
+import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.rest.MapRecordCsvFormat;
+import kr.ac.postech.lispconfig.rest.MapRecordJsonParser;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Streams the local EID records of a file into the device, in batches.
+ */
+@Command(scope = "onos", name = "lisp-import-local-db",
+         description = "add the local eid-rloc records of a CSV or JSON file " +
+                 "to the device")
+
+public class LispImportLocalDbCommand extends AbstractShellCommand {
+
+    @Argument(index = 0, name = "deviceId", description = "target device",
+            required = true, multiValued = false)
+    String deviceId = null;
+
+    @Argument(index = 1, name = "file", description = "file of records; " +
+            "read as CSV when its name ends with .csv",
+            required = true, multiValued = false)
+    String file = null;
+
+    @Option(name = "-b", aliases = "--batch-size", description = "number " +
+            "of records pushed to the device at once",
+            required = false, multiValued = false)
+    int batchSize = 1000;
+
+    private LispConfigService service;
+    private DeviceId devId;
+    private final List<LispMapRecord> batch = Lists.newArrayList();
+    // the previous batch is pushed while the next one is read
+    private CompletableFuture<List<Boolean>> inFlight =
+            CompletableFuture.completedFuture(Collections.emptyList());
+    private List<LispMapRecord> inFlightRecords = Collections.emptyList();
+
+    private long start;
+    private int applied;
+    private int failed;
+    private int invalid;
+
+    @Override
+    protected void execute() {
+        service = get(LispConfigService.class);
+        devId = DeviceId.deviceId(deviceId);
+        batchSize = Math.max(1, batchSize);
+        start = System.nanoTime();
+
+        try (InputStream stream = new FileInputStream(file)) {
+            if (file.endsWith(".csv")) {
+                readCsv(stream);
+            } else {
+                new MapRecordJsonParser(mapper().getFactory())
+                        .parse(stream, this::accept);
+            }
+            flush();
+            report(await());
+        } catch (IOException e) {
+            error("Failed to read %s: %s", file, e.getMessage());
+        } catch (CompletionException e) {
+            error("Import stopped: %s", e.getCause().getMessage());
+        }
+
+        print("Done: %d records applied, %d failed, %d invalid in %d ms",
+              applied, failed, invalid, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void readCsv(InputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        int index = 0;
+        while ((line = reader.readLine()) != null) {
+            if (!MapRecordCsvFormat.isSkipped(line)) {
+                accept(MapRecordCsvFormat.parse(line, index++));
+            }
+        }
+    }
+
+    private void accept(MapRecordJsonParser.Entry entry) {
+        if (!entry.isValid()) {
+            invalid++;
+            print("record %d: %s", entry.index(), entry.error());
+            return;
+        }
+        batch.add(entry.record());
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<LispMapRecord> records = ImmutableList.copyOf(batch);
+        batch.clear();
+
+        report(await());
+        inFlightRecords = records;
+        inFlight = service.addEtrEidDataBasesAsync(devId, records);
+    }
+
+    /**
+     * Waits for the batch in flight, submitting it again after the
+     * suggested delay while the device refuses it as busy.
+     */
+    private List<Boolean> await() {
+        while (true) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof DeviceBusyException)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(((DeviceBusyException) e.getCause()).retryAfterMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                inFlight = service.addEtrEidDataBasesAsync(devId, inFlightRecords);
+            }
+        }
+    }
+
+    private void report(List<Boolean> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        results.forEach(r -> {
+            if (r) {
+                applied++;
+            } else {
+                failed++;
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        print("%d records applied, %d failed, %d invalid, %.0f records/s",
+              applied, failed, invalid, (applied + failed) / seconds);
+    }
+}
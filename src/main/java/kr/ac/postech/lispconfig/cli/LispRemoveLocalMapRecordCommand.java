@@ -17,14 +17,13 @@
 package kr.ac.postech.lispconfig.cli;
 
 import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.DeviceBusyException;
 import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.MapRecords;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
-import org.onlab.packet.IpAddress;
 import org.onosproject.cli.AbstractShellCommand;
-import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
-import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
-import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.net.DeviceId;
 
 /**
@@ -46,7 +45,7 @@ public class LispRemoveLocalMapRecordCommand extends AbstractShellCommand {
 
     @Argument(index = 2, name = "eid_mask", description = "EID address mask",
             required = true, multiValued = false)
-    Byte eid_mask = null;
+    int eid_mask;
 
     @Argument(index = 3, name = "rloc", description = "RLOC address",
             required = true, multiValued = false)
@@ -54,32 +53,31 @@ public class LispRemoveLocalMapRecordCommand extends AbstractShellCommand {
 
     @Argument(index = 4, name = "priority", description = "Priority",
             required = true, multiValued = false)
-    Byte priority = null;
+    int priority;
 
     @Argument(index = 5, name = "weight", description = "Weight",
             required = true, multiValued = false)
-    Byte weight = null;
+    int weight;
 
     @Override
     protected void execute() {
         LispConfigService service = get(LispConfigService.class);
         DeviceId deviceId = DeviceId.deviceId(this.deviceId);
 
-        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
-                new DefaultLispMapRecord.DefaultMapRecordBuilder();
-
-        builder.withEidPrefixAfi(new LispIpv4Address(IpAddress.valueOf(eid)));
-        builder.withMaskLength(eid_mask);
-
-        DefaultLispLocator.DefaultLocatorBuilder locatorRecordBuilder
-                = new DefaultLispLocator.DefaultLocatorBuilder();
-
-        locatorRecordBuilder.withLocatorAfi(new LispIpv4Address(IpAddress.valueOf(rloc)));
-        locatorRecordBuilder.withPriority(priority);
-        locatorRecordBuilder.withWeight(weight);
-
-        builder.withLocators(ImmutableList.of(locatorRecordBuilder.build()));
-
-        service.removeEtrEidDataBase(deviceId, builder.build());
+        LispMapRecord record;
+        try {
+            record = MapRecords.record(eid, eid_mask, MapRecords.DEFAULT_TTL,
+                                       ImmutableList.of(MapRecords.locator(
+                                               rloc, priority, weight)));
+        } catch (IllegalArgumentException e) {
+            error(e.getMessage());
+            return;
+        }
+
+        try {
+            service.removeEtrEidDataBase(deviceId, record);
+        } catch (DeviceBusyException e) {
+            error(e.getMessage());
+        }
     }
 }
@@ -16,6 +16,7 @@
 
 package kr.ac.postech.lispconfig.cli;
 
+import kr.ac.postech.lispconfig.DeviceBusyException;
 import kr.ac.postech.lispconfig.LispConfigService;
 import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
@@ -43,6 +44,10 @@ public class LispRemoveMapResolverCommand extends AbstractShellCommand {
     protected void execute() {
         LispConfigService service = get(LispConfigService.class);
         DeviceId deviceId = DeviceId.deviceId(this.deviceId);
-        boolean result = service.removeItrMapResolver(deviceId, address);
+        try {
+            service.removeItrMapResolver(deviceId, address);
+        } catch (DeviceBusyException e) {
+            error(e.getMessage());
+        }
     }
 }
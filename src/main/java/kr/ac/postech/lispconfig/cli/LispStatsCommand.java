@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.cli;
+
+import kr.ac.postech.lispconfig.LispConfigJson;
+import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.NetconfOperationStats;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.net.DeviceId;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * LISP configuration STATS command
+ */
+@Command(scope = "onos", name = "lisp-stats",
+         description = "show latency, payload and error statistics of the " +
+                 "NetConf calls sent to each device")
+
+public class LispStatsCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "%-32s %-12s %8s %6s %9s %9s %9s %10s %8s %5s %8s";
+    private static final String ROW = "%-32s %-12s %8d %6d %9.2f %9.2f %9.2f %10d %8d %5d %8d";
+
+    @Argument(index = 0, name = "deviceId", description = "show only the " +
+            "statistics of this device",
+            required = false, multiValued = false)
+    String deviceId = null;
+
+    @Override
+    protected void execute() {
+        LispConfigService service = get(LispConfigService.class);
+        List<NetconfOperationStats> stats = service.getNetconfStats();
+        Map<DeviceId, Long> rejected = new HashMap<>(service.getRejectedRequests());
+        if (deviceId != null) {
+            DeviceId devId = DeviceId.deviceId(deviceId);
+            stats = stats.stream()
+                    .filter(s -> s.deviceId().equals(devId))
+                    .collect(Collectors.toList());
+            rejected.keySet().retainAll(Collections.singleton(devId));
+        }
+
+        if (outputJson()) {
+            print("%s", LispConfigJson.netconfStats(mapper(), stats,
+                                                    service::getQueueDepth,
+                                                    rejected));
+            return;
+        }
+
+        print(FORMAT, "device", "operation", "count", "errors",
+              "p50(ms)", "p99(ms)", "max(ms)", "bytes", "records", "queue",
+              "rejected");
+        stats.forEach(s -> print(ROW, s.deviceId(), s.operation(), s.count(),
+                                 s.errors(), s.p50Millis(), s.p99Millis(),
+                                 s.maxMillis(), s.bytes(), s.records(),
+                                 service.getQueueDepth(s.deviceId()),
+                                 rejected.getOrDefault(s.deviceId(), 0L)));
+
+        // devices whose every request was refused have no calls
+        Set<DeviceId> called = stats.stream()
+                .map(NetconfOperationStats::deviceId)
+                .collect(Collectors.toSet());
+        rejected.keySet().stream()
+                .filter(id -> !called.contains(id))
+                .sorted(Comparator.comparing(DeviceId::toString))
+                .forEach(id -> print(FORMAT, id, "-", 0, 0, "-", "-", "-", 0, 0,
+                                     service.getQueueDepth(id), rejected.get(id)));
+    }
+}
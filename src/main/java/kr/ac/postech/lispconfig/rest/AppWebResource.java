@@ -19,26 +19,43 @@ package kr.ac.postech.lispconfig.rest;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.DeviceBusyException;
+import kr.ac.postech.lispconfig.DeviceInventoryEntry;
+import kr.ac.postech.lispconfig.LispConfigJson;
 import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.MapRecords;
 import org.onlab.packet.IpAddress;
-import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
-import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
-import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.rest.AbstractWebResource;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 
 /**
@@ -49,6 +66,12 @@ public class AppWebResource extends AbstractWebResource {
 
     static final String ITR_CFG = "<itr-cfg/>";
     static final String ETR_CFG = "<etr-cfg/>";
+    static final String DEFAULT_CONCURRENCY = "16";
+    static final String DEFAULT_CONNECT_TIMEOUT = "120";
+    static final String TEXT_CSV = "text/csv";
+    static final int TOO_MANY_REQUESTS = 429;
+    static final String RETRY_AFTER = "Retry-After";
+    static final String DEFAULT_TTL = "" + MapRecords.DEFAULT_TTL;
 
     /**
      * Get hello world greeting.
@@ -81,6 +104,32 @@ public class AppWebResource extends AbstractWebResource {
         return ok(result).build();
     }
 
+    @POST
+    @Path("/devices/inventory")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void connectInventory(InputStream inputStream,
+                                 @DefaultValue(DEFAULT_CONCURRENCY)
+                                 @QueryParam("concurrency") int concurrency,
+                                 @DefaultValue(DEFAULT_CONNECT_TIMEOUT)
+                                 @QueryParam("timeout") int timeoutSec,
+                                 @Suspended AsyncResponse response) {
+        connectInventory(inputStream, false, concurrency, timeoutSec, response);
+    }
+
+    @POST
+    @Path("/devices/inventory")
+    @Consumes(TEXT_CSV)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void connectCsvInventory(InputStream inputStream,
+                                    @DefaultValue(DEFAULT_CONCURRENCY)
+                                    @QueryParam("concurrency") int concurrency,
+                                    @DefaultValue(DEFAULT_CONNECT_TIMEOUT)
+                                    @QueryParam("timeout") int timeoutSec,
+                                    @Suspended AsyncResponse response) {
+        connectInventory(inputStream, true, concurrency, timeoutSec, response);
+    }
+
     @GET
     @Path("/devices")
     public Response getDevices() {
@@ -99,128 +148,421 @@ public class AppWebResource extends AbstractWebResource {
     @GET
     @Path("{deviceId}/map-resolver")
     @Produces(MediaType.APPLICATION_XML)
-    public Response getMapResolvers(@PathParam("deviceId") String deviceId) {
+    public void getMapResolvers(@PathParam("deviceId") String deviceId,
+                                @QueryParam("fresh") boolean fresh,
+                                @Suspended AsyncResponse response) {
 
         LispConfigService service = get(LispConfigService.class);
         DeviceId devId = DeviceId.deviceId(deviceId);
-        String result = service.getConfigWithFilter(devId, ITR_CFG);
 
-        return ok(result).build();
+        resume(response, service.getConfigWithFilterAsync(devId, ITR_CFG, fresh));
     }
 
     @POST
     @Path("{deviceId}/map-resolver")
-    public Response addMapResolvers(@PathParam("deviceId") String deviceId,
-    @QueryParam("address") String address) {
+    public void addMapResolvers(@PathParam("deviceId") String deviceId,
+                                @QueryParam("address") String address,
+                                @Suspended AsyncResponse response) {
 
         LispConfigService service = get(LispConfigService.class);
         DeviceId devId = DeviceId.deviceId(deviceId);
-        boolean result = service.addItrMapResolver(devId, address);
 
-        return ok(result).build();
+        resume(response, service.addItrMapResolverAsync(devId, address));
     }
 
     @DELETE
     @Path("{deviceId}/map-resolver")
-    public Response removeMapResolvers(@PathParam("deviceId") String deviceId,
-                                    @QueryParam("address") String address) {
+    public void removeMapResolvers(@PathParam("deviceId") String deviceId,
+                                   @QueryParam("address") String address,
+                                   @Suspended AsyncResponse response) {
 
         LispConfigService service = get(LispConfigService.class);
         DeviceId devId = DeviceId.deviceId(deviceId);
-        boolean result = service.removeItrMapResolver(devId, address);
 
-        return ok(result).build();
+        resume(response, service.removeItrMapResolverAsync(devId, address));
+    }
+
+    @POST
+    @Path("map-resolver/fleet")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addFleetMapResolver(@QueryParam("address") String address,
+                                    @QueryParam("deviceId") List<String> deviceIds,
+                                    @DefaultValue(DEFAULT_CONCURRENCY)
+                                    @QueryParam("concurrency") int concurrency,
+                                    @QueryParam("maxFailures") int maxFailures,
+                                    @Suspended AsyncResponse response) {
+        LispConfigService service = get(LispConfigService.class);
+
+        resume(response, service.addItrMapResolverToFleet(
+                deviceIds(deviceIds), address, concurrency, maxFailures)
+                .thenApply(r -> LispConfigJson.deviceResults(mapper(), r)));
+    }
+
+    @DELETE
+    @Path("map-resolver/fleet")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void removeFleetMapResolver(@QueryParam("address") String address,
+                                       @QueryParam("deviceId") List<String> deviceIds,
+                                       @DefaultValue(DEFAULT_CONCURRENCY)
+                                       @QueryParam("concurrency") int concurrency,
+                                       @QueryParam("maxFailures") int maxFailures,
+                                       @Suspended AsyncResponse response) {
+        LispConfigService service = get(LispConfigService.class);
+
+        resume(response, service.removeItrMapResolverFromFleet(
+                deviceIds(deviceIds), address, concurrency, maxFailures)
+                .thenApply(r -> LispConfigJson.deviceResults(mapper(), r)));
     }
 
     @GET
     @Path("{deviceId}/local-db")
     @Produces(MediaType.APPLICATION_XML)
-    public Response getLocalDb(@PathParam("deviceId") String deviceId) {
+    public void getLocalDb(@PathParam("deviceId") String deviceId,
+                           @QueryParam("fresh") boolean fresh,
+                           @QueryParam("local") boolean local,
+                           @Suspended AsyncResponse response) {
         LispConfigService service = get(LispConfigService.class);
         DeviceId devId = DeviceId.deviceId(deviceId);
-        String result = service.getConfigWithFilter(devId, ETR_CFG);
 
-        return ok(result).build();
+        if (local) {
+            response.resume(ok(LocalEidStream.xml(service, devId)).build());
+            return;
+        }
+        resume(response, service.getConfigWithFilterAsync(devId, ETR_CFG, fresh));
     }
 
     @POST
     @Path("{deviceId}/local-db")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response addLocalDb(@PathParam("deviceId") String deviceId,
-                               @QueryParam("eid") String eid,
-                               @QueryParam("eid_mask") Byte eid_mask,
-                               @QueryParam("rloc") String rloc,
-                               @QueryParam("priority") byte priority,
-                               @QueryParam("weight") byte weight,
-                               @QueryParam("ttl") int ttl,
-                               InputStream inputStream) {
-        if(eid != null) {
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addLocalDb(@PathParam("deviceId") String deviceId,
+                           @QueryParam("eid") String eid,
+                           @QueryParam("eid_mask") @DefaultValue("-1") int eid_mask,
+                           @QueryParam("rloc") String rloc,
+                           @QueryParam("priority") @DefaultValue("1") int priority,
+                           @QueryParam("weight") @DefaultValue("100") int weight,
+                           @QueryParam("ttl") @DefaultValue(DEFAULT_TTL) int ttl,
+                           InputStream inputStream,
+                           @Suspended AsyncResponse response) {
+        if (eid == null) {
+            applyLocalDbBulk(deviceId, inputStream, response, true);
+            return;
+        }
+        LispMapRecord record = queryRecord(eid, eid_mask, rloc, priority,
+                                           weight, ttl, response);
+        if (record != null) {
+            LispConfigService service = get(LispConfigService.class);
+            resume(response, service.addEtrEidDataBaseAsync(
+                    DeviceId.deviceId(deviceId), record));
+        }
+    }
+
+    @DELETE
+    @Path("{deviceId}/local-db")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void removeLocalDb(@PathParam("deviceId") String deviceId,
+                              @QueryParam("eid") String eid,
+                              @QueryParam("eid_mask") @DefaultValue("-1") int eid_mask,
+                              @QueryParam("rloc") String rloc,
+                              @QueryParam("priority") @DefaultValue("1") int priority,
+                              @QueryParam("weight") @DefaultValue("100") int weight,
+                              @QueryParam("ttl") @DefaultValue(DEFAULT_TTL) int ttl,
+                              InputStream inputStream,
+                              @Suspended AsyncResponse response) {
+        if (eid == null) {
+            applyLocalDbBulk(deviceId, inputStream, response, false);
+            return;
+        }
+        LispMapRecord record = queryRecord(eid, eid_mask, rloc, priority,
+                                           weight, ttl, response);
+        if (record != null) {
             LispConfigService service = get(LispConfigService.class);
-            DeviceId devId = DeviceId.deviceId(deviceId);
+            resume(response, service.removeEtrEidDataBaseAsync(
+                    DeviceId.deviceId(deviceId), record));
+        }
+    }
 
-            DefaultLispMapRecord.DefaultMapRecordBuilder builder =
-                    new DefaultLispMapRecord.DefaultMapRecordBuilder();
+    @GET
+    @Path("metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMetrics() {
+        LispConfigService service = get(LispConfigService.class);
 
-            builder.withEidPrefixAfi(new LispIpv4Address(IpAddress.valueOf(eid)));
-            builder.withMaskLength(eid_mask);
-            builder.withRecordTtl(ttl);
+        ObjectNode node = LispConfigJson.netconfStats(
+                mapper(), service.getNetconfStats(), service::getQueueDepth,
+                service.getRejectedRequests());
 
-            DefaultLispLocator.DefaultLocatorBuilder locatorRecordBuilder
-                    = new DefaultLispLocator.DefaultLocatorBuilder();
+        return ok(node).build();
+    }
 
-            locatorRecordBuilder.withLocatorAfi(new LispIpv4Address(IpAddress.valueOf(rloc)));
-            locatorRecordBuilder.withPriority(priority);
-            locatorRecordBuilder.withWeight(weight);
+    @GET
+    @Path("{deviceId}/state/map-resolver")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMapResolverState(@PathParam("deviceId") String deviceId,
+                                        @QueryParam("pending") boolean pending) {
+        LispConfigService service = get(LispConfigService.class);
+        DeviceId devId = DeviceId.deviceId(deviceId);
 
-            builder.withLocators(ImmutableList.of(locatorRecordBuilder.build()));
+        ObjectNode node = LispConfigJson.mapResolvers(
+                mapper(), devId, service.getMapResolvers(devId),
+                pending ? service.getUnconfirmedMapResolvers(devId) : null);
 
-            Boolean result = service.addEtrEidDataBase(devId, builder.build());
+        return ok(node).build();
+    }
 
-            return ok(result).build();
-        } else {
-            //TODO: JSON support
+    @GET
+    @Path("{deviceId}/state/local-db")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLocalDbState(@PathParam("deviceId") String deviceId,
+                                    @QueryParam("pending") boolean pending,
+                                    @QueryParam("cursor") String cursor,
+                                    @QueryParam("limit") int limit,
+                                    @QueryParam("stream") boolean stream) {
+        LispConfigService service = get(LispConfigService.class);
+        DeviceId devId = DeviceId.deviceId(deviceId);
+        Set<String> unconfirmed =
+                pending ? service.getUnconfirmedLocalEids(devId) : null;
+
+        if (stream) {
+            return ok(LocalEidStream.json(service, mapper(), devId, unconfirmed))
+                    .build();
+        }
+        if (limit <= 0) {
+            return ok(LispConfigJson.localEids(
+                    mapper(), devId, service.getLocalEids(devId), unconfirmed))
+                    .build();
+        }
+
+        IpPrefix after;
+        try {
+            after = cursor == null ? null : IpPrefix.valueOf(cursor);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Invalid cursor " + cursor).build();
         }
-        return ok(false).build();
+        List<LispMapRecord> page = service.getLocalEids(devId, after, limit);
+        ObjectNode node = LispConfigJson.localEids(mapper(), devId, page, unconfirmed);
+        if (page.size() == limit) {
+            node.put("next", MapRecords.eidPrefix(page.get(limit - 1)).toString());
+        }
+
+        return ok(node).build();
+    }
+
+    @GET
+    @Path("{deviceId}/state/local-db/lookup")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response lookupLocalDb(@PathParam("deviceId") String deviceId,
+                                  @QueryParam("address") String address,
+                                  @QueryParam("covering") String covering,
+                                  @QueryParam("covered") String covered) {
+        LispConfigService service = get(LispConfigService.class);
+        DeviceId devId = DeviceId.deviceId(deviceId);
+
+        List<LispMapRecord> records;
+        try {
+            if (address != null) {
+                LispMapRecord record =
+                        service.getMatchingLocalEid(devId, IpAddress.valueOf(address));
+                records = record == null ? ImmutableList.of() : ImmutableList.of(record);
+            } else if (covering != null) {
+                records = service.getCoveringLocalEids(devId, IpPrefix.valueOf(covering));
+            } else if (covered != null) {
+                records = service.getCoveredLocalEids(devId, IpPrefix.valueOf(covered));
+            } else {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("One of address, covering or covered is required")
+                        .build();
+            }
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage()).build();
+        }
+
+        return ok(LispConfigJson.localEids(mapper(), devId, records, null)).build();
+    }
+
+    @POST
+    @Path("{deviceId}/local-db/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addLocalDbBulk(@PathParam("deviceId") String deviceId,
+                               InputStream inputStream,
+                               @Suspended AsyncResponse response) {
+        applyLocalDbBulk(deviceId, inputStream, response, true);
     }
 
     @DELETE
-    @Path("{deviceId}/local-db")
+    @Path("{deviceId}/local-db/bulk")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response removeLocalDb(@PathParam("deviceId") String deviceId,
-                               @QueryParam("eid") String eid,
-                               @QueryParam("eid_mask") Byte eid_mask,
-                               @QueryParam("rloc") String rloc,
-                               @QueryParam("priority") byte priority,
-                               @QueryParam("weight") byte weight,
-                               @QueryParam("ttl") int ttl,
-                               InputStream inputStream) {
-        if(eid != null) {
-            LispConfigService service = get(LispConfigService.class);
-            DeviceId devId = DeviceId.deviceId(deviceId);
+    @Produces(MediaType.APPLICATION_JSON)
+    public void removeLocalDbBulk(@PathParam("deviceId") String deviceId,
+                                  InputStream inputStream,
+                                  @Suspended AsyncResponse response) {
+        applyLocalDbBulk(deviceId, inputStream, response, false);
+    }
 
-            DefaultLispMapRecord.DefaultMapRecordBuilder builder =
-                    new DefaultLispMapRecord.DefaultMapRecordBuilder();
+    @POST
+    @Path("{deviceId}/resync")
+    public void resync(@PathParam("deviceId") String deviceId,
+                       @QueryParam("wait") boolean wait,
+                       @Suspended AsyncResponse response) {
+        LispConfigService service = get(LispConfigService.class);
+        DeviceId devId = DeviceId.deviceId(deviceId);
+        CompletableFuture<Boolean> future = service.resyncDeviceAsync(devId);
 
-            builder.withEidPrefixAfi(new LispIpv4Address(IpAddress.valueOf(eid)));
-            builder.withMaskLength(eid_mask);
+        if (wait || future.isCompletedExceptionally()) {
+            resume(response, future);
+            return;
+        }
+        response.resume(Response.accepted().build());
+    }
 
-            DefaultLispLocator.DefaultLocatorBuilder locatorRecordBuilder
-                    = new DefaultLispLocator.DefaultLocatorBuilder();
+    /**
+     * Resumes the suspended response once the service call completes, so
+     * that no web thread is held during the device round trip. Changes
+     * refused for a saturated device are answered with 429 and the number
+     * of seconds to wait in Retry-After.
+     */
+    private void resume(AsyncResponse response, CompletableFuture<?> future) {
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                response.resume(ok(result).build());
+                return;
+            }
+            Throwable cause = error instanceof CompletionException ?
+                    error.getCause() : error;
+            if (cause instanceof DeviceBusyException) {
+                long retryAfterMs = ((DeviceBusyException) cause).retryAfterMillis();
+                response.resume(Response.status(TOO_MANY_REQUESTS)
+                                        .header(RETRY_AFTER, (retryAfterMs + 999) / 1000)
+                                        .entity(cause.getMessage())
+                                        .build());
+                return;
+            }
+            Response.Status status = cause instanceof RejectedExecutionException ?
+                    Response.Status.SERVICE_UNAVAILABLE :
+                    Response.Status.INTERNAL_SERVER_ERROR;
+            response.resume(Response.status(status)
+                                    .entity(String.valueOf(cause.getMessage()))
+                                    .build());
+        });
+    }
 
-            locatorRecordBuilder.withLocatorAfi(new LispIpv4Address(IpAddress.valueOf(rloc)));
-            locatorRecordBuilder.withPriority(priority);
-            locatorRecordBuilder.withWeight(weight);
-            builder.withRecordTtl(ttl);
+    /**
+     * Parses an inventory and connects all valid devices of it.
+     */
+    private void connectInventory(InputStream inputStream, boolean csv,
+                                  int concurrency, int timeoutSec,
+                                  AsyncResponse response) {
+        List<DeviceInventoryParser.Entry> entries;
+        try {
+            DeviceInventoryParser parser =
+                    new DeviceInventoryParser(mapper().getFactory());
+            entries = csv ? parser.parseCsv(inputStream) :
+                    parser.parseJson(inputStream);
+        } catch (IOException e) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                                    .entity(e.getMessage()).build());
+            return;
+        }
 
-            builder.withLocators(ImmutableList.of(locatorRecordBuilder.build()));
+        LispConfigService service = get(LispConfigService.class);
+        List<DeviceInventoryEntry> devices = entries.stream()
+                .filter(DeviceInventoryParser.Entry::isValid)
+                .map(DeviceInventoryParser.Entry::device)
+                .collect(Collectors.toList());
+        Map<Integer, String> invalid = entries.stream()
+                .filter(e -> !e.isValid())
+                .collect(Collectors.toMap(DeviceInventoryParser.Entry::index,
+                                          DeviceInventoryParser.Entry::error,
+                                          (a, b) -> a, TreeMap::new));
+
+        resume(response, service.connectDevices(devices, concurrency, timeoutSec)
+                .thenApply(r -> LispConfigJson.inventoryResults(mapper(), r, invalid)));
+    }
 
-            Boolean result = service.removeEtrEidDataBase(devId, builder.build());
+    /**
+     * Parses the records of a bulk request and applies all valid ones to
+     * the device in one push.
+     */
+    private void applyLocalDbBulk(String deviceId, InputStream inputStream,
+                                  AsyncResponse response, boolean add) {
+        List<MapRecordJsonParser.Entry> entries;
+        try {
+            entries = new MapRecordJsonParser(mapper().getFactory())
+                    .parse(inputStream);
+        } catch (IOException e) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                                    .entity(e.getMessage()).build());
+            return;
+        }
 
-            return ok(result).build();
+        LispConfigService service = get(LispConfigService.class);
+        DeviceId devId = DeviceId.deviceId(deviceId);
+        List<LispMapRecord> records = entries.stream()
+                .filter(MapRecordJsonParser.Entry::isValid)
+                .map(MapRecordJsonParser.Entry::record)
+                .collect(Collectors.toList());
+
+        CompletableFuture<List<Boolean>> future;
+        if (records.isEmpty()) {
+            future = CompletableFuture.completedFuture(Collections.emptyList());
+        } else if (add) {
+            future = service.addEtrEidDataBasesAsync(devId, records);
         } else {
-            //TODO: JSON support
+            future = service.removeEtrEidDataBasesAsync(devId, records);
+        }
+
+        resume(response, future.thenApply(results -> bulkResult(entries, results)));
+    }
+
+    /**
+     * Builds the record given by query parameters, answering 400 when a
+     * parameter is missing or out of range.
+     */
+    private LispMapRecord queryRecord(String eid, int mask, String rloc,
+                                      int priority, int weight, int ttl,
+                                      AsyncResponse response) {
+        try {
+            return MapRecords.record(eid, mask, ttl, ImmutableList.of(
+                    MapRecords.locator(rloc, priority, weight)));
+        } catch (IllegalArgumentException e) {
+            response.resume(Response.status(Response.Status.BAD_REQUEST)
+                                    .entity(e.getMessage()).build());
+            return null;
+        }
+    }
+
+    private ObjectNode bulkResult(List<MapRecordJsonParser.Entry> entries,
+                                  List<Boolean> results) {
+        ObjectNode node = mapper().createObjectNode();
+        ArrayNode arrayNode = node.putArray("records");
+        Iterator<Boolean> resultIterator = results.iterator();
+        boolean allApplied = true;
+
+        for (MapRecordJsonParser.Entry entry : entries) {
+            ObjectNode recordNode = arrayNode.addObject().put("index", entry.index());
+            if (entry.isValid()) {
+                boolean result = resultIterator.next();
+                recordNode.put("eid", MapRecords.eidPrefix(entry.record()).toString());
+                recordNode.put("result", result);
+                allApplied &= result;
+            } else {
+                recordNode.put("result", false);
+                recordNode.put("error", entry.error());
+                allApplied = false;
+            }
         }
-        return ok(false).build();
+        node.put("result", allApplied);
+
+        return node;
+    }
+
+    private List<DeviceId> deviceIds(List<String> deviceIds) {
+        return deviceIds.stream().map(DeviceId::deviceId)
+                .collect(Collectors.toList());
     }
 
 }
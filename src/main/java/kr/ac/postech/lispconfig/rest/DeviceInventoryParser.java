@@ -0,0 +1,373 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import kr.ac.postech.lispconfig.DeviceInventoryEntry;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser of device inventories, in JSON or CSV.
+ *
+ * A JSON inventory lists the devices, which either carry their NetConf
+ * credentials or refer to a named set of credentials:
+ * <pre>
+ * {"credentials": {"pop1": {"username": "oor", "password": "oor"}},
+ *  "devices": [{"address": "192.168.10.1", "port": 830,
+ *               "credentials": "pop1",
+ *               "mapResolvers": ["10.0.0.1"],
+ *               "records": [{"eid": "1.1.1.0", "eid_mask": 24,
+ *                            "locators": [{"rloc": "192.168.10.1"}]}]}]}
+ * </pre>
+ * A CSV inventory has one device per line, with the map resolvers
+ * separated by semicolons; lines starting with # are ignored:
+ * <pre>
+ * address,port,username,password,mapResolvers
+ * 192.168.10.1,830,oor,oor,10.0.0.1;10.0.0.2
+ * </pre>
+ * A device which cannot be converted is reported with its error instead
+ * of failing the whole inventory.
+ */
+public final class DeviceInventoryParser {
+
+    private static final String CREDENTIALS = "credentials";
+    private static final String DEVICES = "devices";
+    private static final String ADDRESS = "address";
+    private static final String PORT = "port";
+    private static final String USERNAME = "username";
+    private static final String PASSWORD = "password";
+    private static final String MAP_RESOLVERS = "mapResolvers";
+    private static final String RECORDS = "records";
+
+    private static final int DEFAULT_PORT = 830;
+    private static final int MAX_PORT = 65535;
+
+    private static final Splitter CSV_SPLITTER = Splitter.on(',').trimResults();
+    private static final Splitter RESOLVER_SPLITTER =
+            Splitter.on(';').trimResults().omitEmptyStrings();
+
+    private final JsonFactory factory;
+    private final MapRecordJsonParser recordParser;
+
+    /**
+     * Creates a parser which reads JSON documents with the given factory.
+     *
+     * @param factory JSON factory
+     */
+    public DeviceInventoryParser(JsonFactory factory) {
+        this.factory = factory;
+        this.recordParser = new MapRecordJsonParser(factory);
+    }
+
+    /**
+     * A parsed device, or the reason why the device at the index is invalid.
+     */
+    public static final class Entry {
+        private final int index;
+        private final DeviceInventoryEntry device;
+        private final String error;
+
+        private Entry(int index, DeviceInventoryEntry device, String error) {
+            this.index = index;
+            this.device = device;
+            this.error = error;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public DeviceInventoryEntry device() {
+            return device;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public boolean isValid() {
+            return device != null;
+        }
+    }
+
+    /**
+     * Device fields read from a JSON inventory, whose credentials may
+     * refer to a set defined later in the document.
+     */
+    private static final class PendingDevice {
+        String address;
+        int port = DEFAULT_PORT;
+        String username;
+        String password;
+        String credentials;
+        List<String> mapResolvers = Lists.newArrayList();
+        List<LispMapRecord> records = Lists.newArrayList();
+        String error;
+    }
+
+    /**
+     * Parses all devices of a JSON inventory.
+     *
+     * @param stream JSON document
+     * @return parsed devices in document order
+     * @throws IOException when the document is not well-formed
+     */
+    public List<Entry> parseJson(InputStream stream) throws IOException {
+        List<PendingDevice> devices = Lists.newArrayList();
+        Map<String, String[]> credentials = Maps.newHashMap();
+
+        try (JsonParser parser = factory.createParser(stream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                parseDevices(parser, devices);
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    token = parser.nextToken();
+                    if (token == JsonToken.START_ARRAY && DEVICES.equals(name)) {
+                        parseDevices(parser, devices);
+                    } else if (token == JsonToken.START_OBJECT &&
+                            CREDENTIALS.equals(name)) {
+                        parseCredentials(parser, credentials);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                throw new JsonParseException(parser, "Expected an array of devices");
+            }
+        }
+
+        List<Entry> entries = Lists.newArrayListWithCapacity(devices.size());
+        for (PendingDevice device : devices) {
+            int index = entries.size();
+            if (device.error == null && device.credentials != null) {
+                String[] credential = credentials.get(device.credentials);
+                if (credential == null) {
+                    device.error = "unknown credentials " + device.credentials;
+                } else {
+                    device.username = credential[0];
+                    device.password = credential[1];
+                }
+            }
+            entries.add(toEntry(index, device));
+        }
+        return entries;
+    }
+
+    /**
+     * Parses all devices of a CSV inventory. A first line starting with
+     * "address" is taken as the header.
+     *
+     * @param stream CSV document in UTF-8
+     * @return parsed devices in document order
+     * @throws IOException when the document cannot be read
+     */
+    public List<Entry> parseCsv(InputStream stream) throws IOException {
+        List<Entry> entries = Lists.newArrayList();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(stream, StandardCharsets.UTF_8));
+
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            boolean header = first && line.startsWith(ADDRESS);
+            first = false;
+            if (line.isEmpty() || line.startsWith("#") || header) {
+                continue;
+            }
+
+            List<String> fields = CSV_SPLITTER.splitToList(line);
+            PendingDevice device = new PendingDevice();
+            if (fields.size() < 4) {
+                device.error = "expected address, port, username and password";
+            } else {
+                device.address = fields.get(0);
+                device.port = port(device, fields.get(1));
+                device.username = fields.get(2);
+                device.password = fields.get(3);
+                if (fields.size() > 4) {
+                    device.mapResolvers.addAll(
+                            RESOLVER_SPLITTER.splitToList(fields.get(4)));
+                }
+            }
+            entries.add(toEntry(entries.size(), device));
+        }
+        return entries;
+    }
+
+    private void parseCredentials(JsonParser parser,
+                                  Map<String, String[]> credentials)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String[] credential = new String[2];
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (USERNAME.equals(field)) {
+                    credential[0] = parser.getValueAsString();
+                } else if (PASSWORD.equals(field)) {
+                    credential[1] = parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+            credentials.put(name, credential);
+        }
+    }
+
+    private void parseDevices(JsonParser parser, List<PendingDevice> devices)
+            throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                PendingDevice device = new PendingDevice();
+                device.error = "device is not an object";
+                devices.add(device);
+                continue;
+            }
+            devices.add(parseDevice(parser));
+        }
+    }
+
+    private PendingDevice parseDevice(JsonParser parser) throws IOException {
+        PendingDevice device = new PendingDevice();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case ADDRESS:
+                    device.address = parser.getValueAsString();
+                    break;
+                case PORT:
+                    device.port = port(device, parser.getValueAsString());
+                    break;
+                case USERNAME:
+                    device.username = parser.getValueAsString();
+                    break;
+                case PASSWORD:
+                    device.password = parser.getValueAsString();
+                    break;
+                case CREDENTIALS:
+                    device.credentials = parser.getValueAsString();
+                    break;
+                case MAP_RESOLVERS:
+                    if (value != JsonToken.START_ARRAY) {
+                        fail(device, "mapResolvers is not an array");
+                        break;
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        String resolver = parser.getValueAsString();
+                        if (resolver == null) {
+                            fail(device, "map resolver is not a string");
+                        } else {
+                            device.mapResolvers.add(resolver);
+                        }
+                        parser.skipChildren();
+                    }
+                    break;
+                case RECORDS:
+                    if (value != JsonToken.START_ARRAY) {
+                        fail(device, "records is not an array");
+                        break;
+                    }
+                    for (MapRecordJsonParser.Entry entry :
+                            recordParser.parseRecords(parser)) {
+                        if (entry.isValid()) {
+                            device.records.add(entry.record());
+                        } else {
+                            fail(device, "record " + entry.index() + ": " +
+                                    entry.error());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            parser.skipChildren();
+        }
+
+        return device;
+    }
+
+    private static Entry toEntry(int index, PendingDevice device) {
+        if (device.error == null) {
+            if (device.address == null) {
+                device.error = "address is missing";
+            } else if (device.username == null || device.password == null) {
+                device.error = "credentials are missing";
+            }
+        }
+        if (device.error == null) {
+            try {
+                IpAddress.valueOf(device.address);
+                device.mapResolvers.forEach(IpAddress::valueOf);
+            } catch (IllegalArgumentException e) {
+                device.error = e.getMessage();
+            }
+        }
+        if (device.error != null) {
+            return new Entry(index, null, device.error);
+        }
+
+        return new Entry(index, new DeviceInventoryEntry(
+                device.address, device.port, device.username, device.password,
+                device.mapResolvers, device.records), null);
+    }
+
+    private static int port(PendingDevice device, String value) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port > 0 && port <= MAX_PORT) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        fail(device, "port must be between 1 and " + MAX_PORT);
+        return DEFAULT_PORT;
+    }
+
+    private static void fail(PendingDevice device, String error) {
+        if (device.error == null) {
+            device.error = error;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kr.ac.postech.lispconfig.LispConfigJson;
+import kr.ac.postech.lispconfig.LispConfigService;
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Response bodies writing the local EID database of a device known to the
+ * controller as it is read from the store, one page of records at a time.
+ * At most one page is held while the response is written, however large
+ * the database is.
+ */
+final class LocalEidStream {
+
+    static final int PAGE_SIZE = 1000;
+
+    private LocalEidStream() {
+    }
+
+    /**
+     * Returns a body holding the records in the form of the
+     * state/local-db JSON object.
+     *
+     * @param service configuration service
+     * @param mapper object mapper
+     * @param deviceId the device
+     * @param unconfirmed local EID ids not yet confirmed by the device, or
+     *                    null to omit the pending flag
+     * @return streaming response body
+     */
+    static StreamingOutput json(LispConfigService service, ObjectMapper mapper,
+                                DeviceId deviceId, Set<String> unconfirmed) {
+        return output -> {
+            try (JsonGenerator generator = mapper.getFactory()
+                    .createGenerator(output, JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                generator.writeStringField("deviceId", deviceId.toString());
+                generator.writeArrayFieldStart("records");
+
+                IpPrefix after = null;
+                List<LispMapRecord> page;
+                do {
+                    page = service.getLocalEids(deviceId, after, PAGE_SIZE);
+                    for (LispMapRecord record : page) {
+                        ObjectNode node = LispConfigJson.localEid(
+                                mapper.createObjectNode(), record);
+                        after = MapRecords.eidPrefix(record);
+                        if (unconfirmed != null) {
+                            node.put("pending", unconfirmed.contains(after.toString()));
+                        }
+                        mapper.writeTree(generator, node);
+                    }
+                    generator.flush();
+                } while (page.size() == PAGE_SIZE);
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Returns a body holding the records as an etr-cfg document, as it
+     * would be read from the device.
+     *
+     * @param service configuration service
+     * @param deviceId the device
+     * @return streaming response body
+     */
+    static StreamingOutput xml(LispConfigService service, DeviceId deviceId) {
+        return output -> {
+            StringBuilder buffer = new StringBuilder();
+            LispSimpleXmlWriter writer = new LispSimpleXmlWriter(buffer);
+            Writer out = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+
+            writer.beginEtrConfig();
+            IpPrefix after = null;
+            List<LispMapRecord> page;
+            do {
+                page = service.getLocalEids(deviceId, after, PAGE_SIZE);
+                for (LispMapRecord record : page) {
+                    writer.localEid(record, LispSimpleXmlWriter.Operation.NONE);
+                    after = MapRecords.eidPrefix(record);
+                }
+                flush(buffer, out);
+            } while (page.size() == PAGE_SIZE);
+            writer.endEtrConfig();
+            flush(buffer, out);
+        };
+    }
+
+    private static void flush(StringBuilder buffer, Writer out) throws IOException {
+        out.append(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.List;
+
+/**
+ * Line format of local EID records in CSV. A line holds the EID, its mask
+ * length and record TTL, followed by an rloc, priority and weight triple
+ * per locator; an empty TTL stands for the default TTL:
+ * <pre>
+ * eid,eid_mask,ttl,rloc,priority,weight
+ * 1.1.1.0,24,1,192.168.10.1,1,100,192.168.10.2,2,100
+ * </pre>
+ */
+public final class MapRecordCsvFormat {
+
+    /**
+     * Header line of a CSV document.
+     */
+    public static final String HEADER = "eid,eid_mask,ttl,rloc,priority,weight";
+
+    private static final Splitter SPLITTER = Splitter.on(',').trimResults();
+    private static final int RECORD_FIELDS = 3;
+    private static final int LOCATOR_FIELDS = 3;
+
+    private MapRecordCsvFormat() {
+    }
+
+    /**
+     * Returns whether the line holds no record, being empty, a comment
+     * starting with # or the header.
+     *
+     * @param line line of a CSV document
+     * @return true when the line is to be skipped
+     */
+    public static boolean isSkipped(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#") ||
+                trimmed.startsWith("eid");
+    }
+
+    /**
+     * Parses a record line.
+     *
+     * @param line line of a CSV document
+     * @param index index of the record reported with errors
+     * @return parsed record, or the reason why the line is invalid
+     */
+    public static MapRecordJsonParser.Entry parse(String line, int index) {
+        List<String> fields = SPLITTER.splitToList(line);
+        if (fields.size() < RECORD_FIELDS + LOCATOR_FIELDS ||
+                (fields.size() - RECORD_FIELDS) % LOCATOR_FIELDS != 0) {
+            return new MapRecordJsonParser.Entry(
+                    index, null, "expected eid, eid_mask, ttl and " +
+                    "rloc, priority, weight triples");
+        }
+
+        try {
+            int mask = Integer.parseInt(fields.get(1));
+            int ttl = fields.get(2).isEmpty() ? MapRecords.DEFAULT_TTL :
+                    Integer.parseInt(fields.get(2));
+
+            List<LispLocator> locators = Lists.newArrayList();
+            for (int i = RECORD_FIELDS; i < fields.size(); i += LOCATOR_FIELDS) {
+                locators.add(MapRecords.locator(
+                        fields.get(i), Integer.parseInt(fields.get(i + 1)),
+                        Integer.parseInt(fields.get(i + 2))));
+            }
+            return MapRecordJsonParser.record(index, fields.get(0), mask,
+                                              ttl, locators);
+        } catch (IllegalArgumentException e) {
+            return new MapRecordJsonParser.Entry(index, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Formats a record as a line, without the line terminator.
+     *
+     * @param record local EID-RLOC map record
+     * @return CSV line of the record
+     */
+    public static String format(LispMapRecord record) {
+        StringBuilder line = new StringBuilder(64)
+                .append(record.getEidPrefixAfi()).append(',')
+                .append(record.getMaskLength() & 0xff).append(',')
+                .append(record.getRecordTtl());
+        record.getLocators().forEach(l -> line
+                .append(',').append(l.getLocatorAfi())
+                .append(',').append(l.getPriority() & 0xff)
+                .append(',').append(l.getWeight() & 0xff));
+        return line.toString();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Lists;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser of local EID records in JSON.
+ *
+ * Accepts either an array of records or an object with a "records" array:
+ * <pre>
+ * {"records": [{"eid": "1.1.1.0", "eid_mask": 24, "ttl": 1,
+ *               "locators": [{"rloc": "192.168.10.1",
+ *                             "priority": 1, "weight": 100}]}]}
+ * </pre>
+ * A record which cannot be converted is reported with its error instead
+ * of failing the whole document.
+ */
+public final class MapRecordJsonParser {
+
+    private static final String RECORDS = "records";
+    private static final String EID = "eid";
+    private static final String EID_MASK = "eid_mask";
+    private static final String TTL = "ttl";
+    private static final String LOCATORS = "locators";
+    private static final String RLOC = "rloc";
+    private static final String PRIORITY = "priority";
+    private static final String WEIGHT = "weight";
+
+    private static final int DEFAULT_TTL = MapRecords.DEFAULT_TTL;
+
+    private final JsonFactory factory;
+
+    /**
+     * Creates a parser which reads documents with the given factory.
+     *
+     * @param factory JSON factory
+     */
+    public MapRecordJsonParser(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * A parsed record, or the reason why the record at the index is invalid.
+     */
+    public static final class Entry {
+        private final int index;
+        private final LispMapRecord record;
+        private final String error;
+
+        Entry(int index, LispMapRecord record, String error) {
+            this.index = index;
+            this.record = record;
+            this.error = error;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public LispMapRecord record() {
+            return record;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public boolean isValid() {
+            return record != null;
+        }
+    }
+
+    /**
+     * Parses all records of the document.
+     *
+     * @param stream JSON document
+     * @return parsed records in document order
+     * @throws IOException when the document is not well-formed
+     */
+    public List<Entry> parse(InputStream stream) throws IOException {
+        List<Entry> entries = Lists.newArrayList();
+        parse(stream, entries::add);
+        return entries;
+    }
+
+    /**
+     * Parses the records of the document one at a time, so that documents
+     * of any size are read with constant memory.
+     *
+     * @param stream JSON document
+     * @param consumer receives the parsed records in document order
+     * @throws IOException when the document is not well-formed
+     */
+    public void parse(InputStream stream, Consumer<Entry> consumer)
+            throws IOException {
+        try (JsonParser parser = factory.createParser(stream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                parseRecords(parser, consumer);
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY &&
+                            RECORDS.equals(name)) {
+                        parseRecords(parser, consumer);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                throw new JsonParseException(parser, "Expected an array of records");
+            }
+        }
+    }
+
+    /**
+     * Parses the records of an array embedded in a larger document.
+     *
+     * @param parser parser positioned at the start of the array
+     * @return parsed records in array order
+     * @throws IOException when the array is not well-formed
+     */
+    public List<Entry> parseRecords(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array of records");
+        }
+        List<Entry> entries = Lists.newArrayList();
+        parseRecords(parser, entries::add);
+        return entries;
+    }
+
+    private void parseRecords(JsonParser parser, Consumer<Entry> consumer)
+            throws IOException {
+        JsonToken token;
+        int index = 0;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                consumer.accept(new Entry(index++, null, "record is not an object"));
+                continue;
+            }
+            consumer.accept(parseRecord(parser, index++));
+        }
+    }
+
+    private Entry parseRecord(JsonParser parser, int index) throws IOException {
+        String eid = null;
+        int mask = -1;
+        int ttl = DEFAULT_TTL;
+        List<LispLocator> locators = Lists.newArrayList();
+        String error = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case EID:
+                    eid = parser.getValueAsString();
+                    break;
+                case EID_MASK:
+                    mask = parser.getValueAsInt(-1);
+                    break;
+                case TTL:
+                    ttl = parser.getValueAsInt(DEFAULT_TTL);
+                    break;
+                case LOCATORS:
+                    if (value != JsonToken.START_ARRAY) {
+                        error = firstError(error, "locators is not an array");
+                        break;
+                    }
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            error = firstError(error, "locator is not an object");
+                            continue;
+                        }
+                        try {
+                            locators.add(parseLocator(parser));
+                        } catch (IllegalArgumentException e) {
+                            error = firstError(error, e.getMessage());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            parser.skipChildren();
+        }
+
+        if (error == null) {
+            if (eid == null) {
+                error = "eid is missing";
+            } else if (locators.isEmpty()) {
+                error = "locators are missing";
+            }
+        }
+        if (error != null) {
+            return new Entry(index, null, error);
+        }
+        return record(index, eid, mask, ttl, locators);
+    }
+
+    /**
+     * Builds a record out of its fields, checking their ranges.
+     */
+    static Entry record(int index, String eid, int mask, int ttl,
+                        List<LispLocator> locators) {
+        try {
+            return new Entry(index, MapRecords.record(eid, mask, ttl, locators), null);
+        } catch (IllegalArgumentException e) {
+            return new Entry(index, null, e.getMessage());
+        }
+    }
+
+    private LispLocator parseLocator(JsonParser parser) throws IOException {
+        String rloc = null;
+        int priority = 1;
+        int weight = 100;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case RLOC:
+                    rloc = parser.getValueAsString();
+                    break;
+                case PRIORITY:
+                    priority = parser.getValueAsInt(-1);
+                    break;
+                case WEIGHT:
+                    weight = parser.getValueAsInt(-1);
+                    break;
+                default:
+                    break;
+            }
+            parser.skipChildren();
+        }
+
+        if (rloc == null) {
+            throw new IllegalArgumentException("rloc is missing");
+        }
+        return MapRecords.locator(rloc, priority, weight);
+    }
+
+    private static String firstError(String error, String newError) {
+        return error != null ? error : newError;
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Local EID database of one device held in primitive arrays instead of
+ * map record objects.
+ *
+ * Records are sorted by address family, prefix address and mask length,
+ * with each field in a parallel array; IPv4 and IPv6 addresses both take
+ * two longs. The sorted records are cut into blocks of at most 512
+ * records, so that adding or removing a record shifts the rest of its
+ * block only and bulk loads in any order stay close to linear; a full
+ * block is split in two. Locators of all records are packed into a second
+ * set of arrays, each record referring to a contiguous run of them.
+ * Locators left behind by replaced or removed records are reclaimed by
+ * compacting the locator arrays once they make up half of them.
+ *
+ * Besides exact lookups, the sort order answers longest prefix matches
+ * and the records covering or covered by a prefix.
+ *
+ * Map record objects are only built when records are read. Not thread
+ * safe; the owner serializes access.
+ */
+final class CompactEidTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BLOCK_SIZE = 512;
+    private static final int MIN_COMPACTION = 1024;
+
+    private static final int IPV6 = 1;
+    private static final int AUTHORITATIVE = 1 << 1;
+    private static final int LOCAL_LOCATOR = 1 << 2;
+    private static final int RLOC_PROBED = 1 << 3;
+    private static final int ROUTED = 1 << 4;
+
+    // records, in blocks following each other in prefix order
+    private int size;
+    private final List<Block> blocks = Lists.newArrayList();
+
+    // locators; priority, weight, multicast priority and weight are packed
+    // into one int
+    private int locatorEnd;
+    private int garbage;
+    private long[] rlocHigh = new long[INITIAL_CAPACITY];
+    private long[] rlocLow = new long[INITIAL_CAPACITY];
+    private int[] rlocWeights = new int[INITIAL_CAPACITY];
+    private byte[] rlocFlags = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Returns the number of records.
+     *
+     * @return number of records
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sets the record of the given EID prefix.
+     *
+     * @param prefix EID prefix
+     * @param record the record
+     */
+    void put(IpPrefix prefix, LispMapRecord record) {
+        Key key = new Key(prefix);
+        List<LispLocator> locators = record.getLocators();
+
+        if (blocks.isEmpty()) {
+            blocks.add(new Block(INITIAL_CAPACITY));
+        }
+        int b = blockOf(key);
+        Block block = blocks.get(b);
+        int index = block.indexOf(key);
+
+        if (index < 0) {
+            index = -index - 1;
+            if (block.size == BLOCK_SIZE) {
+                Block upper = block.split();
+                blocks.add(b + 1, upper);
+                if (index > block.size) {
+                    index -= block.size;
+                    block = upper;
+                }
+            }
+            block.insert(index, key);
+            size++;
+            block.locatorStart[index] = appendLocators(locators.size());
+        } else if (locators.size() > block.locatorCount[index]) {
+            garbage += block.locatorCount[index];
+            block.locatorStart[index] = appendLocators(locators.size());
+        } else {
+            garbage += block.locatorCount[index] - locators.size();
+        }
+
+        block.recordFlags[index] = (byte) (key.family |
+                (record.isAuthoritative() ? AUTHORITATIVE : 0));
+        block.ttls[index] = record.getRecordTtl();
+        block.locatorCount[index] = locators.size();
+
+        int at = block.locatorStart[index];
+        for (LispLocator l : locators) {
+            setLocator(at++, l);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes the record of the given EID prefix.
+     *
+     * @param prefix EID prefix
+     * @return true when the prefix was found
+     */
+    boolean remove(IpPrefix prefix) {
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        Key key = new Key(prefix);
+        int b = blockOf(key);
+        Block block = blocks.get(b);
+        int index = block.indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        garbage += block.locatorCount[index];
+        block.remove(index);
+        size--;
+        if (block.size == 0) {
+            blocks.remove(b);
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Returns the record of the given EID prefix.
+     *
+     * @param prefix EID prefix
+     * @return the record, or null
+     */
+    LispMapRecord get(IpPrefix prefix) {
+        if (blocks.isEmpty()) {
+            return null;
+        }
+        Key key = new Key(prefix);
+        Block block = blocks.get(blockOf(key));
+        int index = block.indexOf(key);
+        return index < 0 ? null : record(block, index);
+    }
+
+    /**
+     * Returns the record of the longest prefix holding the given address.
+     *
+     * @param address IP address
+     * @return the record, or null when no prefix holds the address
+     */
+    LispMapRecord longestPrefixMatch(IpAddress address) {
+        int length = address.isIp4() ? Ip4Address.BIT_LENGTH : Ip6Address.BIT_LENGTH;
+        for (; length >= 0; length--) {
+            LispMapRecord record = get(IpPrefix.valueOf(address, length));
+            if (record != null) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the records of the prefixes holding the given prefix, the
+     * prefix itself included.
+     *
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records, shortest prefix first
+     */
+    ImmutableList<LispMapRecord> covering(IpPrefix prefix) {
+        ImmutableList.Builder<LispMapRecord> records = ImmutableList.builder();
+        for (int length = 0; length <= prefix.prefixLength(); length++) {
+            LispMapRecord record = get(IpPrefix.valueOf(prefix.address(), length));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records.build();
+    }
+
+    /**
+     * Returns the records of the prefixes held by the given prefix, the
+     * prefix itself included.
+     *
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records in prefix order
+     */
+    ImmutableList<LispMapRecord> covered(IpPrefix prefix) {
+        ImmutableList.Builder<LispMapRecord> records = ImmutableList.builder();
+        if (blocks.isEmpty()) {
+            return records.build();
+        }
+        Key first = new Key(prefix);
+        Key last = first.lastAddress();
+
+        int b = blockOf(first);
+        int index = blocks.get(b).indexOf(first);
+        index = index < 0 ? -index - 1 : index;
+        for (; b < blocks.size(); b++, index = 0) {
+            Block block = blocks.get(b);
+            for (; index < block.size; index++) {
+                if (block.compareAddress(index, last) > 0) {
+                    return records.build();
+                }
+                if ((block.masks[index] & 0xff) >= first.mask) {
+                    records.add(record(block, index));
+                }
+            }
+        }
+        return records.build();
+    }
+
+    /**
+     * Returns all records in prefix order.
+     *
+     * @return local EID-RLOC map records
+     */
+    ImmutableList<LispMapRecord> records() {
+        return records(null, size);
+    }
+
+    /**
+     * Returns the records following the given EID prefix in prefix order.
+     * The prefix itself need not be in the table.
+     *
+     * @param after prefix to start after, or null to start at the first record
+     * @param limit maximum number of records
+     * @return local EID-RLOC map records
+     */
+    ImmutableList<LispMapRecord> records(IpPrefix after, int limit) {
+        ImmutableList.Builder<LispMapRecord> records = ImmutableList.builder();
+        if (blocks.isEmpty()) {
+            return records.build();
+        }
+        int b = 0;
+        int index = 0;
+        if (after != null) {
+            Key key = new Key(after);
+            b = blockOf(key);
+            index = blocks.get(b).indexOf(key);
+            index = index < 0 ? -index - 1 : index + 1;
+        }
+
+        int left = limit;
+        for (; b < blocks.size() && left > 0; b++, index = 0) {
+            Block block = blocks.get(b);
+            for (; index < block.size && left > 0; index++, left--) {
+                records.add(record(block, index));
+            }
+        }
+        return records.build();
+    }
+
+    /**
+     * Returns the index of the last block starting at or before the given
+     * key, which is the block holding the key or the one to add it to.
+     */
+    private int blockOf(Key key) {
+        int found = 0;
+        int from = 1;
+        int to = blocks.size() - 1;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            if (blocks.get(mid).compare(0, key) <= 0) {
+                found = mid;
+                from = mid + 1;
+            } else {
+                to = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reserves room for locators at the end of the locator arrays.
+     *
+     * @return index of the first reserved locator
+     */
+    private int appendLocators(int count) {
+        int needed = locatorEnd + count;
+        if (needed > rlocHigh.length) {
+            int capacity = Math.max(needed, grow(rlocHigh.length));
+            rlocHigh = Arrays.copyOf(rlocHigh, capacity);
+            rlocLow = Arrays.copyOf(rlocLow, capacity);
+            rlocWeights = Arrays.copyOf(rlocWeights, capacity);
+            rlocFlags = Arrays.copyOf(rlocFlags, capacity);
+        }
+        int start = locatorEnd;
+        locatorEnd = needed;
+        return start;
+    }
+
+    private void setLocator(int at, LispLocator locator) {
+        IpAddress address = ipAddress(locator.getLocatorAfi());
+        rlocHigh[at] = high(address);
+        rlocLow[at] = low(address);
+        rlocWeights[at] = (locator.getPriority() & 0xff) << 24 |
+                (locator.getWeight() & 0xff) << 16 |
+                (locator.getMulticastPriority() & 0xff) << 8 |
+                (locator.getMulticastWeight() & 0xff);
+        rlocFlags[at] = (byte) ((address.isIp6() ? IPV6 : 0) |
+                (locator.isLocalLocator() ? LOCAL_LOCATOR : 0) |
+                (locator.isRlocProbed() ? RLOC_PROBED : 0) |
+                (locator.isRouted() ? ROUTED : 0));
+    }
+
+    /**
+     * Moves the locators of all records to the front of fresh arrays, in
+     * record order, dropping the unused ones.
+     */
+    private void compactIfNeeded() {
+        if (garbage < MIN_COMPACTION || garbage * 2 < locatorEnd) {
+            return;
+        }
+        int live = locatorEnd - garbage;
+        int capacity = Math.max(INITIAL_CAPACITY, grow(live));
+        long[] high = new long[capacity];
+        long[] low = new long[capacity];
+        int[] weights = new int[capacity];
+        byte[] flags = new byte[capacity];
+
+        int end = 0;
+        for (Block block : blocks) {
+            for (int i = 0; i < block.size; i++) {
+                int start = block.locatorStart[i];
+                int count = block.locatorCount[i];
+                System.arraycopy(rlocHigh, start, high, end, count);
+                System.arraycopy(rlocLow, start, low, end, count);
+                System.arraycopy(rlocWeights, start, weights, end, count);
+                System.arraycopy(rlocFlags, start, flags, end, count);
+                block.locatorStart[i] = end;
+                end += count;
+            }
+        }
+
+        rlocHigh = high;
+        rlocLow = low;
+        rlocWeights = weights;
+        rlocFlags = flags;
+        locatorEnd = end;
+        garbage = 0;
+    }
+
+    private LispMapRecord record(Block block, int index) {
+        int start = block.locatorStart[index];
+        int count = block.locatorCount[index];
+        LispLocator[] locators = new LispLocator[count];
+        for (int i = 0; i < count; i++) {
+            locators[i] = locator(start + i);
+        }
+
+        int flags = block.recordFlags[index];
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(afiAddress((flags & IPV6) != 0,
+                                            block.eidHigh[index],
+                                            block.eidLow[index]));
+        builder.withMaskLength(block.masks[index]);
+        builder.withRecordTtl(block.ttls[index]);
+        builder.withIsAuthoritative((flags & AUTHORITATIVE) != 0);
+        builder.withLocators(ImmutableList.copyOf(locators));
+        return builder.build();
+    }
+
+    private LispLocator locator(int at) {
+        int weights = rlocWeights[at];
+        int flags = rlocFlags[at];
+
+        DefaultLispLocator.DefaultLocatorBuilder builder =
+                new DefaultLispLocator.DefaultLocatorBuilder();
+        builder.withLocatorAfi(afiAddress((flags & IPV6) != 0,
+                                          rlocHigh[at], rlocLow[at]));
+        builder.withPriority((byte) (weights >>> 24));
+        builder.withWeight((byte) (weights >>> 16));
+        builder.withMulticastPriority((byte) (weights >>> 8));
+        builder.withMulticastWeight((byte) weights);
+        builder.withLocalLocator((flags & LOCAL_LOCATOR) != 0);
+        builder.withRlocProbed((flags & RLOC_PROBED) != 0);
+        builder.withRouted((flags & ROUTED) != 0);
+        return builder.build();
+    }
+
+    private static int grow(int capacity) {
+        return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    private static IpAddress ipAddress(LispAfiAddress address) {
+        checkArgument(address instanceof LispIpAddress,
+                      "Unsupported LISP address %s", address);
+        return ((LispIpAddress) address).getAddress();
+    }
+
+    private static long high(IpAddress address) {
+        return address.isIp4() ? 0 : ByteBuffer.wrap(address.toOctets()).getLong();
+    }
+
+    private static long low(IpAddress address) {
+        if (address.isIp4()) {
+            return address.getIp4Address().toInt() & 0xffffffffL;
+        }
+        return ByteBuffer.wrap(address.toOctets()).getLong(Long.BYTES);
+    }
+
+    private static LispAfiAddress afiAddress(boolean ip6, long high, long low) {
+        if (!ip6) {
+            return new LispIpv4Address(Ip4Address.valueOf((int) low));
+        }
+        byte[] octets = ByteBuffer.allocate(Ip6Address.BYTE_LENGTH)
+                .putLong(high).putLong(low).array();
+        return new LispIpv6Address(Ip6Address.valueOf(octets));
+    }
+
+    /**
+     * Sort key of an EID prefix.
+     */
+    private static final class Key {
+        private final int family;
+        private final long high;
+        private final long low;
+        private final int mask;
+
+        private Key(int family, long high, long low, int mask) {
+            this.family = family;
+            this.high = high;
+            this.low = low;
+            this.mask = mask;
+        }
+
+        private Key(IpPrefix prefix) {
+            this(prefix.isIp6() ? IPV6 : 0, high(prefix.address()),
+                 low(prefix.address()), prefix.prefixLength());
+        }
+
+        /**
+         * Returns the key of the last address of this prefix, as a host
+         * prefix.
+         */
+        private Key lastAddress() {
+            int bits = family == IPV6 ? Ip6Address.BIT_LENGTH : Ip4Address.BIT_LENGTH;
+            int hostBits = bits - mask;
+            long lowHost = hostBits >= Long.SIZE ? -1L : (1L << hostBits) - 1;
+            long highHost = hostBits <= Long.SIZE ? 0 :
+                    -1L >>> (2 * Long.SIZE - hostBits);
+            return new Key(family, high | highHost, low | lowHost, bits);
+        }
+    }
+
+    /**
+     * Sorted run of records, each field in a parallel array.
+     */
+    private static final class Block {
+        private int size;
+        private long[] eidHigh;
+        private long[] eidLow;
+        private byte[] masks;
+        private byte[] recordFlags;
+        private int[] ttls;
+        private int[] locatorStart;
+        private int[] locatorCount;
+
+        private Block(int capacity) {
+            eidHigh = new long[capacity];
+            eidLow = new long[capacity];
+            masks = new byte[capacity];
+            recordFlags = new byte[capacity];
+            ttls = new int[capacity];
+            locatorStart = new int[capacity];
+            locatorCount = new int[capacity];
+        }
+
+        private int compareAddress(int index, Key key) {
+            int c = Integer.compare(recordFlags[index] & IPV6, key.family);
+            if (c == 0) {
+                c = Long.compareUnsigned(eidHigh[index], key.high);
+            }
+            if (c == 0) {
+                c = Long.compareUnsigned(eidLow[index], key.low);
+            }
+            return c;
+        }
+
+        private int compare(int index, Key key) {
+            int c = compareAddress(index, key);
+            return c != 0 ? c : Integer.compare(masks[index] & 0xff, key.mask);
+        }
+
+        private int indexOf(Key key) {
+            int from = 0;
+            int to = size - 1;
+            while (from <= to) {
+                int mid = (from + to) >>> 1;
+                int c = compare(mid, key);
+                if (c < 0) {
+                    from = mid + 1;
+                } else if (c > 0) {
+                    to = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(from + 1);
+        }
+
+        private void insert(int index, Key key) {
+            if (size == eidHigh.length) {
+                int capacity = Math.min(BLOCK_SIZE, grow(size));
+                eidHigh = Arrays.copyOf(eidHigh, capacity);
+                eidLow = Arrays.copyOf(eidLow, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+                recordFlags = Arrays.copyOf(recordFlags, capacity);
+                ttls = Arrays.copyOf(ttls, capacity);
+                locatorStart = Arrays.copyOf(locatorStart, capacity);
+                locatorCount = Arrays.copyOf(locatorCount, capacity);
+            }
+
+            int moved = size - index;
+            System.arraycopy(eidHigh, index, eidHigh, index + 1, moved);
+            System.arraycopy(eidLow, index, eidLow, index + 1, moved);
+            System.arraycopy(masks, index, masks, index + 1, moved);
+            System.arraycopy(recordFlags, index, recordFlags, index + 1, moved);
+            System.arraycopy(ttls, index, ttls, index + 1, moved);
+            System.arraycopy(locatorStart, index, locatorStart, index + 1, moved);
+            System.arraycopy(locatorCount, index, locatorCount, index + 1, moved);
+            size++;
+
+            eidHigh[index] = key.high;
+            eidLow[index] = key.low;
+            masks[index] = (byte) key.mask;
+            recordFlags[index] = (byte) key.family;
+            locatorCount[index] = 0;
+        }
+
+        private void remove(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(eidHigh, index + 1, eidHigh, index, moved);
+            System.arraycopy(eidLow, index + 1, eidLow, index, moved);
+            System.arraycopy(masks, index + 1, masks, index, moved);
+            System.arraycopy(recordFlags, index + 1, recordFlags, index, moved);
+            System.arraycopy(ttls, index + 1, ttls, index, moved);
+            System.arraycopy(locatorStart, index + 1, locatorStart, index, moved);
+            System.arraycopy(locatorCount, index + 1, locatorCount, index, moved);
+            size--;
+        }
+
+        /**
+         * Moves the upper half of the records into a new block.
+         *
+         * @return block of the upper half
+         */
+        private Block split() {
+            int half = size / 2;
+            int moved = size - half;
+            Block upper = new Block(BLOCK_SIZE);
+            System.arraycopy(eidHigh, half, upper.eidHigh, 0, moved);
+            System.arraycopy(eidLow, half, upper.eidLow, 0, moved);
+            System.arraycopy(masks, half, upper.masks, 0, moved);
+            System.arraycopy(recordFlags, half, upper.recordFlags, 0, moved);
+            System.arraycopy(ttls, half, upper.ttls, 0, moved);
+            System.arraycopy(locatorStart, half, upper.locatorStart, 0, moved);
+            System.arraycopy(locatorCount, half, upper.locatorCount, 0, moved);
+            upper.size = moved;
+            size = half;
+            return upper;
+        }
+    }
+}
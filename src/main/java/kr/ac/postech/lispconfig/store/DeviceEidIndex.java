@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.collect.ImmutableList;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+/**
+ * Local copy of the EID database of one device, kept in step with the
+ * distributed map holding the records.
+ *
+ * The records are held in a compact table and only turned into map record
+ * objects when read. The index does not order changes: writes are ordered
+ * by the compare-and-set updates of the distributed map, and the index is
+ * fed from the map's events and from local writes once they succeeded.
+ * It is synchronized only so that readers get immutable copies and never
+ * see a half-applied update.
+ */
+final class DeviceEidIndex {
+
+    // guarded by this
+    private final CompactEidTable eids = new CompactEidTable();
+
+    /**
+     * Sets or clears the record of the given EID prefix.
+     *
+     * @param prefix EID prefix
+     * @param record the record, or null to remove the prefix
+     */
+    synchronized void update(IpPrefix prefix, LispMapRecord record) {
+        if (record == null) {
+            eids.remove(prefix);
+        } else {
+            eids.put(prefix, record);
+        }
+    }
+
+    /**
+     * Returns the record of the given EID prefix.
+     *
+     * @param prefix EID prefix
+     * @return the record, or null
+     */
+    synchronized LispMapRecord get(IpPrefix prefix) {
+        return eids.get(prefix);
+    }
+
+    /**
+     * Returns the record of the longest prefix holding the given address.
+     *
+     * @param address IP address
+     * @return the record, or null when no prefix holds the address
+     */
+    synchronized LispMapRecord longestPrefixMatch(IpAddress address) {
+        return eids.longestPrefixMatch(address);
+    }
+
+    /**
+     * Returns the records of the prefixes holding the given prefix.
+     *
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records, shortest prefix first
+     */
+    synchronized ImmutableList<LispMapRecord> covering(IpPrefix prefix) {
+        return eids.covering(prefix);
+    }
+
+    /**
+     * Returns the records of the prefixes held by the given prefix.
+     *
+     * @param prefix EID prefix
+     * @return local EID-RLOC map records in prefix order
+     */
+    synchronized ImmutableList<LispMapRecord> covered(IpPrefix prefix) {
+        return eids.covered(prefix);
+    }
+
+    /**
+     * Returns a copy of the local EID database.
+     *
+     * @return local EID-RLOC map records in prefix order
+     */
+    synchronized ImmutableList<LispMapRecord> records() {
+        return eids.records();
+    }
+
+    /**
+     * Returns a copy of a page of the local EID database.
+     *
+     * @param after prefix to start after, or null to start at the first record
+     * @param limit maximum number of records
+     * @return local EID-RLOC map records in prefix order
+     */
+    synchronized ImmutableList<LispMapRecord> records(IpPrefix after, int limit) {
+        return eids.records(after, limit);
+    }
+}
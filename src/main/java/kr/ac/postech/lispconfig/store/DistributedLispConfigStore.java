@@ -0,0 +1,287 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import kr.ac.postech.lispconfig.LispConfigStore;
+import kr.ac.postech.lispconfig.MapRecordDiff;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.net.DeviceId;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.MapEvent;
+import org.onosproject.store.service.MapEventListener;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
+import org.onosproject.store.service.WallClockTimestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Store of the intended LISP configuration replicated to every instance
+ * of the cluster.
+ *
+ * Map resolvers and local EID records live in consistent maps, and every
+ * change is a compare-and-set on the version it was computed from, so
+ * concurrent changes made on different instances are never lost: a change
+ * whose version is outdated is computed again from the current value.
+ * Local EID records are keyed per record and held encoded in the map; a
+ * per-device compact table is kept in step with the map for lookups and
+ * ordered snapshots of a database. Whether the ETR configuration of a
+ * device is managed is only ever set, so it stays in an eventually
+ * consistent map.
+ */
+@Component(immediate = true)
+@Service
+public class DistributedLispConfigStore implements LispConfigStore {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected StorageService storageService;
+
+    private static final KryoNamespace.Builder SERIALIZER = KryoNamespace.newBuilder()
+            .register(KryoNamespaces.API)
+            .register(LocalEidKey.class);
+
+    private ConsistentMap<DeviceId, List<String>> resolvers;
+    private ConsistentMap<LocalEidKey, byte[]> eids;
+    private EventuallyConsistentMap<DeviceId, Boolean> etrDevices;
+
+    private final Map<DeviceId, DeviceEidIndex> indexes = Maps.newConcurrentMap();
+    private final MapEventListener<LocalEidKey, byte[]> eidListener =
+            new InternalEidListener();
+
+    @Activate
+    protected void activate() {
+        Serializer serializer = Serializer.using(SERIALIZER.build());
+        resolvers = storageService.<DeviceId, List<String>>consistentMapBuilder()
+                .withName("lispconfig-map-resolvers")
+                .withSerializer(serializer)
+                .build();
+        eids = storageService.<LocalEidKey, byte[]>consistentMapBuilder()
+                .withName("lispconfig-local-eid-records")
+                .withSerializer(serializer)
+                .build();
+        etrDevices = storageService.<DeviceId, Boolean>eventuallyConsistentMapBuilder()
+                .withName("lispconfig-etr-devices")
+                .withSerializer(SERIALIZER)
+                .withTimestampProvider((k, v) -> new WallClockTimestamp())
+                .withPersistence()
+                .build();
+
+        eids.addListener(eidListener);
+        eids.entrySet().forEach(e -> index(e.getKey().deviceId()).update(
+                e.getKey().prefix(), LispMapRecordSerializer.decode(e.getValue().value())));
+        log.info("Started");
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        eids.removeListener(eidListener);
+        etrDevices.destroy();
+        indexes.clear();
+        log.info("Stopped");
+    }
+
+    @Override
+    public boolean addMapResolver(DeviceId deviceId, String address) {
+        return updateMapResolvers(deviceId, list -> {
+            if (list != null && list.contains(address)) {
+                return null;
+            }
+            List<String> updated = list == null ?
+                    Lists.newArrayList() : Lists.newArrayList(list);
+            updated.add(address);
+            return updated;
+        });
+    }
+
+    @Override
+    public boolean removeMapResolver(DeviceId deviceId, String address) {
+        if (!resolvers.containsKey(deviceId)) {
+            // the ITR configuration of the device becomes managed here
+            resolvers.putIfAbsent(deviceId, new ArrayList<>());
+            return false;
+        }
+        return updateMapResolvers(deviceId, list -> {
+            if (list == null || !list.contains(address)) {
+                return null;
+            }
+            List<String> updated = Lists.newArrayList(list);
+            updated.remove(address);
+            return updated;
+        });
+    }
+
+    /**
+     * Replaces the map resolvers of the device with the result of the update
+     * applied to their current list, null when there is none, unless the
+     * update returns null. The update is applied again when the list was
+     * changed meanwhile.
+     *
+     * @return true when the map resolvers were replaced
+     */
+    private boolean updateMapResolvers(DeviceId deviceId,
+                                       Function<List<String>, List<String>> update) {
+        while (true) {
+            Versioned<List<String>> current = resolvers.get(deviceId);
+            List<String> updated = update.apply(current == null ? null : current.value());
+            if (updated == null) {
+                return false;
+            }
+            if (current == null ? resolvers.putIfAbsent(deviceId, updated) == null :
+                    resolvers.replace(deviceId, current.version(), updated)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public List<String> getMapResolvers(DeviceId deviceId) {
+        Versioned<List<String>> list = resolvers.get(deviceId);
+        return list == null ? ImmutableList.of() : ImmutableList.copyOf(list.value());
+    }
+
+    @Override
+    public MapRecordDiff mergeLocalEid(DeviceId deviceId, LispMapRecord record) {
+        IpPrefix prefix = MapRecords.eidPrefix(record);
+        LocalEidKey key = new LocalEidKey(deviceId, prefix);
+        markEtrManaged(deviceId);
+
+        while (true) {
+            Versioned<byte[]> current = eids.get(key);
+            LispMapRecord old = current == null ?
+                    null : LispMapRecordSerializer.decode(current.value());
+            MapRecordDiff diff = MapRecords.diff(old, MapRecords.merge(old, record));
+            if (diff.isEmpty()) {
+                return diff;
+            }
+
+            byte[] encoded = LispMapRecordSerializer.encode(diff.record());
+            if (current == null ? eids.putIfAbsent(key, encoded) == null :
+                    eids.replace(key, current.version(), encoded)) {
+                index(deviceId).update(prefix, diff.record());
+                return diff;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeLocalEid(DeviceId deviceId, IpPrefix prefix) {
+        LocalEidKey key = new LocalEidKey(deviceId, prefix);
+        markEtrManaged(deviceId);
+
+        if (eids.remove(key) == null) {
+            return false;
+        }
+        index(deviceId).update(prefix, null);
+        return true;
+    }
+
+    @Override
+    public LispMapRecord getLocalEid(DeviceId deviceId, IpPrefix prefix) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? null : index.get(prefix);
+    }
+
+    @Override
+    public LispMapRecord getMatchingLocalEid(DeviceId deviceId, IpAddress address) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? null : index.longestPrefixMatch(address);
+    }
+
+    @Override
+    public List<LispMapRecord> getCoveringLocalEids(DeviceId deviceId, IpPrefix prefix) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? ImmutableList.of() : index.covering(prefix);
+    }
+
+    @Override
+    public List<LispMapRecord> getCoveredLocalEids(DeviceId deviceId, IpPrefix prefix) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? ImmutableList.of() : index.covered(prefix);
+    }
+
+    @Override
+    public List<LispMapRecord> getLocalEids(DeviceId deviceId) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? ImmutableList.of() : index.records();
+    }
+
+    @Override
+    public List<LispMapRecord> getLocalEids(DeviceId deviceId, IpPrefix after,
+                                            int limit) {
+        DeviceEidIndex index = indexes.get(deviceId);
+        return index == null ? ImmutableList.of() : index.records(after, limit);
+    }
+
+    @Override
+    public boolean isItrManaged(DeviceId deviceId) {
+        return resolvers.containsKey(deviceId);
+    }
+
+    @Override
+    public boolean isEtrManaged(DeviceId deviceId) {
+        return etrDevices.containsKey(deviceId);
+    }
+
+    private void markEtrManaged(DeviceId deviceId) {
+        if (!etrDevices.containsKey(deviceId)) {
+            etrDevices.put(deviceId, true);
+        }
+    }
+
+    private DeviceEidIndex index(DeviceId deviceId) {
+        return indexes.computeIfAbsent(deviceId, k -> new DeviceEidIndex());
+    }
+
+    /**
+     * Applies changes of the local EID records to the local index. Events
+     * are delivered in the order of the changes, so the index ends with the
+     * latest record even where a local write updated it first.
+     */
+    private class InternalEidListener implements MapEventListener<LocalEidKey, byte[]> {
+
+        @Override
+        public void event(MapEvent<LocalEidKey, byte[]> event) {
+            Versioned<byte[]> value = event.newValue();
+            index(event.key().deviceId()).update(
+                    event.key().prefix(),
+                    value == null ? null : LispMapRecordSerializer.decode(value.value()));
+        }
+    }
+}
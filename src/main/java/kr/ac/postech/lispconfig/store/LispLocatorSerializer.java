@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compact Kryo serializer of LISP locators: the RLOC as raw address
+ * bytes followed by the priorities, weights and flags.
+ */
+public final class LispLocatorSerializer extends Serializer<LispLocator> {
+
+    private static final int LOCAL_LOCATOR = 1;
+    private static final int RLOC_PROBED = 1 << 1;
+    private static final int ROUTED = 1 << 2;
+
+    /**
+     * Creates a serializer of immutable locators.
+     */
+    public LispLocatorSerializer() {
+        super(false, true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, LispLocator locator) {
+        writeAddress(output, locator.getLocatorAfi());
+        output.writeByte(locator.getPriority());
+        output.writeByte(locator.getWeight());
+        output.writeByte(locator.getMulticastPriority());
+        output.writeByte(locator.getMulticastWeight());
+        output.writeByte((locator.isLocalLocator() ? LOCAL_LOCATOR : 0) |
+                                 (locator.isRlocProbed() ? RLOC_PROBED : 0) |
+                                 (locator.isRouted() ? ROUTED : 0));
+    }
+
+    @Override
+    public LispLocator read(Kryo kryo, Input input, Class<LispLocator> type) {
+        DefaultLispLocator.DefaultLocatorBuilder builder =
+                new DefaultLispLocator.DefaultLocatorBuilder();
+        builder.withLocatorAfi(readAddress(input));
+        builder.withPriority(input.readByte());
+        builder.withWeight(input.readByte());
+        builder.withMulticastPriority(input.readByte());
+        builder.withMulticastWeight(input.readByte());
+        int flags = input.readByte();
+        builder.withLocalLocator((flags & LOCAL_LOCATOR) != 0);
+        builder.withRlocProbed((flags & RLOC_PROBED) != 0);
+        builder.withRouted((flags & ROUTED) != 0);
+        return builder.build();
+    }
+
+    /**
+     * Writes an IP address as its length in bytes followed by the bytes.
+     *
+     * @param output Kryo output
+     * @param address IPv4 or IPv6 LISP address
+     */
+    static void writeAddress(Output output, LispAfiAddress address) {
+        checkArgument(address instanceof LispIpAddress,
+                      "Unsupported LISP address %s", address);
+        byte[] octets = ((LispIpAddress) address).getAddress().toOctets();
+        output.writeByte(octets.length);
+        output.writeBytes(octets);
+    }
+
+    /**
+     * Reads an IP address written by writeAddress.
+     *
+     * @param input Kryo input
+     * @return IPv4 or IPv6 LISP address
+     */
+    static LispAfiAddress readAddress(Input input) {
+        byte[] octets = input.readBytes(input.readByte());
+        if (octets.length == Ip4Address.BYTE_LENGTH) {
+            return new LispIpv4Address(Ip4Address.valueOf(octets));
+        }
+        return new LispIpv6Address(Ip6Address.valueOf(octets));
+    }
+}
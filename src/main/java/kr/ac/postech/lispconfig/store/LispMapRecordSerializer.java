@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Lists;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.List;
+
+/**
+ * Compact Kryo serializer of local EID-RLOC map records: the EID as raw
+ * address bytes, mask length, TTL and the locators written inline.
+ *
+ * Only the fields of the lispsimple model are kept; the map reply action
+ * and map version number are not stored.
+ */
+public final class LispMapRecordSerializer extends Serializer<LispMapRecord> {
+
+    private static final LispMapRecordSerializer INSTANCE = new LispMapRecordSerializer();
+    private static final int ENCODED_SIZE_HINT = 64;
+
+    private final LispLocatorSerializer locatorSerializer = new LispLocatorSerializer();
+
+    /**
+     * Creates a serializer of immutable map records.
+     */
+    public LispMapRecordSerializer() {
+        super(false, true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, LispMapRecord record) {
+        LispLocatorSerializer.writeAddress(output, record.getEidPrefixAfi());
+        output.writeByte(record.getMaskLength());
+        output.writeVarInt(record.getRecordTtl(), true);
+        output.writeBoolean(record.isAuthoritative());
+
+        List<LispLocator> locators = record.getLocators();
+        output.writeVarInt(locators.size(), true);
+        locators.forEach(l -> locatorSerializer.write(kryo, output, l));
+    }
+
+    @Override
+    public LispMapRecord read(Kryo kryo, Input input, Class<LispMapRecord> type) {
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(LispLocatorSerializer.readAddress(input));
+        builder.withMaskLength(input.readByte());
+        builder.withRecordTtl(input.readVarInt(true));
+        builder.withIsAuthoritative(input.readBoolean());
+
+        int count = input.readVarInt(true);
+        List<LispLocator> locators = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            locators.add(locatorSerializer.read(kryo, input, LispLocator.class));
+        }
+        builder.withLocators(locators);
+
+        return builder.build();
+    }
+
+    /**
+     * Encodes a record into a byte array in the format of this serializer.
+     *
+     * @param record local EID-RLOC map record
+     * @return encoded record
+     */
+    public static byte[] encode(LispMapRecord record) {
+        Output output = new Output(ENCODED_SIZE_HINT, -1);
+        INSTANCE.write(null, output, record);
+        return output.toBytes();
+    }
+
+    /**
+     * Decodes a record encoded by encode.
+     *
+     * @param bytes encoded record, or null
+     * @return the record, or null
+     */
+    public static LispMapRecord decode(byte[] bytes) {
+        return bytes == null ? null :
+                INSTANCE.read(null, new Input(bytes), LispMapRecord.class);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.base.MoreObjects;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.net.DeviceId;
+
+import java.util.Objects;
+
+/**
+ * Key of a local EID record in the distributed store: the device and the
+ * EID prefix of the record.
+ */
+final class LocalEidKey {
+
+    private final DeviceId deviceId;
+    private final IpPrefix prefix;
+
+    LocalEidKey(DeviceId deviceId, IpPrefix prefix) {
+        this.deviceId = deviceId;
+        this.prefix = prefix;
+    }
+
+    DeviceId deviceId() {
+        return deviceId;
+    }
+
+    IpPrefix prefix() {
+        return prefix;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LocalEidKey)) {
+            return false;
+        }
+        LocalEidKey that = (LocalEidKey) obj;
+        return deviceId.equals(that.deviceId) && prefix.equals(that.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(deviceId, prefix);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("deviceId", deviceId)
+                .add("prefix", prefix)
+                .toString();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the reply checks of candidate commits.
+ */
+public class CandidateCommitTest {
+
+    private static final String RPC_REPLY_OPEN =
+            "<rpc-reply message-id=\"101\" " +
+                    "xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\">";
+    private static final String RPC_REPLY_CLOSE = "</rpc-reply>";
+
+    @Test
+    public void okReplies() {
+        assertTrue(CandidateCommit.isOk(RPC_REPLY_OPEN + "<ok/>" + RPC_REPLY_CLOSE));
+        assertTrue(CandidateCommit.isOk(RPC_REPLY_OPEN + "<ok />" + RPC_REPLY_CLOSE));
+        assertTrue(CandidateCommit.isOk(RPC_REPLY_OPEN + "<ok></ok>" + RPC_REPLY_CLOSE));
+        assertTrue(CandidateCommit.isOk("<nc:rpc-reply message-id=\"7\" " +
+                "xmlns:nc=\"urn:ietf:params:xml:ns:netconf:base:1.0\">" +
+                "<nc:ok/></nc:rpc-reply>"));
+    }
+
+    @Test
+    public void errorReplies() {
+        assertFalse(CandidateCommit.isOk(null));
+        assertFalse(CandidateCommit.isOk(""));
+        assertFalse(CandidateCommit.isOk(RPC_REPLY_OPEN + RPC_REPLY_CLOSE));
+        assertFalse(CandidateCommit.isOk(RPC_REPLY_OPEN +
+                "<rpc-error><error-type>protocol</error-type>" +
+                "<error-tag>lock-denied</error-tag>" +
+                "<error-severity>error</error-severity>" +
+                "<error-info><session-id>454</session-id></error-info>" +
+                "</rpc-error>" + RPC_REPLY_CLOSE));
+        assertFalse(CandidateCommit.isOk(RPC_REPLY_OPEN +
+                "<rpc-error><error-tag>operation-failed</error-tag></rpc-error>" +
+                "<ok/>" + RPC_REPLY_CLOSE));
+        assertFalse(CandidateCommit.isOk(RPC_REPLY_OPEN +
+                "<data><okay/></data>" + RPC_REPLY_CLOSE));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter.Operation;
+import org.junit.Test;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for reading pushed entries back after a commit.
+ */
+public class CommitCheckTest {
+
+    private static final String EID = "10.1.0.0/16";
+
+    private static LispMapRecord record(String eid, int mask, int... weights) {
+        ImmutableList.Builder<LispLocator> locators = ImmutableList.builder();
+        for (int i = 0; i < weights.length; i++) {
+            locators.add(MapRecords.locator("192.168.10." + (i + 1), 1, weights[i]));
+        }
+        return MapRecords.record(eid, mask, MapRecords.DEFAULT_TTL, locators.build());
+    }
+
+    private static String itr(String... resolvers) {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginItrConfig();
+        for (String r : resolvers) {
+            writer.mapResolver(r, Operation.NONE);
+        }
+        return writer.endItrConfig().toString();
+    }
+
+    private static String etr(LispMapRecord... records) {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginEtrConfig();
+        for (LispMapRecord r : records) {
+            writer.localEid(r, Operation.NONE);
+        }
+        return writer.endEtrConfig().toString();
+    }
+
+    @Test
+    public void resolvers() throws Exception {
+        CommitCheck check = new CommitCheck();
+        check.resolver("10.0.0.1", true);
+        check.resolver("10.0.0.2", false);
+
+        assertTrue(check.checksItr());
+        assertFalse(check.checksEtr());
+        assertTrue(check.matches(itr("10.0.0.1", "10.0.0.3"), null));
+        assertFalse(check.matches(itr("10.0.0.1", "10.0.0.2"), null));
+        assertFalse(check.matches(itr("10.0.0.3"), null));
+        assertFalse(check.matches(null, null));
+    }
+
+    @Test
+    public void wholeResolverList() throws Exception {
+        CommitCheck check = new CommitCheck();
+        check.allResolvers(ImmutableList.of("10.0.0.1"));
+
+        assertTrue(check.matches(itr("10.0.0.1"), null));
+        assertFalse(check.matches(itr("10.0.0.1", "10.0.0.3"), null));
+    }
+
+    @Test
+    public void wholeAndDeletedEids() throws Exception {
+        LispMapRecord record = record("10.1.0.0", 16, 100, 50);
+        CommitCheck check = new CommitCheck();
+        check.eid(EID, record, null);
+        check.eid("10.2.0.0/16", null, null);
+
+        assertTrue(check.checksEtr());
+        assertTrue(check.matches(null, etr(record, record("10.3.0.0", 16, 1))));
+        assertFalse(check.matches(null, etr(record, record("10.2.0.0", 16, 1))));
+        assertFalse(check.matches(null, etr(record("10.1.0.0", 16, 100))));
+        assertFalse(check.matches(null, etr(record("10.1.0.0", 16, 100, 49))));
+        assertFalse(check.matches(null, etr()));
+    }
+
+    @Test
+    public void pushedLocatorsOnly() throws Exception {
+        LispMapRecord record = record("10.1.0.0", 16, 100, 50);
+        CommitCheck check = new CommitCheck();
+        check.eid(EID, record, ImmutableSet.of("192.168.10.2"));
+
+        assertTrue(check.matches(null, etr(record("10.1.0.0", 16, 7, 50))));
+        assertFalse(check.matches(null, etr(record("10.1.0.0", 16, 100, 51))));
+        assertFalse(check.matches(null, etr(record("10.1.0.0", 16, 100))));
+    }
+
+    @Test
+    public void wholeEidDatabase() throws Exception {
+        LispMapRecord host = record("10.1.1.1", 32, 100);
+        LispMapRecord all = record("0.0.0.0", 0, 100);
+        CommitCheck check = new CommitCheck();
+        check.allEids(ImmutableList.of(all, host));
+
+        assertTrue(check.matches(null, etr(host, all)));
+        assertFalse(check.matches(null, etr(host)));
+        assertFalse(check.matches(null, etr(host, all, record("10.1.1.2", 32, 100))));
+    }
+}
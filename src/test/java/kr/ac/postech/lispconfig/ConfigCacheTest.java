@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the per-device cache of get-config results.
+ */
+public class ConfigCacheTest {
+
+    private static final DeviceId DEVICE1 = DeviceId.deviceId("netconf:10.0.0.1:830");
+    private static final DeviceId DEVICE2 = DeviceId.deviceId("netconf:10.0.0.2:830");
+    private static final String FILTER = "<itr-cfg/>";
+
+    private final ConfigCache cache = new ConfigCache(60000, 100);
+
+    @Test
+    public void loadsOnceUntilInvalidated() throws ExecutionException {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("1", cache.get(DEVICE1, FILTER, () -> "" + loads.incrementAndGet()));
+        assertEquals("1", cache.get(DEVICE1, FILTER, () -> "" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(DEVICE1);
+        assertNull(cache.getIfPresent(DEVICE1, FILTER));
+        assertEquals("2", cache.get(DEVICE1, FILTER, () -> "" + loads.incrementAndGet()));
+    }
+
+    @Test
+    public void readOverlappingInvalidationNotStored() throws ExecutionException {
+        // the push completes while the get-config is in flight
+        String config = cache.get(DEVICE1, FILTER, () -> {
+            cache.invalidate(DEVICE1);
+            return "before push";
+        });
+
+        assertEquals("before push", config);
+        assertNull(cache.getIfPresent(DEVICE1, FILTER));
+    }
+
+    @Test
+    public void staleResultDropped() {
+        long generation = cache.generation(DEVICE1);
+        long other = cache.generation(DEVICE2);
+        cache.invalidate(DEVICE1);
+
+        cache.put(DEVICE1, FILTER, "before push", generation);
+        assertNull(cache.getIfPresent(DEVICE1, FILTER));
+
+        // generations are per device
+        cache.put(DEVICE2, FILTER, "unchanged", other);
+        assertEquals("unchanged", cache.getIfPresent(DEVICE2, FILTER));
+
+        cache.put(DEVICE1, FILTER, "after push", cache.generation(DEVICE1));
+        assertEquals("after push", cache.getIfPresent(DEVICE1, FILTER));
+    }
+
+    @Test
+    public void disabled() throws ExecutionException {
+        cache.configure(0, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(DEVICE1, FILTER, () -> "" + loads.incrementAndGet());
+        cache.get(DEVICE1, FILTER, () -> "" + loads.incrementAndGet());
+        cache.put(DEVICE1, FILTER, "config", cache.generation(DEVICE1));
+
+        assertEquals(2, loads.get());
+        assertNull(cache.getIfPresent(DEVICE1, FILTER));
+    }
+}
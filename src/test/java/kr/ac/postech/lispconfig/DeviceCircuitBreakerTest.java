@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import kr.ac.postech.lispconfig.DeviceCircuitBreaker.State;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the per-device circuit breaker of NETCONF calls.
+ */
+public class DeviceCircuitBreakerTest {
+
+    private static final DeviceId DEVICE1 = DeviceId.deviceId("netconf:10.0.0.1:830");
+    private static final DeviceId DEVICE2 = DeviceId.deviceId("netconf:10.0.0.2:830");
+
+    // long enough that an open circuit stays open while a test runs
+    private static final long LONG_OPEN_MS = 60000;
+
+    private static void failCalls(DeviceCircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.allow(DEVICE1));
+            breaker.failure(DEVICE1);
+        }
+    }
+
+    @Test
+    public void opensAtThreshold() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(3, LONG_OPEN_MS);
+
+        failCalls(breaker, 2);
+        assertEquals(State.CLOSED, breaker.state(DEVICE1));
+
+        failCalls(breaker, 1);
+        assertEquals(State.OPEN, breaker.state(DEVICE1));
+        assertFalse(breaker.allow(DEVICE1));
+
+        // circuits are per device
+        assertTrue(breaker.allow(DEVICE2));
+        assertEquals(State.CLOSED, breaker.state(DEVICE2));
+    }
+
+    @Test
+    public void successResetsFailures() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(3, LONG_OPEN_MS);
+
+        failCalls(breaker, 2);
+        breaker.success(DEVICE1);
+        failCalls(breaker, 2);
+        assertEquals(State.CLOSED, breaker.state(DEVICE1));
+    }
+
+    @Test
+    public void probeSuccessCloses() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(2, 0);
+
+        failCalls(breaker, 2);
+        assertEquals(State.OPEN, breaker.state(DEVICE1));
+
+        // the open period elapsed: one probe only
+        assertTrue(breaker.allow(DEVICE1));
+        assertEquals(State.HALF_OPEN, breaker.state(DEVICE1));
+        assertFalse(breaker.allow(DEVICE1));
+
+        breaker.success(DEVICE1);
+        assertEquals(State.CLOSED, breaker.state(DEVICE1));
+        assertTrue(breaker.allow(DEVICE1));
+    }
+
+    @Test
+    public void probeFailureReopens() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(2, 0);
+
+        failCalls(breaker, 2);
+        assertTrue(breaker.allow(DEVICE1));
+        breaker.configure(2, LONG_OPEN_MS);
+        breaker.failure(DEVICE1);
+
+        assertEquals(State.OPEN, breaker.state(DEVICE1));
+        assertFalse(breaker.allow(DEVICE1));
+    }
+
+    @Test
+    public void reset() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(1, LONG_OPEN_MS);
+
+        failCalls(breaker, 1);
+        assertFalse(breaker.allow(DEVICE1));
+
+        breaker.reset(DEVICE1);
+        assertEquals(State.CLOSED, breaker.state(DEVICE1));
+        assertTrue(breaker.allow(DEVICE1));
+    }
+
+    @Test
+    public void disabled() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker(0, LONG_OPEN_MS);
+
+        failCalls(breaker, 100);
+        assertEquals(State.CLOSED, breaker.state(DEVICE1));
+
+        // disabling lets calls through even to an open circuit
+        breaker.configure(1, LONG_OPEN_MS);
+        failCalls(breaker, 1);
+        assertFalse(breaker.allow(DEVICE1));
+        breaker.configure(0, LONG_OPEN_MS);
+        assertTrue(breaker.allow(DEVICE1));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the per-device admission control of changes.
+ */
+public class DeviceRateLimiterTest {
+
+    private static final DeviceId DEVICE1 = DeviceId.deviceId("netconf:10.0.0.1:830");
+    private static final DeviceId DEVICE2 = DeviceId.deviceId("netconf:10.0.0.2:830");
+
+    // slow enough that no token is refilled while a test runs
+    private static final double SLOW_RATE = 0.001;
+
+    @Test
+    public void burstThenRefusal() {
+        DeviceRateLimiter limiter = new DeviceRateLimiter(SLOW_RATE, 3, 0);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(DEVICE1, 0));
+        }
+        long wait = limiter.tryAcquire(DEVICE1, 0);
+        assertTrue(wait > 0);
+        assertTrue(wait <= 1000 / SLOW_RATE);
+
+        // buckets are per device
+        assertEquals(0, limiter.tryAcquire(DEVICE2, 0));
+    }
+
+    @Test
+    public void queueBound() {
+        DeviceRateLimiter limiter = new DeviceRateLimiter(0, 1, 2);
+
+        assertEquals(0, limiter.tryAcquire(DEVICE1, 1));
+        assertTrue(limiter.tryAcquire(DEVICE1, 2) > 0);
+        assertTrue(limiter.tryAcquire(DEVICE1, 5) > 0);
+        assertEquals(0, limiter.tryAcquire(DEVICE1, 0));
+    }
+
+    @Test
+    public void disabled() {
+        DeviceRateLimiter limiter = new DeviceRateLimiter(0, 1, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.tryAcquire(DEVICE1, i));
+        }
+        assertEquals(0, limiter.rejected(DEVICE1));
+    }
+
+    @Test
+    public void newLimits() {
+        DeviceRateLimiter limiter = new DeviceRateLimiter(SLOW_RATE, 1, 0);
+        assertEquals(0, limiter.tryAcquire(DEVICE1, 0));
+        assertTrue(limiter.tryAcquire(DEVICE1, 0) > 0);
+
+        limiter.setLimits(0, 0, 1);
+        assertEquals(0, limiter.tryAcquire(DEVICE1, 0));
+        assertTrue(limiter.tryAcquire(DEVICE1, 1) > 0);
+    }
+
+    @Test
+    public void rejectedCounts() {
+        DeviceRateLimiter limiter = new DeviceRateLimiter(SLOW_RATE, 1, 3);
+
+        limiter.tryAcquire(DEVICE1, 0);
+        limiter.tryAcquire(DEVICE1, 0);
+        limiter.tryAcquire(DEVICE1, 0);
+        limiter.tryAcquire(DEVICE2, 3);
+
+        assertEquals(2, limiter.rejected(DEVICE1));
+        assertEquals(1, limiter.rejected(DEVICE2));
+        assertEquals(0, limiter.rejected(DeviceId.deviceId("netconf:10.0.0.3:830")));
+        assertEquals(ImmutableMap.of(DEVICE1, 2L, DEVICE2, 1L), limiter.rejected());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the per-device update queue.
+ */
+public class DeviceUpdateQueueTest {
+
+    private static final DeviceId DEVICE = DeviceId.deviceId("netconf:10.0.0.1:830");
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor();
+    private final List<PendingChanges> pushed =
+            Collections.synchronizedList(Lists.newArrayList());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> eids(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> "10." + (i >> 8) + "." + (i & 0xff) + ".0/24")
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void pushesInPartsOfMaxBatchSize() throws Exception {
+        DeviceUpdateQueue queue = new DeviceUpdateQueue(executor, executor, (d, c) -> {
+            pushed.add(c);
+            return CompletableFuture.completedFuture(true);
+        }, 0, 1000);
+
+        assertTrue(queue.submit(DEVICE, ImmutableList.of("10.0.0.1"), eids(0, 2500))
+                           .get(5, TimeUnit.SECONDS));
+
+        assertEquals(3, pushed.size());
+        assertEquals(2501, pushed.stream().mapToInt(PendingChanges::size).sum());
+        pushed.forEach(c -> assertTrue(c.size() <= 1000));
+        assertTrue(queue.unconfirmedEids(DEVICE).isEmpty());
+        assertTrue(queue.unconfirmedResolvers(DEVICE).isEmpty());
+        assertEquals(0, queue.depth(DEVICE));
+    }
+
+    @Test
+    public void failedPartStaysUnconfirmed() throws Exception {
+        DeviceUpdateQueue queue = new DeviceUpdateQueue(executor, executor, (d, c) -> {
+            pushed.add(c);
+            return CompletableFuture.completedFuture(pushed.size() != 2);
+        }, 0, 10);
+
+        assertFalse(queue.submit(DEVICE, ImmutableList.of(), eids(0, 25))
+                            .get(5, TimeUnit.SECONDS));
+
+        assertEquals(3, pushed.size());
+        assertEquals(pushed.get(1).eids(), queue.unconfirmedEids(DEVICE));
+
+        assertTrue(queue.replay(DEVICE).get(5, TimeUnit.SECONDS));
+        assertEquals(pushed.get(1).eids(), pushed.get(3).eids());
+        assertTrue(queue.unconfirmedEids(DEVICE).isEmpty());
+    }
+
+    @Test
+    public void eachEidGetsTheResultOfItsPart() throws Exception {
+        DeviceUpdateQueue queue = new DeviceUpdateQueue(executor, executor, (d, c) -> {
+            pushed.add(c);
+            return CompletableFuture.completedFuture(pushed.size() != 2);
+        }, 0, 10);
+
+        Map<String, CompletableFuture<Boolean>> results =
+                queue.submitEach(DEVICE, eids(0, 25), ImmutableMap.of());
+        CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0]))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, pushed.size());
+        for (String id : eids(0, 25)) {
+            assertEquals(!pushed.get(1).eids().contains(id),
+                         results.get(id).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(pushed.get(1).eids(), queue.unconfirmedEids(DEVICE));
+    }
+
+    @Test
+    public void busyUntilPushed() throws Exception {
+        DeviceUpdateQueue queue = new DeviceUpdateQueue(executor, executor, (d, c) -> {
+            pushed.add(c);
+            return CompletableFuture.completedFuture(false);
+        }, 60000, 10);
+
+        assertFalse(queue.isBusy(DEVICE));
+        CompletableFuture<Boolean> result = queue.submit(DEVICE, ImmutableList.of(), eids(0, 5));
+        assertTrue(queue.isBusy(DEVICE));
+
+        queue.flush(DEVICE);
+        assertFalse(result.get(5, TimeUnit.SECONDS));
+        // the lane is released by a last drain on the executor
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        assertFalse(queue.isBusy(DEVICE));
+        assertEquals(5, queue.unconfirmedEids(DEVICE).size());
+    }
+
+    @Test
+    public void fullSyncIsNotSplit() throws Exception {
+        DeviceUpdateQueue queue = new DeviceUpdateQueue(executor, executor, (d, c) -> {
+            pushed.add(c);
+            return CompletableFuture.completedFuture(false);
+        }, 60000, 10);
+
+        queue.submit(DEVICE, ImmutableList.of(), eids(0, 5));
+        assertFalse(queue.submitFullSync(DEVICE).get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, pushed.size());
+        assertTrue(pushed.get(0).isFullSync());
+        assertEquals(5, queue.unconfirmedEids(DEVICE).size());
+    }
+}
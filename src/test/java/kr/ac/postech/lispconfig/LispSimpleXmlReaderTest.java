@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter.Operation;
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for reading lispsimple get-config replies.
+ */
+public class LispSimpleXmlReaderTest {
+
+    private static final String REPLY_HEADER = "<rpc-reply xmlns=\"urn:ietf:params:" +
+            "xml:ns:netconf:base:1.0\" message-id=\"1\"><data>";
+    private static final String REPLY_FOOTER = "</data></rpc-reply>";
+
+    private static String reply(String config) {
+        return REPLY_HEADER + config + REPLY_FOOTER;
+    }
+
+    private static String afi(String address) {
+        return address.contains(":") ? "ipv6" : "ipv4";
+    }
+
+    private static String localEid(String id, String address, String rlocs) {
+        return "<local-eid><id>" + id + "</id>" +
+                (address == null ? "" : "<eid-address><afi>" + afi(address) + "</afi><" +
+                        afi(address) + ">" + address + "</" + afi(address) + "></eid-address>") +
+                "<rlocs>" + rlocs + "</rlocs><record-ttl>5</record-ttl></local-eid>";
+    }
+
+    private static String rloc(String address, int priority, int weight) {
+        return "<rloc><name>" + address + "</name><locator-address><afi>" + afi(address) +
+                "</afi><" + afi(address) + ">" + address + "</" + afi(address) +
+                "></locator-address><priority>" + priority + "</priority><weight>" +
+                weight + "</weight></rloc>";
+    }
+
+    private static String etr(String... eids) {
+        return "<etr-cfg xmlns=\"urn:ietf:params:xml:ns:yang:lispsimple\"><local-eids>" +
+                String.join("", eids) + "</local-eids></etr-cfg>";
+    }
+
+    private static void assertLocator(String address, int priority, int weight,
+                                      LispLocator locator) {
+        assertEquals(address, locator.getLocatorAfi().toString());
+        assertEquals(priority, locator.getPriority() & 0xff);
+        assertEquals(weight, locator.getWeight() & 0xff);
+    }
+
+    @Test
+    public void mapResolvers() throws Exception {
+        String itr = LispSimpleXmlWriter.reusable().beginItrConfig()
+                .mapResolver("10.0.0.1", Operation.NONE)
+                .mapResolver("2001:db8::1", Operation.NONE)
+                .endItrConfig().toString();
+
+        assertEquals(ImmutableList.of("10.0.0.1", "2001:db8::1"),
+                     LispSimpleXmlReader.mapResolvers(itr));
+        assertEquals(ImmutableList.of("10.0.0.1", "2001:db8::1"),
+                     LispSimpleXmlReader.mapResolvers(reply(itr)));
+    }
+
+    @Test
+    public void invalidResolverSkipped() throws Exception {
+        String itr = "<itr-cfg><map-resolvers><map-resolver><id>default</id>" +
+                "<map-resolver-address><ipv4>not-an-address</ipv4></map-resolver-address>" +
+                "<map-resolver-address><ipv4>10.0.0.2</ipv4></map-resolver-address>" +
+                "</map-resolver></map-resolvers></itr-cfg>";
+
+        assertEquals(ImmutableList.of("10.0.0.2"), LispSimpleXmlReader.mapResolvers(itr));
+        assertTrue(LispSimpleXmlReader.mapResolvers(reply("")).isEmpty());
+    }
+
+    @Test
+    public void localEids() throws Exception {
+        String etr = reply(etr(localEid("10.1.0.0/16", "10.1.0.0",
+                                        rloc("192.168.10.1", 1, 10) +
+                                                rloc("192.168.10.2", 2, 255))));
+        List<LispMapRecord> records = LispSimpleXmlReader.localEids(etr);
+
+        assertEquals(1, records.size());
+        LispMapRecord record = records.get(0);
+        assertEquals(IpPrefix.valueOf("10.1.0.0/16"), MapRecords.eidPrefix(record));
+        assertEquals(5, record.getRecordTtl());
+        assertEquals(2, record.getLocators().size());
+        assertLocator("192.168.10.1", 1, 10, record.getLocators().get(0));
+        assertLocator("192.168.10.2", 2, 255, record.getLocators().get(1));
+    }
+
+    @Test
+    public void prefixBoundaries() throws Exception {
+        List<LispMapRecord> records = LispSimpleXmlReader.localEids(reply(etr(
+                localEid("0.0.0.0/0", "0.0.0.0", rloc("192.168.10.1", 1, 100)),
+                localEid("10.1.2.3/32", "10.1.2.3", rloc("192.168.10.1", 1, 100)),
+                localEid("::/0", "::", rloc("2001:db8:ffff::1", 1, 100)),
+                localEid("2001:db8::1/128", "2001:db8::1",
+                         rloc("2001:db8:ffff::1", 1, 100) + rloc("192.168.10.1", 2, 50)))));
+
+        assertEquals(4, records.size());
+        assertEquals(IpPrefix.valueOf("0.0.0.0/0"), MapRecords.eidPrefix(records.get(0)));
+        assertEquals(IpPrefix.valueOf("10.1.2.3/32"), MapRecords.eidPrefix(records.get(1)));
+        assertEquals(IpPrefix.valueOf("::/0"), MapRecords.eidPrefix(records.get(2)));
+        assertEquals(IpPrefix.valueOf("2001:db8::1/128"), MapRecords.eidPrefix(records.get(3)));
+        assertLocator("2001:db8:ffff::1", 1, 100, records.get(3).getLocators().get(0));
+        assertLocator("192.168.10.1", 2, 50, records.get(3).getLocators().get(1));
+    }
+
+    @Test
+    public void overlappingPrefixesKeptApart() throws Exception {
+        String etr = etr(localEid("10.1.0.0/16", "10.1.0.0", rloc("192.168.10.1", 1, 10)),
+                         localEid("10.1.0.0/24", "10.1.0.0", rloc("192.168.10.2", 1, 20)));
+        List<LispMapRecord> records = LispSimpleXmlReader.localEids(etr);
+
+        assertEquals(2, records.size());
+        assertEquals(IpPrefix.valueOf("10.1.0.0/16"), MapRecords.eidPrefix(records.get(0)));
+        assertEquals(IpPrefix.valueOf("10.1.0.0/24"), MapRecords.eidPrefix(records.get(1)));
+        assertLocator("192.168.10.2", 1, 20, records.get(1).getLocators().get(0));
+    }
+
+    @Test
+    public void addressDefaultsToId() throws Exception {
+        List<LispMapRecord> records =
+                LispSimpleXmlReader.localEids(etr(localEid("10.2.0.0/16", null, "")));
+
+        assertEquals(1, records.size());
+        assertEquals(IpPrefix.valueOf("10.2.0.0/16"), MapRecords.eidPrefix(records.get(0)));
+    }
+
+    @Test
+    public void invalidEntriesSkipped() throws Exception {
+        String etr = etr(localEid("not-a-prefix", "10.1.0.0", ""),
+                         localEid("10.1.0.0/33", "10.1.0.0", ""),
+                         localEid("10.3.0.0/16", "10.3.0.0", rloc("192.168.10.1", 1, 10)),
+                         "<local-eid><id>10.4.0.0/16</id><rlocs><rloc><name>x</name>" +
+                                 "</rloc></rlocs></local-eid>");
+        List<LispMapRecord> records = LispSimpleXmlReader.localEids(etr);
+
+        assertEquals(1, records.size());
+        assertEquals(IpPrefix.valueOf("10.3.0.0/16"), MapRecords.eidPrefix(records.get(0)));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void malformedDocument() throws Exception {
+        LispSimpleXmlReader.localEids("<etr-cfg><local-eids>");
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import kr.ac.postech.lispconfig.LispSimpleXmlWriter.Operation;
+import org.junit.Test;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispDistinguishedNameAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for writing lispsimple payloads.
+ */
+public class LispSimpleXmlWriterTest {
+
+    private static final String NC = " xmlns:nc=\"urn:ietf:params:xml:ns:netconf:base:1.0\"";
+    private static final String ITR_HEADER = "<itr-cfg xmlns=\"urn:ietf:params:xml:ns:" +
+            "yang:lispsimple\">\n<map-resolvers>\n<map-resolver><id>default</id>\n";
+    private static final String ITR_FOOTER = "</map-resolver>\n</map-resolvers>\n</itr-cfg>\n";
+    private static final String ETR_HEADER = "<etr-cfg xmlns=\"urn:ietf:params:xml:ns:" +
+            "yang:lispsimple\"><local-eids>";
+    private static final String ETR_FOOTER = "</local-eids></etr-cfg>\n";
+
+    private static LispLocator locator(String rloc, int priority, int weight) {
+        return locator(MapRecords.afiAddress(rloc), priority, weight);
+    }
+
+    private static LispLocator locator(LispAfiAddress rloc, int priority, int weight) {
+        DefaultLispLocator.DefaultLocatorBuilder builder =
+                new DefaultLispLocator.DefaultLocatorBuilder();
+        builder.withLocatorAfi(rloc);
+        builder.withPriority((byte) priority);
+        builder.withWeight((byte) weight);
+        return builder.build();
+    }
+
+    private static LispMapRecord record(String eid, int mask, LispLocator... locators) {
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(MapRecords.afiAddress(eid));
+        builder.withMaskLength((byte) mask);
+        builder.withRecordTtl(5);
+        builder.withLocators(ImmutableList.copyOf(locators));
+        return builder.build();
+    }
+
+    private static String rloc(String address, int priority, int weight) {
+        String afi = address.contains(":") ? "ipv6" : "ipv4";
+        return "<rloc><name>" + address + "</name><locator-address><afi>" + afi +
+                "</afi><" + afi + ">" + address + "</" + afi + "></locator-address>" +
+                "<priority>" + priority + "</priority><weight>" + weight + "</weight></rloc>";
+    }
+
+    @Test
+    public void itrConfig() {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginItrConfig()
+                .mapResolver("10.0.0.1", Operation.NONE)
+                .mapResolver("2001:db8::1", Operation.REPLACE)
+                .mapResolver("10.0.0.2", Operation.REMOVE)
+                .endItrConfig();
+        String xml = writer.toString();
+
+        assertEquals(3, writer.entries());
+        assertEquals(xml.length(), writer.length());
+
+        assertEquals(ITR_HEADER +
+                             "<map-resolver-address><ipv4>10.0.0.1</ipv4>" +
+                             "</map-resolver-address>\n" +
+                             "<map-resolver-address" + NC + " nc:operation=\"replace\">" +
+                             "<ipv6>2001:db8::1</ipv6></map-resolver-address>\n" +
+                             "<map-resolver-address" + NC + " nc:operation=\"remove\">" +
+                             "<ipv4>10.0.0.2</ipv4></map-resolver-address>\n" +
+                             ITR_FOOTER, xml);
+    }
+
+    @Test
+    public void etrConfig() {
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginEtrConfig()
+                .localEid(record("10.1.0.0", 16, locator("192.168.10.1", 1, 100),
+                                 locator("192.168.10.2", 255, 200)), Operation.NONE)
+                .localEid(record("10.2.0.0", 24, locator("192.168.10.3", 2, 50)),
+                          Operation.REPLACE)
+                .localEidKey("10.3.0.0/16", Operation.REMOVE)
+                .endEtrConfig();
+        String xml = writer.toString();
+
+        assertEquals(3, writer.entries());
+
+        assertEquals(ETR_HEADER +
+                             "<local-eid><id>10.1.0.0/16</id><eid-address><afi>ipv4</afi>" +
+                             "<ipv4>10.1.0.0</ipv4></eid-address><rlocs>" +
+                             rloc("192.168.10.1", 1, 100) + rloc("192.168.10.2", 255, 200) +
+                             "</rlocs><record-ttl>5</record-ttl></local-eid>" +
+                             "<local-eid" + NC + " nc:operation=\"replace\">" +
+                             "<id>10.2.0.0/24</id><eid-address><afi>ipv4</afi>" +
+                             "<ipv4>10.2.0.0</ipv4></eid-address><rlocs>" +
+                             rloc("192.168.10.3", 2, 50) +
+                             "</rlocs><record-ttl>5</record-ttl></local-eid>" +
+                             "<local-eid" + NC + " nc:operation=\"remove\">" +
+                             "<id>10.3.0.0/16</id></local-eid>" +
+                             ETR_FOOTER, xml);
+    }
+
+    @Test
+    public void ipv6Addresses() {
+        String xml = LispSimpleXmlWriter.reusable().beginEtrConfig()
+                .localEid(record("2001:db8::", 32, locator("2001:db8:ffff::1", 1, 100),
+                                 locator("192.168.10.1", 2, 50)), Operation.NONE)
+                .localEid(record("2001:db8::1", 128, locator("2001:db8:ffff::2", 1, 100)),
+                          Operation.NONE)
+                .endEtrConfig().toString();
+
+        assertEquals(ETR_HEADER +
+                             "<local-eid><id>2001:db8::/32</id><eid-address><afi>ipv6</afi>" +
+                             "<ipv6>2001:db8::</ipv6></eid-address><rlocs>" +
+                             rloc("2001:db8:ffff::1", 1, 100) + rloc("192.168.10.1", 2, 50) +
+                             "</rlocs><record-ttl>5</record-ttl></local-eid>" +
+                             "<local-eid><id>2001:db8::1/128</id><eid-address><afi>ipv6</afi>" +
+                             "<ipv6>2001:db8::1</ipv6></eid-address><rlocs>" +
+                             rloc("2001:db8:ffff::2", 1, 100) +
+                             "</rlocs><record-ttl>5</record-ttl></local-eid>" +
+                             ETR_FOOTER, xml);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherLocatorFamilyRejected() {
+        LispLocator named = locator(new LispDistinguishedNameAddress("rtr1"), 1, 100);
+        LispSimpleXmlWriter.reusable().beginEtrConfig()
+                .localEid(record("10.1.0.0", 16, named), Operation.NONE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherEidFamilyRejected() {
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(new LispDistinguishedNameAddress("site1"));
+        builder.withMaskLength((byte) 0);
+        builder.withLocators(ImmutableList.of(locator("192.168.10.1", 1, 100)));
+        LispSimpleXmlWriter.reusable().beginEtrConfig()
+                .localEid(builder.build(), Operation.NONE);
+    }
+
+    @Test
+    public void changedLocatorsOnly() {
+        LispMapRecord record = record("10.1.0.0", 16, locator("192.168.10.1", 1, 100),
+                                      locator("192.168.10.2", 1, 100),
+                                      locator("192.168.10.3", 2, 50));
+        LispSimpleXmlWriter writer = LispSimpleXmlWriter.reusable().beginEtrConfig()
+                .localEidLocators(record, ImmutableSet.of("192.168.10.1", "192.168.10.3"))
+                .endEtrConfig();
+
+        assertEquals(1, writer.entries());
+        assertEquals(ETR_HEADER +
+                             "<local-eid><id>10.1.0.0/16</id><rlocs>" +
+                             rloc("192.168.10.1", 1, 100) + rloc("192.168.10.3", 2, 50) +
+                             "</rlocs><record-ttl>5</record-ttl></local-eid>" +
+                             ETR_FOOTER, writer.toString());
+    }
+
+    @Test
+    public void reusableBufferIsEmptied() {
+        LispSimpleXmlWriter first = LispSimpleXmlWriter.reusable().beginItrConfig()
+                .mapResolver("10.0.0.1", Operation.NONE).endItrConfig();
+        assertEquals(first.toString().length(), first.length());
+
+        LispSimpleXmlWriter second = LispSimpleXmlWriter.reusable();
+        assertEquals(0, second.length());
+        assertEquals(0, second.entries());
+        assertEquals(ETR_HEADER + ETR_FOOTER,
+                     second.beginEtrConfig().endEtrConfig().toString());
+    }
+
+    @Test
+    public void writerOnGivenBuffer() {
+        StringBuilder out = new StringBuilder("<config>");
+        LispSimpleXmlWriter writer = new LispSimpleXmlWriter(out);
+
+        assertSame(writer, writer.beginEtrConfig());
+        writer.localEidKey("10.3.0.0/16", Operation.NONE).endEtrConfig();
+
+        assertEquals("<config>" + ETR_HEADER + "<local-eid><id>10.3.0.0/16</id></local-eid>" +
+                             ETR_FOOTER, out.toString());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for building, merging and comparing map records.
+ */
+public class MapRecordsTest {
+
+    private static final String EID = "10.1.0.0";
+    private static final String RLOC1 = "192.168.10.1";
+    private static final String RLOC2 = "192.168.10.2";
+    private static final String RLOC3 = "192.168.10.3";
+
+    private static LispMapRecord record(int mask, int ttl, LispLocator... locators) {
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(new LispIpv4Address(IpAddress.valueOf(EID)));
+        builder.withMaskLength((byte) mask);
+        builder.withRecordTtl(ttl);
+        builder.withLocators(ImmutableList.copyOf(locators));
+        return builder.build();
+    }
+
+    private static LispMapRecord record(int ttl, LispLocator... locators) {
+        return record(16, ttl, locators);
+    }
+
+    private static LispLocator locator(String rloc, int weight) {
+        DefaultLispLocator.DefaultLocatorBuilder builder =
+                new DefaultLispLocator.DefaultLocatorBuilder();
+        builder.withLocatorAfi(new LispIpv4Address(IpAddress.valueOf(rloc)));
+        builder.withPriority((byte) 1);
+        builder.withWeight((byte) weight);
+        return builder.build();
+    }
+
+    @Test
+    public void overlappingPrefixOrder() {
+        List<IpPrefix> prefixes = Lists.newArrayList(
+                IpPrefix.valueOf("2001:db8::/32"),
+                IpPrefix.valueOf("10.1.0.0/24"),
+                IpPrefix.valueOf("10.1.0.0/16"),
+                IpPrefix.valueOf("0.0.0.0/0"),
+                IpPrefix.valueOf("10.1.0.0/32"),
+                IpPrefix.valueOf("10.0.0.0/8"),
+                IpPrefix.valueOf("::/0"));
+        prefixes.sort(MapRecords.PREFIX_ORDER);
+
+        assertEquals(ImmutableList.of(
+                IpPrefix.valueOf("0.0.0.0/0"),
+                IpPrefix.valueOf("10.0.0.0/8"),
+                IpPrefix.valueOf("10.1.0.0/16"),
+                IpPrefix.valueOf("10.1.0.0/24"),
+                IpPrefix.valueOf("10.1.0.0/32"),
+                IpPrefix.valueOf("::/0"),
+                IpPrefix.valueOf("2001:db8::/32")), prefixes);
+    }
+
+    private static String address(List<LispLocator> locators) {
+        assertEquals(1, locators.size());
+        return locators.get(0).getLocatorAfi().toString();
+    }
+
+    private static void assertBadRecord(String eid, int mask, String field) {
+        try {
+            MapRecords.record(eid, mask, MapRecords.DEFAULT_TTL, ImmutableList.of());
+            fail("mask " + mask + " accepted for " + eid);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith(field));
+        }
+    }
+
+    private static IpPrefix prefix(String eid, int mask) {
+        return MapRecords.eidPrefix(MapRecords.record(eid, mask, MapRecords.DEFAULT_TTL,
+                                                      ImmutableList.of()));
+    }
+
+    @Test
+    public void maskBoundaries() {
+        assertEquals(IpPrefix.valueOf("0.0.0.0/0"), prefix("0.0.0.0", 0));
+        assertEquals(IpPrefix.valueOf("10.1.2.3/32"), prefix("10.1.2.3", 32));
+        assertEquals(IpPrefix.valueOf("::/0"), prefix("::", 0));
+        assertEquals(IpPrefix.valueOf("2001:db8::1/128"), prefix("2001:db8::1", 128));
+
+        assertBadRecord("10.1.2.3", 33, "eid_mask");
+        assertBadRecord("2001:db8::1", 129, "eid_mask");
+        assertBadRecord(null, 16, "eid");
+    }
+
+    @Test
+    public void negativeMaskIsHostPrefix() {
+        assertEquals(IpPrefix.valueOf("10.1.2.3/32"), prefix("10.1.2.3", -1));
+        assertEquals(IpPrefix.valueOf("2001:db8::1/128"), prefix("2001:db8::1", -1));
+    }
+
+    @Test
+    public void locatorRanges() {
+        LispLocator l = MapRecords.locator(RLOC1, 255, 0);
+        assertEquals(255, l.getPriority() & 0xff);
+        assertEquals(0, l.getWeight() & 0xff);
+
+        for (int[] bad : new int[][] {{-1, 1}, {256, 1}, {1, -1}, {1, 256}}) {
+            try {
+                MapRecords.locator(RLOC1, bad[0], bad[1]);
+                fail("accepted priority " + bad[0] + " weight " + bad[1]);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("between 0 and 255"));
+            }
+        }
+    }
+
+    @Test
+    public void mergeReplacesLocatorsByAddress() {
+        LispMapRecord old = record(1, locator(RLOC1, 10), locator(RLOC2, 20));
+        LispMapRecord merged = MapRecords.merge(old, record(1, locator(RLOC2, 30),
+                                                            locator(RLOC3, 40)));
+
+        assertEquals(3, merged.getLocators().size());
+        assertEquals(10, merged.getLocators().get(0).getWeight());
+        assertEquals(30, merged.getLocators().get(1).getWeight());
+        assertEquals(40, merged.getLocators().get(2).getWeight());
+        assertEquals(MapRecords.eidPrefix(old), MapRecords.eidPrefix(merged));
+    }
+
+    @Test
+    public void mergeOfNothingNewKeepsRecord() {
+        LispMapRecord old = record(1, locator(RLOC1, 10), locator(RLOC2, 20));
+
+        assertSame(old, MapRecords.merge(old, record(1, locator(RLOC2, 20))));
+        assertSame(old, MapRecords.merge(old, record(1)));
+        assertNotSame(old, MapRecords.merge(old, record(5)));
+
+        LispMapRecord record = record(1, locator(RLOC1, 10));
+        assertSame(record, MapRecords.merge(null, record));
+    }
+
+    @Test
+    public void diffOfNewRecord() {
+        LispMapRecord record = record(1, locator(RLOC1, 10));
+        MapRecordDiff diff = MapRecords.diff(null, record);
+
+        assertTrue(diff.isCreated());
+        assertFalse(diff.isEmpty());
+        assertEquals(1, diff.added().size());
+        assertEquals(IpPrefix.valueOf("10.1.0.0/16"), diff.prefix());
+    }
+
+    @Test
+    public void diffMatchesLocatorsByAddress() {
+        LispMapRecord old = record(1, locator(RLOC1, 10), locator(RLOC2, 20));
+        MapRecordDiff diff = MapRecords.diff(old, record(2, locator(RLOC2, 25),
+                                                         locator(RLOC3, 30)));
+
+        assertFalse(diff.isCreated());
+        assertTrue(diff.isTtlChanged());
+        assertEquals(RLOC3, address(diff.added()));
+        assertEquals(RLOC2, address(diff.changed()));
+        assertEquals(RLOC1, address(diff.removed()));
+        assertEquals(2, diff.changedLocatorNames().size());
+    }
+
+    @Test
+    public void replacementRemovingLocators() {
+        LispMapRecord old = record(1, locator(RLOC1, 10), locator(RLOC2, 20),
+                                   locator(RLOC3, 30));
+        MapRecordDiff diff = MapRecords.diff(old, record(1, locator(RLOC2, 20)));
+
+        assertTrue(diff.added().isEmpty());
+        assertTrue(diff.changed().isEmpty());
+        assertEquals(2, diff.removed().size());
+        assertTrue(diff.changedLocatorNames().isEmpty());
+        assertFalse(diff.isEmpty());
+        assertFalse(MapRecords.equivalent(old, diff.record()));
+
+        // a merge never drops locators; only a replacement does
+        LispMapRecord merged = MapRecords.merge(old, record(1, locator(RLOC2, 20)));
+        assertTrue(MapRecords.diff(old, merged).isEmpty());
+    }
+
+    @Test
+    public void equivalentIgnoresLocatorOrder() {
+        LispMapRecord a = record(1, locator(RLOC1, 10), locator(RLOC2, 20));
+        LispMapRecord b = record(1, locator(RLOC2, 20), locator(RLOC1, 10));
+
+        assertTrue(MapRecords.equivalent(a, b));
+        assertFalse(MapRecords.equivalent(a, record(24, 1, locator(RLOC1, 10),
+                                                    locator(RLOC2, 20))));
+        assertFalse(MapRecords.equivalent(a, record(1, locator(RLOC1, 10),
+                                                    locator(RLOC2, 21))));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.DeviceInventoryEntry;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for parsing device inventories.
+ */
+public class DeviceInventoryParserTest {
+
+    private final DeviceInventoryParser parser = new DeviceInventoryParser(new JsonFactory());
+
+    private static InputStream stream(String document) {
+        return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<DeviceInventoryParser.Entry> json(String document) throws IOException {
+        return parser.parseJson(stream(document));
+    }
+
+    private List<DeviceInventoryParser.Entry> csv(String document) throws IOException {
+        return parser.parseCsv(stream(document));
+    }
+
+    private static DeviceInventoryEntry device(DeviceInventoryParser.Entry entry) {
+        assertTrue(entry.error(), entry.isValid());
+        assertNull(entry.error());
+        return entry.device();
+    }
+
+    private static void assertInvalid(int index, String error,
+                                      DeviceInventoryParser.Entry entry) {
+        assertFalse(entry.isValid());
+        assertNull(entry.device());
+        assertEquals(index, entry.index());
+        assertTrue(entry.error(), entry.error().startsWith(error));
+    }
+
+    @Test
+    public void jsonWithNamedCredentials() throws Exception {
+        List<DeviceInventoryParser.Entry> entries = json(
+                "{\"devices\": [" +
+                        "{\"address\": \"192.168.10.1\", \"port\": 8300, " +
+                        "\"credentials\": \"pop1\", " +
+                        "\"mapResolvers\": [\"10.0.0.1\", \"2001:db8::1\"], " +
+                        "\"records\": [{\"eid\": \"1.1.1.0\", \"eid_mask\": 24, " +
+                        "\"locators\": [{\"rloc\": \"192.168.10.1\"}]}]}, " +
+                        "{\"address\": \"192.168.10.2\", \"username\": \"admin\", " +
+                        "\"password\": \"secret\"}], " +
+                        "\"credentials\": {\"pop1\": {\"username\": \"oor\", " +
+                        "\"password\": \"oor\"}}}");
+
+        assertEquals(2, entries.size());
+        DeviceInventoryEntry first = device(entries.get(0));
+        assertEquals("192.168.10.1", first.address());
+        assertEquals(8300, first.port());
+        assertEquals("oor", first.username());
+        assertEquals("oor", first.password());
+        assertEquals(ImmutableList.of("10.0.0.1", "2001:db8::1"), first.mapResolvers());
+        assertEquals(1, first.records().size());
+        assertEquals(DeviceId.deviceId("netconf:192.168.10.1:8300"), first.deviceId());
+
+        DeviceInventoryEntry second = device(entries.get(1));
+        assertEquals(830, second.port());
+        assertEquals("admin", second.username());
+        assertEquals("secret", second.password());
+        assertTrue(second.mapResolvers().isEmpty());
+        assertTrue(second.records().isEmpty());
+    }
+
+    @Test
+    public void jsonArray() throws Exception {
+        List<DeviceInventoryParser.Entry> entries = json(
+                "[{\"address\": \"192.168.10.1\", \"username\": \"oor\", " +
+                        "\"password\": \"oor\"}]");
+
+        assertEquals(1, entries.size());
+        assertEquals("192.168.10.1", device(entries.get(0)).address());
+    }
+
+    @Test
+    public void invalidJsonDevicesReportedInPlace() throws Exception {
+        String creds = "\"username\": \"oor\", \"password\": \"oor\"";
+        List<DeviceInventoryParser.Entry> entries = json(
+                "{\"devices\": [" +
+                        "{\"address\": \"192.168.10.1\", \"credentials\": \"missing\"}, " +
+                        "\"192.168.10.2\", " +
+                        "{\"port\": 830, " + creds + "}, " +
+                        "{\"address\": \"192.168.10.4\", \"username\": \"oor\"}, " +
+                        "{\"address\": \"192.168.10.5\", \"port\": 70000, " + creds + "}, " +
+                        "{\"address\": \"192.168.10.6\", \"mapResolvers\": \"10.0.0.1\", " +
+                        creds + "}, " +
+                        "{\"address\": \"192.168.10.7\", \"mapResolvers\": [\"bogus\"], " +
+                        creds + "}, " +
+                        "{\"address\": \"192.168.10.8\", \"records\": [{\"eid\": " +
+                        "\"1.1.1.0\"}], " + creds + "}, " +
+                        "{\"address\": \"192.168.10.9\", " + creds + "}]}");
+
+        assertEquals(9, entries.size());
+        assertInvalid(0, "unknown credentials missing", entries.get(0));
+        assertInvalid(1, "device is not an object", entries.get(1));
+        assertInvalid(2, "address is missing", entries.get(2));
+        assertInvalid(3, "credentials are missing", entries.get(3));
+        assertInvalid(4, "port must be between 1 and 65535", entries.get(4));
+        assertInvalid(5, "mapResolvers is not an array", entries.get(5));
+        assertFalse(entries.get(6).isValid());
+        assertInvalid(7, "record 0: locators are missing", entries.get(7));
+        assertEquals("192.168.10.9", device(entries.get(8)).address());
+        assertEquals(8, entries.get(8).index());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void notAnInventory() throws Exception {
+        json("\"devices\"");
+    }
+
+    @Test
+    public void csvWithHeaderAndComments() throws Exception {
+        List<DeviceInventoryParser.Entry> entries = csv(
+                "address,port,username,password,mapResolvers\n" +
+                        "# POP 1\n" +
+                        "192.168.10.1, 830, oor, oor, 10.0.0.1; 10.0.0.2;\n" +
+                        "\n" +
+                        "192.168.10.2,8300,admin,secret\n");
+
+        assertEquals(2, entries.size());
+        DeviceInventoryEntry first = device(entries.get(0));
+        assertEquals("192.168.10.1", first.address());
+        assertEquals(830, first.port());
+        assertEquals("oor", first.username());
+        assertEquals(ImmutableList.of("10.0.0.1", "10.0.0.2"), first.mapResolvers());
+
+        DeviceInventoryEntry second = device(entries.get(1));
+        assertEquals(8300, second.port());
+        assertEquals("secret", second.password());
+        assertTrue(second.mapResolvers().isEmpty());
+        assertEquals(1, entries.get(1).index());
+    }
+
+    @Test
+    public void invalidCsvLinesReportedInPlace() throws Exception {
+        List<DeviceInventoryParser.Entry> entries = csv(
+                "192.168.10.1,830,oor\n" +
+                        "192.168.10.2,port,oor,oor\n" +
+                        "192.168.10.3,0,oor,oor\n" +
+                        "router3,830,oor,oor\n" +
+                        "192.168.10.5,830,oor,oor,10.0.0.1;bogus\n" +
+                        "192.168.10.6,830,oor,oor\n");
+
+        assertEquals(6, entries.size());
+        assertInvalid(0, "expected address, port, username and password", entries.get(0));
+        assertInvalid(1, "port must be between 1 and 65535", entries.get(1));
+        assertInvalid(2, "port must be between 1 and 65535", entries.get(2));
+        assertFalse(entries.get(3).isValid());
+        assertFalse(entries.get(4).isValid());
+        assertEquals("192.168.10.6", device(entries.get(5)).address());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CSV line format of local EID records.
+ */
+public class MapRecordCsvFormatTest {
+
+    private static LispMapRecord parse(String line) {
+        MapRecordJsonParser.Entry entry = MapRecordCsvFormat.parse(line, 0);
+        assertTrue(entry.error(), entry.isValid());
+        assertNull(entry.error());
+        return entry.record();
+    }
+
+    private static void assertInvalid(String line, String error) {
+        MapRecordJsonParser.Entry entry = MapRecordCsvFormat.parse(line, 7);
+        assertFalse(line, entry.isValid());
+        assertNull(entry.record());
+        assertEquals(7, entry.index());
+        assertTrue(entry.error(), entry.error().contains(error));
+    }
+
+    private static void assertLocator(String rloc, int priority, int weight,
+                                      LispLocator locator) {
+        assertEquals(rloc, locator.getLocatorAfi().toString());
+        assertEquals(priority, locator.getPriority() & 0xff);
+        assertEquals(weight, locator.getWeight() & 0xff);
+    }
+
+    @Test
+    public void skippedLines() {
+        assertTrue(MapRecordCsvFormat.isSkipped(MapRecordCsvFormat.HEADER));
+        assertTrue(MapRecordCsvFormat.isSkipped(""));
+        assertTrue(MapRecordCsvFormat.isSkipped("   "));
+        assertTrue(MapRecordCsvFormat.isSkipped(" # 1.1.1.0,24,1,192.168.10.1,1,100"));
+        assertFalse(MapRecordCsvFormat.isSkipped("1.1.1.0,24,1,192.168.10.1,1,100"));
+    }
+
+    @Test
+    public void multiLocatorRow() {
+        LispMapRecord record = parse("1.1.1.0, 24, 5, 192.168.10.1, 1, 100, " +
+                                             "192.168.10.2, 2, 255, 2001:db8::1, 3, 0");
+
+        assertEquals(IpPrefix.valueOf("1.1.1.0/24"), MapRecords.eidPrefix(record));
+        assertEquals(5, record.getRecordTtl());
+        assertEquals(3, record.getLocators().size());
+        assertLocator("192.168.10.1", 1, 100, record.getLocators().get(0));
+        assertLocator("192.168.10.2", 2, 255, record.getLocators().get(1));
+        assertLocator("2001:db8::1", 3, 0, record.getLocators().get(2));
+    }
+
+    @Test
+    public void emptyTtlIsDefault() {
+        assertEquals(MapRecords.DEFAULT_TTL,
+                     parse("1.1.1.0,24,,192.168.10.1,1,100").getRecordTtl());
+    }
+
+    @Test
+    public void badRows() {
+        String triples = "expected eid, eid_mask, ttl and rloc, priority, weight triples";
+        assertInvalid("1.1.1.0,24,1", triples);
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,1", triples);
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,1,100,192.168.10.2", triples);
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,1,100,192.168.10.2,2", triples);
+
+        assertInvalid("1.1.1.0,x,1,192.168.10.1,1,100", "x");
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,1,heavy", "heavy");
+        assertInvalid("1.1.1.0,33,1,192.168.10.1,1,100", "eid_mask");
+        assertInvalid("2001:db8::,129,1,192.168.10.1,1,100", "eid_mask");
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,256,100", "priority");
+        assertInvalid("1.1.1.0,24,1,192.168.10.1,1,-1", "weight");
+        assertInvalid("site1,24,1,192.168.10.1,1,100", "site1");
+    }
+
+    @Test
+    public void exportThenImport() {
+        List<String> lines = ImmutableList.of(
+                "0.0.0.0,0,1,192.168.10.1,1,100",
+                "10.1.0.0,16,5,192.168.10.1,1,100,192.168.10.2,2,50",
+                "10.1.0.0,24,1,192.168.10.3,255,255",
+                "10.1.2.3,32,10,192.168.10.4,0,0",
+                "::,0,1,2001:db8:ffff::1,1,100",
+                "2001:db8::1,128,1,2001:db8:ffff::1,1,100,192.168.10.1,2,50");
+
+        for (String line : lines) {
+            LispMapRecord record = parse(line);
+            String exported = MapRecordCsvFormat.format(record);
+            assertEquals(line, exported);
+
+            LispMapRecord imported = parse(exported);
+            assertEquals(MapRecords.eidPrefix(record), MapRecords.eidPrefix(imported));
+            assertEquals(record.getRecordTtl(), imported.getRecordTtl());
+            assertEquals(record.getLocators().size(), imported.getLocators().size());
+            for (int i = 0; i < record.getLocators().size(); i++) {
+                LispLocator l = record.getLocators().get(i);
+                assertLocator(l.getLocatorAfi().toString(), l.getPriority() & 0xff,
+                              l.getWeight() & 0xff, imported.getLocators().get(i));
+            }
+        }
+    }
+}
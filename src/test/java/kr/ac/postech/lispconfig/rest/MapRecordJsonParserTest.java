@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for parsing local EID records in JSON.
+ */
+public class MapRecordJsonParserTest {
+
+    private static final String LOCATOR = "{\"rloc\": \"192.168.10.1\", " +
+            "\"priority\": 1, \"weight\": 100}";
+
+    private final MapRecordJsonParser parser = new MapRecordJsonParser(new JsonFactory());
+
+    private List<MapRecordJsonParser.Entry> parse(String json) throws IOException {
+        return parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String record(String eid, int mask) {
+        return "{\"eid\": \"" + eid + "\", \"eid_mask\": " + mask +
+                ", \"locators\": [" + LOCATOR + "]}";
+    }
+
+    private static void assertPrefix(String prefix, MapRecordJsonParser.Entry entry) {
+        assertTrue(entry.error(), entry.isValid());
+        assertNull(entry.error());
+        LispMapRecord record = entry.record();
+        assertEquals(IpPrefix.valueOf(prefix),
+                     IpPrefix.valueOf(((LispIpAddress) record.getEidPrefixAfi()).getAddress(),
+                                      record.getMaskLength() & 0xff));
+    }
+
+    private static void assertInvalid(int index, String error, MapRecordJsonParser.Entry entry) {
+        assertFalse(entry.isValid());
+        assertNull(entry.record());
+        assertEquals(index, entry.index());
+        assertTrue(entry.error(), entry.error().startsWith(error));
+    }
+
+    @Test
+    public void recordsObject() throws Exception {
+        List<MapRecordJsonParser.Entry> entries = parse(
+                "{\"other\": {\"records\": []}, \"records\": [{\"eid\": \"1.1.1.0\", " +
+                        "\"eid_mask\": 24, \"ttl\": 10, \"locators\": [" + LOCATOR +
+                        ", {\"rloc\": \"192.168.10.2\"}]}]}");
+
+        assertEquals(1, entries.size());
+        assertPrefix("1.1.1.0/24", entries.get(0));
+        LispMapRecord record = entries.get(0).record();
+        assertEquals(10, record.getRecordTtl());
+        assertEquals(2, record.getLocators().size());
+        assertEquals(1, record.getLocators().get(1).getPriority());
+        assertEquals(100, record.getLocators().get(1).getWeight());
+    }
+
+    @Test
+    public void recordsArray() throws Exception {
+        List<MapRecordJsonParser.Entry> entries = parse(
+                "[{\"eid\": \"1.1.1.1\", \"locators\": [" + LOCATOR + "]}]");
+
+        assertEquals(1, entries.size());
+        assertPrefix("1.1.1.1/32", entries.get(0));
+        assertEquals(1, entries.get(0).record().getRecordTtl());
+    }
+
+    @Test
+    public void prefixBoundaries() throws Exception {
+        List<MapRecordJsonParser.Entry> entries = parse(
+                "[" + record("0.0.0.0", 0) + "," + record("10.1.2.3", 32) + "," +
+                        record("::", 0) + "," + record("2001:db8::1", 128) + "," +
+                        record("10.1.2.3", 33) + "," + record("2001:db8::1", 129) + "," +
+                        record("10.1.0.0", 16) + "," + record("10.1.0.0", 24) + "]");
+
+        assertEquals(8, entries.size());
+        assertPrefix("0.0.0.0/0", entries.get(0));
+        assertPrefix("10.1.2.3/32", entries.get(1));
+        assertPrefix("::/0", entries.get(2));
+        assertPrefix("2001:db8::1/128", entries.get(3));
+        assertInvalid(4, "eid_mask", entries.get(4));
+        assertInvalid(5, "eid_mask", entries.get(5));
+        assertPrefix("10.1.0.0/16", entries.get(6));
+        assertPrefix("10.1.0.0/24", entries.get(7));
+    }
+
+    @Test
+    public void invalidRecordsReportedInPlace() throws Exception {
+        List<MapRecordJsonParser.Entry> entries = parse(
+                "[" + record("10.1.0.0", 16) + ", 42, " +
+                        "{\"locators\": [" + LOCATOR + "]}, " +
+                        "{\"eid\": \"10.2.0.0\", \"eid_mask\": 16}, " +
+                        "{\"eid\": \"10.3.0.0\", \"locators\": {}}, " +
+                        "{\"eid\": \"10.4.0.0\", \"locators\": [1, " + LOCATOR + "]}, " +
+                        "{\"eid\": \"10.5.0.0\", \"locators\": [{\"weight\": 1}]}, " +
+                        "{\"eid\": \"10.6.0.0\", \"locators\": " +
+                        "[{\"rloc\": \"192.168.10.1\", \"priority\": 256}]}, " +
+                        record("10.7.0.0", 16) + "]");
+
+        assertEquals(9, entries.size());
+        assertPrefix("10.1.0.0/16", entries.get(0));
+        assertInvalid(1, "record is not an object", entries.get(1));
+        assertInvalid(2, "eid is missing", entries.get(2));
+        assertInvalid(3, "locators are missing", entries.get(3));
+        assertInvalid(4, "locators is not an array", entries.get(4));
+        assertInvalid(5, "locator is not an object", entries.get(5));
+        assertInvalid(6, "rloc is missing", entries.get(6));
+        assertInvalid(7, "priority", entries.get(7));
+        assertPrefix("10.7.0.0/16", entries.get(8));
+        assertEquals(8, entries.get(8).index());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void notRecords() throws Exception {
+        parse("\"records\"");
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void malformedDocument() throws Exception {
+        parse("[" + record("10.1.0.0", 16) + ", {\"eid\": ");
+    }
+}
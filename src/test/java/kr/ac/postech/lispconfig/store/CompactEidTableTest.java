@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the compact local EID table.
+ */
+public class CompactEidTableTest {
+
+    private final CompactEidTable table = new CompactEidTable();
+
+    private static LispMapRecord record(String prefix, String... rlocs) {
+        IpPrefix eid = IpPrefix.valueOf(prefix);
+        List<LispLocator> locators = Lists.newArrayList();
+        for (int i = 0; i < rlocs.length; i++) {
+            DefaultLispLocator.DefaultLocatorBuilder locator =
+                    new DefaultLispLocator.DefaultLocatorBuilder();
+            locator.withLocatorAfi(MapRecords.afiAddress(rlocs[i]));
+            locator.withPriority((byte) (i + 1));
+            locator.withWeight((byte) (255 - i));
+            locators.add(locator.build());
+        }
+
+        DefaultLispMapRecord.DefaultMapRecordBuilder builder =
+                new DefaultLispMapRecord.DefaultMapRecordBuilder();
+        builder.withEidPrefixAfi(MapRecords.afiAddress(eid.address().toString()));
+        builder.withMaskLength((byte) eid.prefixLength());
+        builder.withRecordTtl(MapRecords.DEFAULT_TTL);
+        builder.withLocators(locators);
+        return builder.build();
+    }
+
+    private void put(LispMapRecord record) {
+        table.put(MapRecords.eidPrefix(record), record);
+    }
+
+    private static List<String> prefixes(List<LispMapRecord> records) {
+        return records.stream()
+                .map(r -> MapRecords.eidPrefix(r).toString())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void boundaryMaskLengths() {
+        LispMapRecord v4Default = record("0.0.0.0/0", "192.168.10.1");
+        LispMapRecord v4Host = record("255.255.255.255/32", "192.168.10.2");
+        LispMapRecord v6Default = record("::/0", "2001:db8::1");
+        LispMapRecord v6Host = record("2001:db8::ffff/128", "192.168.10.3", "2001:db8::2");
+        put(v6Host);
+        put(v4Host);
+        put(v6Default);
+        put(v4Default);
+
+        assertEquals(4, table.size());
+        assertEquals(v4Default, table.get(IpPrefix.valueOf("0.0.0.0/0")));
+        assertEquals(v4Host, table.get(IpPrefix.valueOf("255.255.255.255/32")));
+        assertEquals(v6Default, table.get(IpPrefix.valueOf("::/0")));
+        assertEquals(v6Host, table.get(IpPrefix.valueOf("2001:db8::ffff/128")));
+        assertEquals(128, table.get(IpPrefix.valueOf("2001:db8::ffff/128"))
+                .getMaskLength() & 0xff);
+
+        assertEquals(ImmutableList.of(v4Default, v4Host, v6Default, v6Host),
+                     table.records());
+    }
+
+    @Test
+    public void putReplacesRecordOfSamePrefix() {
+        put(record("10.0.0.0/8", "192.168.10.1", "192.168.10.2"));
+        LispMapRecord replaced = record("10.0.0.0/8", "192.168.10.3");
+        put(replaced);
+
+        assertEquals(1, table.size());
+        assertEquals(replaced, table.get(IpPrefix.valueOf("10.0.0.0/8")));
+    }
+
+    @Test
+    public void sameAddressDifferentMasks() {
+        put(record("10.0.0.0/16", "192.168.10.1"));
+        put(record("10.0.0.0/8", "192.168.10.1"));
+        put(record("10.0.0.0/24", "192.168.10.1"));
+
+        assertEquals(ImmutableList.of("10.0.0.0/8", "10.0.0.0/16", "10.0.0.0/24"),
+                     prefixes(table.records()));
+        assertTrue(table.remove(IpPrefix.valueOf("10.0.0.0/16")));
+        assertFalse(table.remove(IpPrefix.valueOf("10.0.0.0/16")));
+        assertNull(table.get(IpPrefix.valueOf("10.0.0.0/16")));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void longestPrefixMatch() {
+        put(record("10.0.0.0/8", "192.168.10.1"));
+        put(record("10.1.0.0/16", "192.168.10.1"));
+        put(record("10.1.1.0/24", "192.168.10.1"));
+        put(record("10.1.1.1/32", "192.168.10.1"));
+        put(record("2001:db8::/32", "192.168.10.1"));
+
+        assertEquals("10.1.1.1/32", prefix(table.longestPrefixMatch(ip("10.1.1.1"))));
+        assertEquals("10.1.1.0/24", prefix(table.longestPrefixMatch(ip("10.1.1.2"))));
+        assertEquals("10.1.0.0/16", prefix(table.longestPrefixMatch(ip("10.1.2.3"))));
+        assertEquals("10.0.0.0/8", prefix(table.longestPrefixMatch(ip("10.200.0.1"))));
+        assertNull(table.longestPrefixMatch(ip("11.0.0.1")));
+        assertEquals("2001:db8::/32", prefix(table.longestPrefixMatch(ip("2001:db8::1"))));
+        assertNull(table.longestPrefixMatch(ip("2001:db9::1")));
+
+        put(record("0.0.0.0/0", "192.168.10.1"));
+        assertEquals("0.0.0.0/0", prefix(table.longestPrefixMatch(ip("11.0.0.1"))));
+        assertNull(table.longestPrefixMatch(ip("2001:db9::1")));
+    }
+
+    @Test
+    public void coveringAndCovered() {
+        put(record("0.0.0.0/0", "192.168.10.1"));
+        put(record("10.0.0.0/8", "192.168.10.1"));
+        put(record("10.1.0.0/16", "192.168.10.1"));
+        put(record("10.1.1.0/24", "192.168.10.1"));
+        put(record("10.1.1.255/32", "192.168.10.1"));
+        put(record("10.2.0.0/16", "192.168.10.1"));
+        put(record("11.0.0.0/8", "192.168.10.1"));
+        put(record("::/0", "192.168.10.1"));
+        put(record("2001:db8::/32", "192.168.10.1"));
+        put(record("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff/128", "192.168.10.1"));
+        put(record("2001:db9::/32", "192.168.10.1"));
+
+        assertEquals(ImmutableList.of("0.0.0.0/0", "10.0.0.0/8", "10.1.0.0/16", "10.1.1.0/24"),
+                     prefixes(table.covering(IpPrefix.valueOf("10.1.1.0/24"))));
+        assertEquals(ImmutableList.of("0.0.0.0/0", "10.0.0.0/8", "10.1.0.0/16"),
+                     prefixes(table.covering(IpPrefix.valueOf("10.1.2.0/24"))));
+
+        assertEquals(ImmutableList.of("10.1.0.0/16", "10.1.1.0/24", "10.1.1.255/32"),
+                     prefixes(table.covered(IpPrefix.valueOf("10.1.0.0/16"))));
+        assertEquals(ImmutableList.of("10.0.0.0/8", "10.1.0.0/16", "10.1.1.0/24",
+                                      "10.1.1.255/32", "10.2.0.0/16"),
+                     prefixes(table.covered(IpPrefix.valueOf("10.0.0.0/8"))));
+        assertEquals(7, table.covered(IpPrefix.valueOf("0.0.0.0/0")).size());
+        assertEquals(ImmutableList.of("10.1.1.255/32"),
+                     prefixes(table.covered(IpPrefix.valueOf("10.1.1.255/32"))));
+        assertTrue(table.covered(IpPrefix.valueOf("12.0.0.0/8")).isEmpty());
+
+        assertEquals(4, table.covered(IpPrefix.valueOf("::/0")).size());
+        assertEquals(ImmutableList.of("2001:db8::/32",
+                                      "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff/128"),
+                     prefixes(table.covered(IpPrefix.valueOf("2001:db8::/32"))));
+        assertEquals(ImmutableList.of("::/0", "2001:db8::/32",
+                                      "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff/128"),
+                     prefixes(table.covering(IpPrefix.valueOf(
+                             "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff/128"))));
+    }
+
+    @Test
+    public void randomOrderBulkLoadAndPaging() {
+        Random random = new Random(1);
+        NavigableMap<IpPrefix, LispMapRecord> expected =
+                new TreeMap<>(MapRecords.PREFIX_ORDER);
+        for (int i = 0; i < 5000; i++) {
+            boolean ip6 = random.nextInt(4) == 0;
+            String address = ip6 ?
+                    String.format("2001:db8:%x::%x", random.nextInt(0x10000),
+                                  random.nextInt(0x10000)) :
+                    String.format("%d.%d.%d.0", random.nextInt(256),
+                                  random.nextInt(256), random.nextInt(256));
+            int mask = ip6 ? 48 + random.nextInt(81) : 8 + random.nextInt(17);
+            LispMapRecord record = record(address + "/" + mask, "192.168.10.1");
+            expected.put(MapRecords.eidPrefix(record), record);
+            put(record);
+        }
+        assertEquals(expected.size(), table.size());
+        assertEquals(ImmutableList.copyOf(expected.values()), table.records());
+
+        List<IpPrefix> removed = Lists.newArrayList(expected.keySet());
+        Collections.shuffle(removed, random);
+        for (IpPrefix prefix : removed.subList(0, removed.size() / 2)) {
+            assertTrue(table.remove(prefix));
+            expected.remove(prefix);
+        }
+        assertEquals(ImmutableList.copyOf(expected.values()), table.records());
+
+        List<LispMapRecord> paged = Lists.newArrayList();
+        IpPrefix after = null;
+        List<LispMapRecord> page;
+        do {
+            page = table.records(after, 333);
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                after = MapRecords.eidPrefix(page.get(page.size() - 1));
+            }
+        } while (page.size() == 333);
+        assertEquals(ImmutableList.copyOf(expected.values()), paged);
+
+        IpPrefix missing = IpPrefix.valueOf("10.10.10.10/32");
+        assertEquals(ImmutableList.copyOf(expected.tailMap(missing, false).values())
+                             .subList(0, 10),
+                     table.records(missing, 10));
+    }
+
+    @Test
+    public void locatorsSurviveCompaction() {
+        Map<Integer, LispMapRecord> expected = Maps.newHashMap();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                LispMapRecord record = round % 2 == 0 ?
+                        record("10.0." + i + ".0/24", "192.168.10.1",
+                               "192.168.10.2", "2001:db8::" + round) :
+                        record("10.0." + i + ".0/24", "192.168.10." + round);
+                expected.put(i, record);
+                put(record);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals(expected.get(i),
+                         table.get(IpPrefix.valueOf("10.0." + i + ".0/24")));
+        }
+    }
+
+    private static IpAddress ip(String address) {
+        return IpAddress.valueOf(address);
+    }
+
+    private static String prefix(LispMapRecord record) {
+        return record == null ? null : MapRecords.eidPrefix(record).toString();
+    }
+}
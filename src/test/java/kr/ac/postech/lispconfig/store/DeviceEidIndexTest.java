@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.ac.postech.lispconfig.store;
+
+import com.google.common.collect.ImmutableList;
+import kr.ac.postech.lispconfig.MapRecords;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the prefix lookups of the local EID index of a device.
+ */
+public class DeviceEidIndexTest {
+
+    private final DeviceEidIndex index = new DeviceEidIndex();
+
+    private void put(String prefix) {
+        IpPrefix eid = IpPrefix.valueOf(prefix);
+        index.update(eid, MapRecords.record(
+                eid.address().toString(), eid.prefixLength(), MapRecords.DEFAULT_TTL,
+                ImmutableList.of(MapRecords.locator("192.168.10.1", 1, 100))));
+    }
+
+    private static String prefix(LispMapRecord record) {
+        return record == null ? null : MapRecords.eidPrefix(record).toString();
+    }
+
+    private String match(String address) {
+        return prefix(index.longestPrefixMatch(IpAddress.valueOf(address)));
+    }
+
+    private static List<String> prefixes(List<LispMapRecord> records) {
+        return records.stream()
+                .map(DeviceEidIndexTest::prefix)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void longestPrefixMatch() {
+        put("0.0.0.0/0");
+        put("10.0.0.0/8");
+        put("10.1.0.0/16");
+        put("10.1.2.3/32");
+        put("2001:db8::/32");
+
+        assertEquals("10.1.2.3/32", match("10.1.2.3"));
+        assertEquals("10.1.0.0/16", match("10.1.2.4"));
+        assertEquals("10.0.0.0/8", match("10.2.0.1"));
+        assertEquals("0.0.0.0/0", match("11.0.0.1"));
+        assertEquals("2001:db8::/32", match("2001:db8::1"));
+        assertNull(match("2001:db9::1"));
+
+        index.update(IpPrefix.valueOf("10.1.0.0/16"), null);
+        assertEquals("10.0.0.0/8", match("10.1.2.4"));
+    }
+
+    @Test
+    public void coveringAndCovered() {
+        put("10.0.0.0/8");
+        put("10.1.0.0/16");
+        put("10.1.2.0/24");
+        put("10.1.2.3/32");
+        put("10.2.0.0/16");
+        put("11.0.0.0/8");
+        put("::/0");
+
+        assertEquals(ImmutableList.of("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24"),
+                     prefixes(index.covering(IpPrefix.valueOf("10.1.2.0/24"))));
+        assertEquals(ImmutableList.of("10.0.0.0/8", "10.1.0.0/16"),
+                     prefixes(index.covering(IpPrefix.valueOf("10.1.3.0/24"))));
+        assertEquals(ImmutableList.of("::/0"),
+                     prefixes(index.covering(IpPrefix.valueOf("2001:db8::/32"))));
+
+        assertEquals(ImmutableList.of("10.1.0.0/16", "10.1.2.0/24", "10.1.2.3/32"),
+                     prefixes(index.covered(IpPrefix.valueOf("10.1.0.0/16"))));
+        assertEquals(ImmutableList.of("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24",
+                                      "10.1.2.3/32", "10.2.0.0/16"),
+                     prefixes(index.covered(IpPrefix.valueOf("10.0.0.0/8"))));
+        assertEquals(ImmutableList.of(),
+                     prefixes(index.covered(IpPrefix.valueOf("12.0.0.0/8"))));
+    }
+
+    @Test
+    public void emptyIndex() {
+        assertNull(index.longestPrefixMatch(IpAddress.valueOf("10.1.2.3")));
+        assertEquals(ImmutableList.of(), index.covering(IpPrefix.valueOf("10.0.0.0/8")));
+        assertEquals(ImmutableList.of(), index.covered(IpPrefix.valueOf("0.0.0.0/0")));
+    }
+}